@@ -0,0 +1,23 @@
+package net.aty;
+
+import de.codecentric.boot.admin.server.config.EnableAdminServer;
+import net.aty.springboot.graph.PrecomputedBeanGraphSelector;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * 和AtyApplication相同的应用,core和actuator包的组件来自编译期生成的PrecomputedBeanGraph;
+ * 其余有组件的包也是编译期找出来的,由生成的PrecomputedComponentScan扫描,不用在这里手写
+ * <p>
+ * 这里故意不用@SpringBootApplication(它是@Component):否则会被AtyApplication的组件扫描当成配置类加载
+ */
+@EnableAutoConfiguration
+@EnableAdminServer
+@Import(PrecomputedBeanGraphSelector.class)
+public class PrecomputedAtyApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(PrecomputedAtyApplication.class, args);
+    }
+}
@@ -0,0 +1,78 @@
+package net.aty.springboot.actuator;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * /actuator/prometheus的缓存版本,数据来自同一个CollectorRegistry;
+ * 请求头的Accept-Encoding接受gzip(q值大于0)时直接返回缓存的压缩结果
+ */
+@RestController
+public class CachedPrometheusScrapeController {
+
+    private static final MediaType CONTENT_TYPE = MediaType.parseMediaType(TextFormat.CONTENT_TYPE_004);
+
+    private final CachedPrometheusScraper scraper;
+
+    public CachedPrometheusScrapeController(CollectorRegistry collectorRegistry) {
+        this.scraper = new CachedPrometheusScraper(collectorRegistry);
+    }
+
+    @GetMapping("/metrics/prometheus")
+    public ResponseEntity<byte[]> scrape(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // 同一个url的响应随Accept-Encoding变化,中间的缓存要按它区分
+        if (acceptsGzip(acceptEncoding)) {
+            return ResponseEntity.ok()
+                    .contentType(CONTENT_TYPE)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .body(scraper.scrapeGzip());
+        }
+        return ResponseEntity.ok()
+                .contentType(CONTENT_TYPE)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .body(scraper.scrape());
+    }
+
+    /**
+     * 按RFC 7231解析Accept-Encoding:明确列出的gzip优先于*,q=0表示不接受
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzip = -1;
+        double any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                gzip = Math.max(gzip, quality(parts));
+            } else if (name.equals("*")) {
+                any = Math.max(any, quality(parts));
+            }
+        }
+        return gzip >= 0 ? gzip > 0 : any > 0;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 2 && (parameter.charAt(0) == 'q' || parameter.charAt(0) == 'Q')
+                    && parameter.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
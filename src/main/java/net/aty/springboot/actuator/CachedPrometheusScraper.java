@@ -0,0 +1,134 @@
+package net.aty.springboot.actuator;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 带缓存的Prometheus文本输出:每个metric family(对应micrometer的一个meter)缓存一份渲染好的字节,
+ * scrape时只有取值发生变化的family才重新格式化成文本;所有family都没变化时直接返回上一次的完整body
+ * <p>
+ * gzip压缩后的body也按版本缓存,同一个版本被多个scraper拉取时只压缩一次
+ * <p>
+ * 采集(metricFamilySamples)本身每次都要做,省掉的是文本格式化和拼接,这是meter多的时候scrape的主要开销
+ */
+public class CachedPrometheusScraper {
+
+    private final CollectorRegistry registry;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private Entry[] ordered = new Entry[0];
+
+    private long generation;
+
+    private byte[] body = new byte[0];
+
+    private byte[] gzipBody;
+
+    private final StringWriter writer = new StringWriter();
+
+    public CachedPrometheusScraper(CollectorRegistry registry) {
+        this.registry = registry;
+    }
+
+    public synchronized byte[] scrape() {
+        long current = ++generation;
+        boolean changed = false;
+        int size = 0;
+        int index = 0;
+
+        Enumeration<Collector.MetricFamilySamples> families = registry.metricFamilySamples();
+        while (families.hasMoreElements()) {
+            Collector.MetricFamilySamples family = families.nextElement();
+            Entry entry = entries.get(family.name);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(family.name, entry);
+            }
+            if (entry.bytes == null || !entry.samples.equals(family.samples)) {
+                entry.samples = family.samples;
+                entry.bytes = render(family);
+                changed = true;
+            }
+            if (index >= ordered.length) {
+                ordered = Arrays.copyOf(ordered, Math.max(16, index * 2));
+            }
+            if (ordered[index] != entry) {
+                ordered[index] = entry;
+                changed = true;
+            }
+            entry.generation = current;
+            size += entry.bytes.length;
+            index++;
+        }
+        // family被移除时,本次没有出现的entry需要清理
+        if (entries.size() != index) {
+            entries.values().removeIf(entry -> entry.generation != current);
+            changed = true;
+        }
+        if (changed) {
+            byte[] merged = new byte[size];
+            int offset = 0;
+            for (int i = 0; i < index; i++) {
+                byte[] bytes = ordered[i].bytes;
+                System.arraycopy(bytes, 0, merged, offset, bytes.length);
+                offset += bytes.length;
+            }
+            Arrays.fill(ordered, index, ordered.length, null);
+            body = merged;
+            gzipBody = null;
+        }
+        return body;
+    }
+
+    public synchronized byte[] scrapeGzip() {
+        byte[] plain = scrape();
+        if (gzipBody == null) {
+            gzipBody = gzip(plain);
+        }
+        return gzipBody;
+    }
+
+    private byte[] render(Collector.MetricFamilySamples family) {
+        writer.getBuffer().setLength(0);
+        try {
+            TextFormat.write004(writer, Collections.enumeration(Collections.singletonList(family)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] plain) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(plain);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class Entry {
+
+        private List<Collector.MetricFamilySamples.Sample> samples;
+
+        private byte[] bytes;
+
+        private long generation;
+    }
+}
@@ -2,13 +2,17 @@ package net.aty.springboot.actuator;
 
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Metrics;
+import net.aty.springboot.startup.ParallelInit;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+/**
+ * 模拟订单数据,每秒由{@link MetricSamplingScheduler}回调一次sample()
+ */
+@ParallelInit
 @Service
-public class GameOrderService implements InitializingBean {
+public class GameOrderService implements InitializingBean, MetricSampler {
 
     @Autowired
     private MeterRegistry meterRegistry;
@@ -16,22 +20,42 @@ public class GameOrderService implements InitializingBean {
     @Autowired
     private GameOrderMetric gameOrderMetric;
 
+    @Autowired
+    private OrderCounterEngine orderCounterEngine;
+
+    @Autowired
+    private OrderLatencyRecorder orderLatencyRecorder;
+
+    private OrderChannelHandle gameOrders;
+
+    private LatencyHistogram gameLatency;
+
+    private volatile double gameOrderCount;
+
+    /**
+     * 请求路径上记录一笔订单,直接使用启动时注册好的句柄
+     */
+    public void recordOrder(long latencyNanos) {
+        gameOrders.record();
+        gameLatency.record(latencyNanos);
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
-        new Thread(() -> {
-            while (true) {
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-                Gauge.builder("game.order.count.way2", Math::random)
-                        .strongReference(true)
-                        .tag("channel", "game")
-                        .register(meterRegistry);
-                gameOrderMetric.setOrderCount(Math.random());
-                MetricReportUtils.report();
-            }
-        }).start();
+        gameOrders = orderCounterEngine.register("game");
+        gameLatency = orderLatencyRecorder.histogram("game");
+        // gauge只注册一次,采样时只更新数值,不再每秒调用Gauge.builder()
+        Gauge.builder("game.order.count.way2", this, service -> service.gameOrderCount)
+                .strongReference(true)
+                .tag("channel", "game")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void sample() {
+        gameOrderCount = Math.random();
+        recordOrder((long) (Math.random() * 200_000_000));
+        gameOrderMetric.setOrderCount(Math.random());
+        MetricReportUtils.report();
     }
 }
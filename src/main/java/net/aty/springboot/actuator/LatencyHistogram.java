@@ -0,0 +1,156 @@
+package net.aty.springboot.actuator;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定内存的延迟直方图(单位纳秒),桶的划分方式参考HdrHistogram:
+ * 小于32ns的值每个值一个桶,之后每个2的幂区间再线性切成32个子桶,相对误差约3%,最大记录2^40ns(约18分钟)
+ * <p>
+ * 另外按照配置的SLO边界单独计数,SLO桶是精确的,不受上面的相对误差影响
+ * <p>
+ * 记录路径只有原子自增,没有锁;同样SLO配置的两个直方图可以merge
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_TRACKABLE = (1L << MAX_EXPONENT) - 1;
+
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final long[] sloNanos;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    // 下标i表示(slo[i-1], slo[i]]区间内的个数,最后一个是超过所有SLO的个数
+    private final AtomicLongArray sloCounts;
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram(long[] sloNanos) {
+        this.sloNanos = sloNanos.clone();
+        Arrays.sort(this.sloNanos);
+        this.sloCounts = new AtomicLongArray(this.sloNanos.length + 1);
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_TRACKABLE));
+        counts.incrementAndGet(bucketIndex(value));
+        sloCounts.incrementAndGet(sloIndex(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    /**
+     * 把other的数据累加到当前直方图,两者的SLO边界必须一致
+     */
+    public void merge(LatencyHistogram other) {
+        if (!Arrays.equals(sloNanos, other.sloNanos)) {
+            throw new IllegalArgumentException("slo boundaries mismatch");
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        for (int i = 0; i < sloCounts.length(); i++) {
+            sloCounts.addAndGet(i, other.sloCounts.get(i));
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        long otherMax = other.max.get();
+        long current;
+        while (otherMax > (current = max.get()) && !max.compareAndSet(current, otherMax)) {
+            // retry
+        }
+    }
+
+    public long[] getSloNanos() {
+        return sloNanos.clone();
+    }
+
+    /**
+     * 小于等于每个SLO边界的累计个数,最后一个元素是总数(对应Prometheus的le="+Inf")
+     */
+    public long[] cumulativeSloCounts() {
+        long[] result = new long[sloCounts.length()];
+        long cumulative = 0;
+        for (int i = 0; i < result.length; i++) {
+            cumulative += sloCounts.get(i);
+            result[i] = cumulative;
+        }
+        return result;
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long totalNanos() {
+        return sum.sum();
+    }
+
+    public long maxNanos() {
+        return max.get();
+    }
+
+    /**
+     * 估算分位数,返回值是所在桶的上界,误差在桶宽度以内
+     */
+    public long valueAtQuantile(double quantile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private int sloIndex(long value) {
+        int index = Arrays.binarySearch(sloNanos, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,97 @@
+package net.aty.springboot.actuator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一次解析、多次记录:在静态字段或者启动阶段拿到meter句柄,之后的上报只是更新句柄里的值
+ * <p>
+ * 每次调用Gauge.builder(...).register()都要新建builder、排序tags、在registry里查找已有meter,
+ * 放在高频上报路径上是纯粹的浪费
+ * <p>
+ * 不传registry时注册到Metrics.globalRegistry;globalRegistry是CompositeMeterRegistry,
+ * 之后才加入的PrometheusMeterRegistry也能收到这里提前注册的meter
+ */
+public final class MeterHandles {
+
+    /**
+     * 已注册的gauge句柄:同一个id的Gauge只会绑定第一次注册时的对象,再建新句柄set()就不起作用了
+     */
+    private static final Map<MeterRegistry, ConcurrentMap<Meter.Id, GaugeHandle>> GAUGES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private MeterHandles() {
+    }
+
+    public static GaugeHandle gauge(String name, String... tags) {
+        return gauge(Metrics.globalRegistry, name, tags);
+    }
+
+    /**
+     * 同一个registry上相同name和tags返回同一个句柄;这个id的gauge已经用别的方式注册过时抛IllegalStateException
+     */
+    public static GaugeHandle gauge(MeterRegistry registry, String name, String... tags) {
+        Meter.Id id = new Meter.Id(name, Tags.of(tags), null, null, Meter.Type.GAUGE);
+        return GAUGES.computeIfAbsent(registry, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(id, key -> register(registry, key));
+    }
+
+    private static GaugeHandle register(MeterRegistry registry, Meter.Id id) {
+        if (registry.find(id.getName()).tags(id.getTags()).gauge() != null) {
+            throw new IllegalStateException("gauge " + id + " is already registered without MeterHandles");
+        }
+        GaugeHandle handle = new GaugeHandle();
+        Gauge.builder(id.getName(), handle, GaugeHandle::get)
+                .strongReference(true)
+                .tags(id.getTags())
+                .register(registry);
+        return handle;
+    }
+
+    public static Counter counter(String name, String... tags) {
+        return counter(Metrics.globalRegistry, name, tags);
+    }
+
+    public static Counter counter(MeterRegistry registry, String name, String... tags) {
+        return Counter.builder(name).tags(tags).register(registry);
+    }
+
+    public static Timer timer(String name, String... tags) {
+        return timer(Metrics.globalRegistry, name, tags);
+    }
+
+    public static Timer timer(MeterRegistry registry, String name, String... tags) {
+        return Timer.builder(name).tags(tags).register(registry);
+    }
+
+    /**
+     * gauge的值用long保存double的bit位,set/get都是一次volatile读写,不加锁也不分配对象
+     */
+    public static final class GaugeHandle {
+
+        private final AtomicLong bits = new AtomicLong(Double.doubleToRawLongBits(0));
+
+        private GaugeHandle() {
+        }
+
+        public void set(double value) {
+            bits.set(Double.doubleToRawLongBits(value));
+        }
+
+        public double get() {
+            return Double.longBitsToDouble(bits.get());
+        }
+    }
+}
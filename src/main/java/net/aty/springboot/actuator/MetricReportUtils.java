@@ -1,15 +1,11 @@
 package net.aty.springboot.actuator;
 
-import io.micrometer.core.instrument.Gauge;
-import io.micrometer.core.instrument.Metrics;
-
 public class MetricReportUtils {
 
-    public static void report() {
-        Gauge.builder("game.order.count.way3", Math::random)
-                .strongReference(true)
-                .tag("channel", "theme")
-                .register(Metrics.globalRegistry);
+    private static final MeterHandles.GaugeHandle THEME_ORDER_COUNT =
+            MeterHandles.gauge("game.order.count.way3", "channel", "theme");
 
+    public static void report() {
+        THEME_ORDER_COUNT.set(Math.random());
     }
 }
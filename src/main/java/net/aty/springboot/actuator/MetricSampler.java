@@ -0,0 +1,19 @@
+package net.aty.springboot.actuator;
+
+import java.time.Duration;
+
+/**
+ * 需要定时采样的metric数据源,托管给spring后由{@link MetricSamplingScheduler}统一调度,
+ * 不要自己起线程循环sleep
+ */
+public interface MetricSampler {
+
+    /**
+     * 在采样线程上执行,应该尽快返回;抛出的异常会被记录并计数,不影响其他数据源
+     */
+    void sample();
+
+    default Duration samplingInterval() {
+        return Duration.ofSeconds(1);
+    }
+}
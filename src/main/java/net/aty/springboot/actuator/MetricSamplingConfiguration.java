@@ -0,0 +1,22 @@
+package net.aty.springboot.actuator;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricSamplingConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "aty.metrics.sampling")
+    public MetricSamplingProperties metricSamplingProperties() {
+        return new MetricSamplingProperties();
+    }
+
+    @Bean
+    public MetricSamplingScheduler metricSamplingScheduler(ObjectProvider<MetricSampler> samplers,
+                                                           MetricSamplingProperties properties) {
+        return new MetricSamplingScheduler(samplers, properties);
+    }
+}
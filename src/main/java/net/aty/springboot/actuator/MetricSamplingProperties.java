@@ -0,0 +1,43 @@
+package net.aty.springboot.actuator;
+
+import java.time.Duration;
+
+/**
+ * aty.metrics.sampling.*配置
+ */
+public class MetricSamplingProperties {
+
+    /**
+     * 调度器的基础tick,所有数据源的采样都合并到tick上执行,数据源的采样间隔应该是它的整数倍
+     */
+    private Duration tick = Duration.ofMillis(100);
+
+    /**
+     * 每次计算下一次采样时间时,在采样间隔上随机增加[0, interval * jitter)的抖动,避免所有数据源同时采样
+     */
+    private double jitter = 0.1;
+
+    public Duration getTick() {
+        return tick;
+    }
+
+    public void setTick(Duration tick) {
+        this.tick = tick;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(double jitter) {
+        this.jitter = jitter;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricSamplingProperties{" +
+                "tick=" + tick +
+                ", jitter=" + jitter +
+                '}';
+    }
+}
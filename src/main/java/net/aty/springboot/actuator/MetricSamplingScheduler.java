@@ -0,0 +1,158 @@
+package net.aty.springboot.actuator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 所有{@link MetricSampler}共用的采样调度器:一个名为metric-sampler的守护线程,按固定tick触发,
+ * 每个tick里依次执行已经到期的数据源,各个数据源有自己的采样间隔和随机抖动
+ * <p>
+ * 随spring上下文启动和关闭;自身也是MeterBinder,上报tick的延迟(实际触发时间相对于预期时间),
+ * 采样跟不上的时候这个值会持续变大
+ * <p>
+ * 数据源通过ObjectProvider在start()时才获取:数据源一般依赖MeterRegistry,而MeterBinder是在MeterRegistry
+ * 创建过程中被收集的,构造时注入会形成循环依赖
+ */
+public class MetricSamplingScheduler implements SmartLifecycle, MeterBinder {
+
+    private static final Log logger = LogFactory.getLog(MetricSamplingScheduler.class);
+
+    private final ObjectProvider<MetricSampler> samplerProvider;
+
+    private final MetricSamplingProperties properties;
+
+    private final List<Source> sources = new ArrayList<>();
+
+    private volatile ScheduledExecutorService executor;
+
+    private volatile Timer tickLag;
+
+    private volatile Counter failures;
+
+    private long expectedTickNanos;
+
+    public MetricSamplingScheduler(ObjectProvider<MetricSampler> samplerProvider, MetricSamplingProperties properties) {
+        this.samplerProvider = samplerProvider;
+        this.properties = properties;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        tickLag = Timer.builder("metric.sampler.tick.lag")
+                .description("delay of the sampling tick relative to its schedule")
+                .register(registry);
+        failures = Counter.builder("metric.sampler.failures")
+                .register(registry);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        long now = System.nanoTime();
+        sources.clear();
+        samplerProvider.orderedStream().forEach(sampler -> sources.add(new Source(sampler, now)));
+
+        long tickNanos = properties.getTick().toNanos();
+        expectedTickNanos = now + tickNanos;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metric-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        logger.info("metric sampling started, tick=" + properties.getTick() + ", sources=" + sources.size());
+    }
+
+    @Override
+    public synchronized void stop() {
+        ScheduledExecutorService current = executor;
+        if (current == null) {
+            return;
+        }
+        executor = null;
+        current.shutdownNow();
+        try {
+            if (!current.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("metric sampling thread did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return executor != null;
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        long tickNanos = properties.getTick().toNanos();
+        Timer lag = tickLag;
+        if (lag != null) {
+            lag.record(Math.max(0, now - expectedTickNanos), TimeUnit.NANOSECONDS);
+        }
+        // scheduleAtFixedRate在落后时会连续补跑,预期时间也跟着按tick累加;落后超过一个tick就不再追赶
+        expectedTickNanos = Math.max(expectedTickNanos + tickNanos, now - tickNanos);
+
+        for (Source source : sources) {
+            if (now - source.nextDueNanos < 0) {
+                continue;
+            }
+            try {
+                source.sampler.sample();
+            } catch (Throwable e) {
+                Counter counter = failures;
+                if (counter != null) {
+                    counter.increment();
+                }
+                logger.warn("metric sampler failed: " + source.sampler.getClass().getName(), e);
+            }
+            source.scheduleNext(now, properties.getJitter());
+        }
+    }
+
+    static final class Source {
+
+        private final MetricSampler sampler;
+
+        private final long intervalNanos;
+
+        // 不含抖动的计划时间,按间隔累加;抖动每次单独加在上面,不会累积
+        long baseDueNanos;
+
+        long nextDueNanos;
+
+        Source(MetricSampler sampler, long now) {
+            this.sampler = sampler;
+            this.intervalNanos = sampler.samplingInterval().toNanos();
+            this.baseDueNanos = now + intervalNanos;
+            this.nextDueNanos = baseDueNanos;
+        }
+
+        void scheduleNext(long now, double jitter) {
+            long jitterNanos = jitter > 0 ? (long) (ThreadLocalRandom.current().nextDouble() * jitter * intervalNanos) : 0;
+            // 以上一次的计划时间为基准,避免误差累积;已经落后一个间隔以上则从当前时间重新计算
+            baseDueNanos += intervalNanos;
+            if (baseDueNanos - now < 0) {
+                baseDueNanos = now + intervalNanos;
+            }
+            nextDueNanos = baseDueNanos + jitterNanos;
+        }
+    }
+}
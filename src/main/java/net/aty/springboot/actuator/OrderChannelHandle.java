@@ -0,0 +1,35 @@
+package net.aty.springboot.actuator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 某个channel预先注册好的订单计数句柄,通过{@link OrderCounterEngine#register(String)}获取
+ * <p>
+ * 调用方应该持有这个句柄,而不是每次按channel名字去查找;底层是LongAdder分段计数,多线程并发记录时没有竞争
+ */
+public final class OrderChannelHandle {
+
+    private final String channel;
+
+    private final LongAdder orders = new LongAdder();
+
+    OrderChannelHandle(String channel) {
+        this.channel = channel;
+    }
+
+    public void record() {
+        orders.increment();
+    }
+
+    public void record(long count) {
+        orders.add(count);
+    }
+
+    public long count() {
+        return orders.sum();
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+}
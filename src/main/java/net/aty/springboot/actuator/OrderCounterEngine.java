@@ -0,0 +1,55 @@
+package net.aty.springboot.actuator;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 订单计数引擎:每个channel在启动时注册一次,得到{@link OrderChannelHandle}
+ * <p>
+ * 请求路径上记录订单只是对LongAdder做一次累加,不做map查找、不创建Gauge.builder、不访问MeterRegistry
+ * <p>
+ * FunctionCounter只在bindTo(或者bindTo之后新注册channel)时绑定一次,采集的时候才去读取LongAdder.sum()
+ */
+@Component
+public class OrderCounterEngine implements MeterBinder {
+
+    public static final String METRIC_NAME = "game.order.count";
+
+    private final Map<String, OrderChannelHandle> handles = new LinkedHashMap<>();
+
+    private MeterRegistry registry;
+
+    /**
+     * 同一个channel多次注册返回同一个句柄;只应该在启动阶段调用,不要放在请求路径上
+     */
+    public synchronized OrderChannelHandle register(String channel) {
+        OrderChannelHandle handle = handles.get(channel);
+        if (handle == null) {
+            handle = new OrderChannelHandle(channel);
+            handles.put(channel, handle);
+            if (registry != null) {
+                bind(handle, registry);
+            }
+        }
+        return handle;
+    }
+
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        for (OrderChannelHandle handle : handles.values()) {
+            bind(handle, registry);
+        }
+    }
+
+    private static void bind(OrderChannelHandle handle, MeterRegistry registry) {
+        FunctionCounter.builder(METRIC_NAME, handle, OrderChannelHandle::count)
+                .tag("channel", handle.getChannel())
+                .register(registry);
+    }
+}
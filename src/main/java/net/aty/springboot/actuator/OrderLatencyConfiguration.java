@@ -0,0 +1,28 @@
+package net.aty.springboot.actuator;
+
+import io.prometheus.client.CollectorRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class OrderLatencyConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "aty.order.latency")
+    public OrderLatencyProperties orderLatencyProperties() {
+        return new OrderLatencyProperties();
+    }
+
+    /**
+     * 注册到PrometheusMetricsExportAutoConfiguration创建的CollectorRegistry,和micrometer的meter一起被scrape
+     */
+    @Bean
+    public OrderLatencyRecorder orderLatencyRecorder(OrderLatencyProperties properties,
+                                                     ObjectProvider<CollectorRegistry> collectorRegistry) {
+        OrderLatencyRecorder recorder = new OrderLatencyRecorder(properties.getChannels(), properties.getSlo());
+        collectorRegistry.ifAvailable(recorder::register);
+        return recorder;
+    }
+}
@@ -0,0 +1,42 @@
+package net.aty.springboot.actuator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * aty.order.latency.*配置,channel在启动时固定下来,每个channel一个固定大小的直方图
+ */
+public class OrderLatencyProperties {
+
+    private List<String> channels = new ArrayList<>(Arrays.asList("store", "game", "theme"));
+
+    private List<Duration> slo = new ArrayList<>(Arrays.asList(
+            Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofMillis(100),
+            Duration.ofMillis(500), Duration.ofSeconds(1)));
+
+    public List<String> getChannels() {
+        return channels;
+    }
+
+    public void setChannels(List<String> channels) {
+        this.channels = channels;
+    }
+
+    public List<Duration> getSlo() {
+        return slo;
+    }
+
+    public void setSlo(List<Duration> slo) {
+        this.slo = slo;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderLatencyProperties{" +
+                "channels=" + channels +
+                ", slo=" + slo +
+                '}';
+    }
+}
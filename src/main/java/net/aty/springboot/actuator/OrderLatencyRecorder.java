@@ -0,0 +1,84 @@
+package net.aty.springboot.actuator;
+
+import io.prometheus.client.Collector;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按channel记录订单处理延迟,每个channel一个{@link LatencyHistogram},启动后channel集合不再变化
+ * <p>
+ * 直接作为Prometheus的Collector注册到CollectorRegistry,scrape的时候才读取直方图的原子计数,
+ * 记录路径和导出路径之间没有锁
+ */
+public class OrderLatencyRecorder extends Collector {
+
+    static final String METRIC_NAME = "game_order_latency_seconds";
+    static final String QUANTILE_METRIC_NAME = "game_order_latency_quantile_seconds";
+    static final String MAX_METRIC_NAME = "game_order_latency_max_seconds";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    public OrderLatencyRecorder(List<String> channels, List<Duration> slo) {
+        long[] sloNanos = slo.stream().mapToLong(Duration::toNanos).toArray();
+        for (String channel : channels) {
+            histograms.put(channel, new LatencyHistogram(sloNanos));
+        }
+    }
+
+    /**
+     * 启动阶段获取channel对应的直方图并持有,请求路径上直接调用{@link LatencyHistogram#record(long)}
+     */
+    public LatencyHistogram histogram(String channel) {
+        LatencyHistogram histogram = histograms.get(channel);
+        if (histogram == null) {
+            throw new IllegalArgumentException("unknown channel: " + channel + ", configured: " + histograms.keySet());
+        }
+        return histogram;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples.Sample> buckets = new ArrayList<>();
+        List<MetricFamilySamples.Sample> quantiles = new ArrayList<>();
+        List<MetricFamilySamples.Sample> maxes = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            String channel = entry.getKey();
+            LatencyHistogram histogram = entry.getValue();
+
+            long[] sloNanos = histogram.getSloNanos();
+            long[] cumulative = histogram.cumulativeSloCounts();
+            for (int i = 0; i < sloNanos.length; i++) {
+                buckets.add(new MetricFamilySamples.Sample(METRIC_NAME + "_bucket", Arrays.asList("channel", "le"),
+                        Arrays.asList(channel, doubleToGoString(sloNanos[i] / 1e9)), cumulative[i]));
+            }
+            buckets.add(new MetricFamilySamples.Sample(METRIC_NAME + "_bucket", Arrays.asList("channel", "le"),
+                    Arrays.asList(channel, "+Inf"), cumulative[sloNanos.length]));
+            // _count和+Inf取自同一份快照,并发记录时也一致
+            buckets.add(new MetricFamilySamples.Sample(METRIC_NAME + "_count", Collections.singletonList("channel"),
+                    Collections.singletonList(channel), cumulative[sloNanos.length]));
+            buckets.add(new MetricFamilySamples.Sample(METRIC_NAME + "_sum", Collections.singletonList("channel"),
+                    Collections.singletonList(channel), histogram.totalNanos() / 1e9));
+
+            for (double quantile : QUANTILES) {
+                quantiles.add(new MetricFamilySamples.Sample(QUANTILE_METRIC_NAME, Arrays.asList("channel", "quantile"),
+                        Arrays.asList(channel, doubleToGoString(quantile)), histogram.valueAtQuantile(quantile) / 1e9));
+            }
+            maxes.add(new MetricFamilySamples.Sample(MAX_METRIC_NAME, Collections.singletonList("channel"),
+                    Collections.singletonList(channel), histogram.maxNanos() / 1e9));
+        }
+
+        List<MetricFamilySamples> families = new ArrayList<>();
+        families.add(new MetricFamilySamples(METRIC_NAME, Type.HISTOGRAM, "order processing latency", buckets));
+        families.add(new MetricFamilySamples(QUANTILE_METRIC_NAME, Type.GAUGE, "order processing latency quantiles", quantiles));
+        families.add(new MetricFamilySamples(MAX_METRIC_NAME, Type.GAUGE, "max order processing latency", maxes));
+        return families;
+    }
+}
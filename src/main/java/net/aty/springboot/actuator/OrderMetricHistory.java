@@ -0,0 +1,206 @@
+package net.aty.springboot.actuator;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * game.order.count.*最近一段时间的取值,每秒采样一次,写入内存映射文件里的环形缓冲区
+ * <p>
+ * 文件布局:32字节文件头(magic, version, capacity, channel个数),之后每个channel占capacity个slot,
+ * 每个slot是(epochSecond, value)共16字节;第t秒写入下标t % capacity的slot,读取时用slot里的时间戳判断数据是否有效,
+ * 不需要额外维护头尾指针
+ * <p>
+ * 数据都在堆外,采样时没有对象分配;重启后只要文件头和配置一致就继续使用原来的数据
+ * <p>
+ * slot的读写都是volatile的:写入方先清掉时间戳再写值和新时间戳,读取方在读值前后各读一次时间戳,
+ * 两次一致才使用这个值,不会读到写了一半的slot
+ */
+public class OrderMetricHistory implements MetricSampler, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(OrderMetricHistory.class);
+
+    private static final int MAGIC = 0x4154594f;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 16;
+
+    /**
+     * 最多保留31天;3个channel时文件是128MB,远小于一个MappedByteBuffer能映射的2GB
+     */
+    static final int MAX_CAPACITY = 31 * 24 * 3600;
+
+    // 和ByteBuffer默认的字节序一致,已有的文件可以继续读
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * channel和对应的gauge名字
+     */
+    static final List<String> CHANNELS = Collections.unmodifiableList(Arrays.asList("store", "game", "theme"));
+    private static final String[] GAUGE_NAMES = {"game.order.count.way1", "game.order.count.way2", "game.order.count.way3"};
+
+    private final MeterRegistry meterRegistry;
+
+    private final int capacity;
+
+    private final MappedByteBuffer buffer;
+
+    private final Gauge[] gauges = new Gauge[CHANNELS.size()];
+
+    public OrderMetricHistory(MeterRegistry meterRegistry, OrderMetricHistoryProperties properties) throws IOException {
+        if (properties.getCapacity() <= 0 || properties.getCapacity() > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be in (0, " + MAX_CAPACITY + "]: " + properties.getCapacity());
+        }
+        this.meterRegistry = meterRegistry;
+        this.capacity = properties.getCapacity();
+        this.buffer = map(properties);
+    }
+
+    private MappedByteBuffer map(OrderMetricHistoryProperties properties) throws IOException {
+        long size = HEADER_BYTES + (long) SLOT_BYTES * capacity * CHANNELS.size();
+        if (properties.getFile().getParentFile() != null) {
+            properties.getFile().getParentFile().mkdirs();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(properties.getFile(), "rw");
+             FileChannel channel = file.getChannel()) {
+            boolean reuse = channel.size() == size;
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (reuse && mapped.getInt(0) == MAGIC && mapped.getInt(4) == VERSION
+                    && mapped.getInt(8) == capacity && mapped.getInt(12) == CHANNELS.size()) {
+                logger.info("order metric history restored from " + properties.getFile());
+                return mapped;
+            }
+            for (long i = 0; i < size; i += 8) {
+                mapped.putLong((int) i, 0);
+            }
+            mapped.putInt(0, MAGIC);
+            mapped.putInt(4, VERSION);
+            mapped.putInt(8, capacity);
+            mapped.putInt(12, CHANNELS.size());
+            return mapped;
+        }
+    }
+
+    @Override
+    public void sample() {
+        long second = System.currentTimeMillis() / 1000;
+        for (int i = 0; i < gauges.length; i++) {
+            Gauge gauge = gauges[i];
+            if (gauge == null) {
+                gauge = meterRegistry.find(GAUGE_NAMES[i]).tag("channel", CHANNELS.get(i)).gauge();
+                if (gauge == null) {
+                    continue;
+                }
+                gauges[i] = gauge;
+            }
+            write(i, second, gauge.value());
+        }
+    }
+
+    void write(int channelIndex, long second, double value) {
+        int offset = slotOffset(channelIndex, second);
+        // 先让旧的时间戳失效,再写值,最后写新的时间戳,读取方不会把新值当成旧时间的数据
+        LONG.setVolatile(buffer, offset, 0L);
+        LONG.setVolatile(buffer, offset + 8, Double.doubleToRawLongBits(value));
+        LONG.setVolatile(buffer, offset, second);
+    }
+
+    /**
+     * 读取second这一秒的值,slot里不是这一秒的数据或者正在被改写时返回NaN
+     */
+    double read(int channelIndex, long second) {
+        int offset = slotOffset(channelIndex, second);
+        if ((long) LONG.getVolatile(buffer, offset) != second) {
+            return Double.NaN;
+        }
+        double value = Double.longBitsToDouble((long) LONG.getVolatile(buffer, offset + 8));
+        return (long) LONG.getVolatile(buffer, offset) == second ? value : Double.NaN;
+    }
+
+    /**
+     * 返回最近windowSeconds秒的数据,按resolutionSeconds对齐分组求平均值;没有数据的时间段不返回
+     */
+    public List<Point> series(String channel, int resolutionSeconds, int windowSeconds) {
+        int channelIndex = CHANNELS.indexOf(channel);
+        if (channelIndex < 0) {
+            throw new IllegalArgumentException("unknown channel: " + channel);
+        }
+        long now = System.currentTimeMillis() / 1000;
+        long from = now - Math.min(windowSeconds, capacity) + 1;
+
+        List<Point> points = new ArrayList<>();
+        long bucket = Long.MIN_VALUE;
+        double sum = 0;
+        int count = 0;
+        for (long second = from; second <= now; second++) {
+            double value = read(channelIndex, second);
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            long current = second - Math.floorMod(second, resolutionSeconds);
+            if (current != bucket) {
+                if (count > 0) {
+                    points.add(new Point(bucket, sum / count));
+                }
+                bucket = current;
+                sum = 0;
+                count = 0;
+            }
+            sum += value;
+            count++;
+        }
+        if (count > 0) {
+            points.add(new Point(bucket, sum / count));
+        }
+        return points;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private int slotOffset(int channelIndex, long second) {
+        // capacity有上限,结果一定在int范围内
+        long slot = (long) channelIndex * capacity + Math.floorMod(second, (long) capacity);
+        return (int) (HEADER_BYTES + slot * SLOT_BYTES);
+    }
+
+    @Override
+    public void destroy() {
+        buffer.force();
+    }
+
+    public static class Point {
+
+        private final long time;
+
+        private final double value;
+
+        public Point(long time, double value) {
+            this.time = time;
+            this.value = value;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+}
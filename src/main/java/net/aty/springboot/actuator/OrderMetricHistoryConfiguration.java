@@ -0,0 +1,29 @@
+package net.aty.springboot.actuator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+@Configuration
+public class OrderMetricHistoryConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "aty.metrics.history")
+    public OrderMetricHistoryProperties orderMetricHistoryProperties() {
+        return new OrderMetricHistoryProperties();
+    }
+
+    @Bean
+    public OrderMetricHistory orderMetricHistory(MeterRegistry meterRegistry,
+                                                 OrderMetricHistoryProperties properties) throws IOException {
+        return new OrderMetricHistory(meterRegistry, properties);
+    }
+
+    @Bean
+    public OrderMetricHistoryEndpoint orderMetricHistoryEndpoint(OrderMetricHistory orderMetricHistory) {
+        return new OrderMetricHistoryEndpoint(orderMetricHistory);
+    }
+}
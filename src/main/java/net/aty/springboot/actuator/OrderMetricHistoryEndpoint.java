@@ -0,0 +1,67 @@
+package net.aty.springboot.actuator;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /actuator/orderhistory?resolution=10&window=600
+ * <p>
+ * resolution只支持1/10/60秒,window默认是缓冲区的全部容量
+ */
+@Endpoint(id = "orderhistory")
+public class OrderMetricHistoryEndpoint {
+
+    private final OrderMetricHistory history;
+
+    public OrderMetricHistoryEndpoint(OrderMetricHistory history) {
+        this.history = history;
+    }
+
+    @ReadOperation
+    public Map<String, List<OrderMetricHistory.Point>> history(@Nullable Integer resolution, @Nullable Integer window) {
+        int resolutionSeconds = resolution(resolution);
+        int windowSeconds = window(window);
+        Map<String, List<OrderMetricHistory.Point>> result = new LinkedHashMap<>();
+        for (String channel : OrderMetricHistory.CHANNELS) {
+            result.put(channel, history.series(channel, resolutionSeconds, windowSeconds));
+        }
+        return result;
+    }
+
+    @ReadOperation
+    public List<OrderMetricHistory.Point> channel(@Selector String channel, @Nullable Integer resolution,
+                                                  @Nullable Integer window) {
+        if (!OrderMetricHistory.CHANNELS.contains(channel)) {
+            throw new InvalidEndpointRequestException("unknown channel: " + channel, "unknown channel");
+        }
+        return history.series(channel, resolution(resolution), window(window));
+    }
+
+    private static int resolution(Integer resolution) {
+        if (resolution == null) {
+            return 1;
+        }
+        if (resolution != 1 && resolution != 10 && resolution != 60) {
+            throw new InvalidEndpointRequestException("resolution must be 1, 10 or 60: " + resolution,
+                    "resolution must be 1, 10 or 60");
+        }
+        return resolution;
+    }
+
+    private int window(Integer window) {
+        if (window == null) {
+            return history.getCapacity();
+        }
+        if (window <= 0) {
+            throw new InvalidEndpointRequestException("window must be positive: " + window, "window must be positive");
+        }
+        return window;
+    }
+}
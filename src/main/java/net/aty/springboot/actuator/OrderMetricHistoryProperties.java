@@ -0,0 +1,43 @@
+package net.aty.springboot.actuator;
+
+import java.io.File;
+
+/**
+ * aty.metrics.history.*配置
+ */
+public class OrderMetricHistoryProperties {
+
+    /**
+     * 环形缓冲区映射的文件,重启后从这里恢复历史数据
+     */
+    private File file = new File(System.getProperty("java.io.tmpdir"), "aty-order-history.dat");
+
+    /**
+     * 每个channel保留多少秒的数据
+     */
+    private int capacity = 3600;
+
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderMetricHistoryProperties{" +
+                "file=" + file +
+                ", capacity=" + capacity +
+                '}';
+    }
+}
@@ -0,0 +1,20 @@
+package net.aty.springboot.actuator;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TagCardinalityConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "aty.metrics.tag-guard")
+    public TagCardinalityProperties tagCardinalityProperties() {
+        return new TagCardinalityProperties();
+    }
+
+    @Bean
+    public TagCardinalityGuard tagCardinalityGuard(TagCardinalityProperties properties) {
+        return new TagCardinalityGuard(properties);
+    }
+}
@@ -0,0 +1,81 @@
+package net.aty.springboot.actuator;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 限制某个tag(默认channel)在每个meter名字下的不同取值个数,防止调用方把userId、orderId之类的值当成tag,
+ * 导致MeterRegistry无限膨胀、scrape越来越慢
+ * <p>
+ * 超过上限的取值被替换成overflowValue(默认other),多个取值的数据合并到同一个meter里;
+ * 已经放行的取值不会被淘汰:meter是调用方注册的,调用方可能还持有它(OrderChannelHandle、GaugeHandle、缓存的Counter),
+ * 从registry里移除后这些引用上的数据就不再上报,所以名额满了以后只拒绝新的取值
+ * <p>
+ * springboot会把MeterFilter类型的bean自动应用到MeterRegistry上;同时这也是MeterBinder,上报自身的拒绝次数
+ */
+public class TagCardinalityGuard implements MeterFilter, MeterBinder {
+
+    private static final Log logger = LogFactory.getLog(TagCardinalityGuard.class);
+
+    private final TagCardinalityProperties properties;
+
+    private final Map<String, Set<String>> valuesByName = new ConcurrentHashMap<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    public TagCardinalityGuard(TagCardinalityProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public Meter.Id map(Meter.Id id) {
+        String value = id.getTag(properties.getTag());
+        if (value == null || value.equals(properties.getOverflowValue())) {
+            return id;
+        }
+        Set<String> values = valuesByName.computeIfAbsent(id.getName(), name -> ConcurrentHashMap.newKeySet());
+        if (values.contains(value)) {
+            return id;
+        }
+        synchronized (values) {
+            if (values.contains(value)) {
+                return id;
+            }
+            if (values.size() < properties.getMaxValues()) {
+                values.add(value);
+                return id;
+            }
+        }
+        rejected.increment();
+        if (logger.isDebugEnabled()) {
+            logger.debug("tag " + properties.getTag() + "=" + value + " of " + id.getName() + " folded into "
+                    + properties.getOverflowValue());
+        }
+        return id.replaceTags(Tags.of(id.getTagsAsIterable()).and(properties.getTag(), properties.getOverflowValue()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        String tag = properties.getTag();
+        FunctionCounter.builder("metric.tag.guard.rejected", rejected, LongAdder::sum)
+                .description("meters whose tag value was folded into the overflow value")
+                .tag("tag", tag)
+                .register(registry);
+        Gauge.builder("metric.tag.guard.values", valuesByName, map -> map.values().stream().mapToInt(Set::size).sum())
+                .description("distinct tag values currently admitted")
+                .tag("tag", tag)
+                .register(registry);
+    }
+}
@@ -0,0 +1,55 @@
+package net.aty.springboot.actuator;
+
+/**
+ * aty.metrics.tag-guard.*配置
+ */
+public class TagCardinalityProperties {
+
+    /**
+     * 受保护的tag名字
+     */
+    private String tag = "channel";
+
+    /**
+     * 每个meter名字下该tag最多允许多少个不同的取值
+     */
+    private int maxValues = 20;
+
+    /**
+     * 超出上限的取值统一替换成这个值
+     */
+    private String overflowValue = "other";
+
+    public String getTag() {
+        return tag;
+    }
+
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    public int getMaxValues() {
+        return maxValues;
+    }
+
+    public void setMaxValues(int maxValues) {
+        this.maxValues = maxValues;
+    }
+
+    public String getOverflowValue() {
+        return overflowValue;
+    }
+
+    public void setOverflowValue(String overflowValue) {
+        this.overflowValue = overflowValue;
+    }
+
+    @Override
+    public String toString() {
+        return "TagCardinalityProperties{" +
+                "tag='" + tag + '\'' +
+                ", maxValues=" + maxValues +
+                ", overflowValue='" + overflowValue + '\'' +
+                '}';
+    }
+}
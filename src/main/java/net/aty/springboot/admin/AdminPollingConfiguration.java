@@ -0,0 +1,99 @@
+package net.aty.springboot.admin;
+
+import de.codecentric.boot.admin.server.config.AdminServerProperties;
+import de.codecentric.boot.admin.server.domain.entities.Instance;
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.services.InfoUpdateTrigger;
+import de.codecentric.boot.admin.server.services.InfoUpdater;
+import de.codecentric.boot.admin.server.services.InstanceRegistry;
+import de.codecentric.boot.admin.server.services.StatusUpdateTrigger;
+import de.codecentric.boot.admin.server.services.StatusUpdater;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * admin server自带的两个trigger(@ConditionalOnMissingBean)换成不做定时轮询的版本,
+ * 定时轮询和事件触发的轮询都交给InstancePollingScheduler
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "aty.admin.polling", name = "enabled", matchIfMissing = true)
+public class AdminPollingConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "aty.admin.polling")
+    public AdminPollingProperties adminPollingProperties() {
+        return new AdminPollingProperties();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public InstancePollingScheduler instancePollingScheduler(AdminPollingProperties properties,
+                                                             AdminServerProperties adminServerProperties,
+                                                             InstanceRegistry registry,
+                                                             StatusUpdater statusUpdater, InfoUpdater infoUpdater) {
+        AdminServerProperties.MonitorProperties monitor = adminServerProperties.getMonitor();
+        return new InstancePollingScheduler(
+                () -> registry.getInstances().filter(Instance::isRegistered).map(Instance::getId),
+                id -> statusUpdater.updateStatus(id).then(registry.getInstance(id))
+                        .map(instance -> instance.getStatusInfo().getStatus()),
+                id -> infoUpdater.updateInfo(id).then(registry.getInstance(id))
+                        .map(instance -> instance.getInfo().getValues()),
+                properties.getMaxConcurrency(), properties.getTick(),
+                monitor.getStatusInterval(), properties.getMaxStatusInterval(),
+                monitor.getInfoInterval(), properties.getMaxInfoInterval());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public InstancePollingEventHandler instancePollingEventHandler(Publisher<InstanceEvent> events,
+                                                                   InstancePollingScheduler scheduler) {
+        return new InstancePollingEventHandler(events, scheduler);
+    }
+
+    @Bean
+    public StatusUpdateTrigger statusUpdateTrigger(StatusUpdater statusUpdater, Publisher<InstanceEvent> events) {
+        return new PassiveStatusUpdateTrigger(statusUpdater, events);
+    }
+
+    @Bean
+    public InfoUpdateTrigger infoUpdateTrigger(InfoUpdater infoUpdater, Publisher<InstanceEvent> events) {
+        return new PassiveInfoUpdateTrigger(infoUpdater, events);
+    }
+
+    /**
+     * 占住StatusUpdateTrigger的位置,不订阅事件也不定时轮询
+     */
+    static class PassiveStatusUpdateTrigger extends StatusUpdateTrigger {
+
+        PassiveStatusUpdateTrigger(StatusUpdater statusUpdater, Publisher<InstanceEvent> publisher) {
+            super(statusUpdater, publisher);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    /**
+     * 占住InfoUpdateTrigger的位置,不订阅事件也不定时轮询
+     */
+    static class PassiveInfoUpdateTrigger extends InfoUpdateTrigger {
+
+        PassiveInfoUpdateTrigger(InfoUpdater infoUpdater, Publisher<InstanceEvent> publisher) {
+            super(infoUpdater, publisher);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package net.aty.springboot.admin;
+
+import java.time.Duration;
+
+/**
+ * aty.admin.polling.*配置;基础的轮询间隔沿用spring.boot.admin.monitor.status-interval和info-interval
+ */
+public class AdminPollingProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 同时进行中的status/info请求总数上限
+     */
+    private int maxConcurrency = 16;
+
+    /**
+     * 状态一直是UP且没有变化的实例,status轮询间隔逐次翻倍,最大到这个值
+     */
+    private Duration maxStatusInterval = Duration.ofMinutes(1);
+
+    /**
+     * info没有变化的实例,info轮询间隔逐次翻倍,最大到这个值
+     */
+    private Duration maxInfoInterval = Duration.ofMinutes(10);
+
+    /**
+     * 检查哪些实例到期需要轮询的频率
+     */
+    private Duration tick = Duration.ofSeconds(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Duration getMaxStatusInterval() {
+        return maxStatusInterval;
+    }
+
+    public void setMaxStatusInterval(Duration maxStatusInterval) {
+        this.maxStatusInterval = maxStatusInterval;
+    }
+
+    public Duration getMaxInfoInterval() {
+        return maxInfoInterval;
+    }
+
+    public void setMaxInfoInterval(Duration maxInfoInterval) {
+        this.maxInfoInterval = maxInfoInterval;
+    }
+
+    public Duration getTick() {
+        return tick;
+    }
+
+    public void setTick(Duration tick) {
+        this.tick = tick;
+    }
+
+    @Override
+    public String toString() {
+        return "AdminPollingProperties{" +
+                "enabled=" + enabled +
+                ", maxConcurrency=" + maxConcurrency +
+                ", maxStatusInterval=" + maxStatusInterval +
+                ", maxInfoInterval=" + maxInfoInterval +
+                ", tick=" + tick +
+                '}';
+    }
+}
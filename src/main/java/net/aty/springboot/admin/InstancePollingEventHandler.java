@@ -0,0 +1,39 @@
+package net.aty.springboot.admin;
+
+import de.codecentric.boot.admin.server.domain.events.InstanceDeregisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceEndpointsDetectedEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegisteredEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceRegistrationUpdatedEvent;
+import de.codecentric.boot.admin.server.domain.events.InstanceStatusChangedEvent;
+import de.codecentric.boot.admin.server.services.AbstractEventHandler;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+/**
+ * 把实例事件转成InstancePollingScheduler的立即轮询请求,覆盖原来两个trigger各自监听的事件
+ */
+public class InstancePollingEventHandler extends AbstractEventHandler<InstanceEvent> {
+
+    private final InstancePollingScheduler scheduler;
+
+    public InstancePollingEventHandler(Publisher<InstanceEvent> publisher, InstancePollingScheduler scheduler) {
+        super(publisher, InstanceEvent.class);
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    protected Publisher<Void> handle(Flux<InstanceEvent> publisher) {
+        return publisher.doOnNext(this::dispatch).then();
+    }
+
+    private void dispatch(InstanceEvent event) {
+        if (event instanceof InstanceRegisteredEvent || event instanceof InstanceRegistrationUpdatedEvent) {
+            scheduler.requestNow(event.getInstance());
+        } else if (event instanceof InstanceEndpointsDetectedEvent || event instanceof InstanceStatusChangedEvent) {
+            scheduler.requestInfoNow(event.getInstance());
+        } else if (event instanceof InstanceDeregisteredEvent) {
+            scheduler.forget(event.getInstance());
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package net.aty.springboot.admin;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 代替spring boot admin自带的StatusUpdateTrigger/InfoUpdateTrigger,统一调度所有实例的status和info轮询:
+ * <ul>
+ * <li>全局并发上限:所有进行中的请求数不超过maxConcurrency,其余请求在优先级队列里排队</li>
+ * <li>优先级:状态不是UP(包括刚注册还不知道状态)的实例和事件触发的请求优先</li>
+ * <li>自适应间隔:结果没有变化(status还要求是UP)时间隔逐次翻倍直到上限,一旦变化或出错立即恢复基础间隔</li>
+ * <li>请求合并:同一实例同一类请求已经在排队或执行中时,新的请求直接合并掉</li>
+ * </ul>
+ * 轮询函数返回本次结果(status字符串或者info内容),只用于和上一次比较
+ */
+public class InstancePollingScheduler implements MeterBinder {
+
+    private static final Log logger = LogFactory.getLog(InstancePollingScheduler.class);
+
+    private static final String UP = "UP";
+
+    enum Kind {
+        STATUS, INFO
+    }
+
+    private final Supplier<Flux<InstanceId>> instances;
+
+    private final Function<InstanceId, Mono<String>> statusPoll;
+
+    private final Function<InstanceId, Mono<Object>> infoPoll;
+
+    private final int maxConcurrency;
+
+    private final Duration tick;
+
+    private final long[] baseIntervals;
+
+    private final long[] maxIntervals;
+
+    private final Map<InstanceId, InstanceState> states = new ConcurrentHashMap<>();
+
+    private final PriorityBlockingQueue<PollRequest> queue = new PriorityBlockingQueue<>(64,
+            Comparator.comparingInt((PollRequest request) -> request.priority).thenComparingLong(request -> request.dueNanos));
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    private final LongAdder polls = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private Scheduler scheduler;
+
+    private Disposable ticker;
+
+    public InstancePollingScheduler(Supplier<Flux<InstanceId>> instances,
+                                    Function<InstanceId, Mono<String>> statusPoll,
+                                    Function<InstanceId, Mono<Object>> infoPoll,
+                                    int maxConcurrency, Duration tick,
+                                    Duration statusInterval, Duration maxStatusInterval,
+                                    Duration infoInterval, Duration maxInfoInterval) {
+        this.instances = instances;
+        this.statusPoll = statusPoll;
+        this.infoPoll = infoPoll;
+        this.maxConcurrency = maxConcurrency;
+        this.tick = tick;
+        this.baseIntervals = new long[]{statusInterval.toNanos(), infoInterval.toNanos()};
+        this.maxIntervals = new long[]{Math.max(statusInterval.toNanos(), maxStatusInterval.toNanos()),
+                Math.max(infoInterval.toNanos(), maxInfoInterval.toNanos())};
+    }
+
+    public void start() {
+        scheduler = Schedulers.newSingle("admin-polling");
+        ticker = Flux.interval(Duration.ZERO, tick, scheduler)
+                .concatMap(i -> Flux.defer(instances).collectList()
+                        .onErrorResume(e -> {
+                            // 取实例列表失败只跳过这一次tick,不能让整个ticker停掉
+                            logger.warn("listing instances for admin polling failed", e);
+                            return Mono.empty();
+                        }))
+                .subscribe(this::scheduleDue, e -> logger.error("admin polling stopped", e));
+    }
+
+    public void stop() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+
+    /**
+     * 注册、注册信息更新之类的事件触发立即轮询status和info,间隔恢复到基础值
+     */
+    public void requestNow(InstanceId id) {
+        requestNow(id, Kind.values());
+    }
+
+    /**
+     * 状态变化、endpoints探测完成之后只需要立即刷新info
+     */
+    public void requestInfoNow(InstanceId id) {
+        requestNow(id, Kind.INFO);
+    }
+
+    private void requestNow(InstanceId id, Kind... kinds) {
+        long now = System.nanoTime();
+        InstanceState state = states.computeIfAbsent(id, key -> new InstanceState(now));
+        for (Kind kind : kinds) {
+            PollState poll = state.polls[kind.ordinal()];
+            poll.intervalNanos = baseIntervals[kind.ordinal()];
+            poll.nextDueNanos = now;
+            if (!enqueue(id, state, kind, 0, now)) {
+                coalesced.increment();
+            }
+        }
+        drain();
+    }
+
+    public void forget(InstanceId id) {
+        states.remove(id);
+    }
+
+    /**
+     * 每个tick执行一次,包内可见方便测试直接驱动
+     */
+    void scheduleDue(List<InstanceId> current) {
+        long now = System.nanoTime();
+        Set<InstanceId> alive = new HashSet<>(current);
+        states.keySet().retainAll(alive);
+        for (InstanceId id : current) {
+            InstanceState state = states.computeIfAbsent(id, key -> new InstanceState(now));
+            int priority = UP.equals(state.polls[Kind.STATUS.ordinal()].lastResult) ? 1 : 0;
+            for (Kind kind : Kind.values()) {
+                if (now - state.polls[kind.ordinal()].nextDueNanos >= 0) {
+                    enqueue(id, state, kind, priority, now);
+                }
+            }
+        }
+        drain();
+    }
+
+    /**
+     * 已经在排队或者执行中时返回false,由这次请求合并到进行中的那次
+     */
+    private boolean enqueue(InstanceId id, InstanceState state, Kind kind, int priority, long now) {
+        if (!state.polls[kind.ordinal()].pending.compareAndSet(false, true)) {
+            return false;
+        }
+        queue.add(new PollRequest(id, kind, priority, now));
+        return true;
+    }
+
+    /**
+     * 只有一个线程在排空队列,其他线程只增加wip计数,避免同步完成的请求在doFinally里递归调用drain
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (inFlight.get() < maxConcurrency) {
+                PollRequest request = queue.poll();
+                if (request == null) {
+                    break;
+                }
+                peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                execute(request);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void execute(PollRequest request) {
+        InstanceState state = states.get(request.id);
+        if (state == null) {
+            inFlight.decrementAndGet();
+            return;
+        }
+        PollState poll = state.polls[request.kind.ordinal()];
+        // apply同步抛出的异常也要走onError和doFinally,否则inFlight和pending都释放不了
+        Mono<Object> result = Mono.defer(() -> request.kind == Kind.STATUS
+                ? statusPoll.apply(request.id).cast(Object.class) : infoPoll.apply(request.id));
+        polls.increment();
+        result.defaultIfEmpty(NoResult.NONE)
+                .doFinally(signal -> {
+                    poll.pending.set(false);
+                    inFlight.decrementAndGet();
+                    drain();
+                })
+                .subscribe(value -> onResult(request.kind, poll, value), e -> onError(request, poll, e));
+    }
+
+    private void onResult(Kind kind, PollState poll, Object value) {
+        long base = baseIntervals[kind.ordinal()];
+        boolean stable = Objects.equals(poll.lastResult, value) && (kind == Kind.INFO || UP.equals(value));
+        poll.intervalNanos = stable ? Math.min(poll.intervalNanos * 2, maxIntervals[kind.ordinal()]) : base;
+        poll.lastResult = value;
+        poll.nextDueNanos = System.nanoTime() + poll.intervalNanos;
+    }
+
+    private void onError(PollRequest request, PollState poll, Throwable e) {
+        failures.increment();
+        poll.intervalNanos = baseIntervals[request.kind.ordinal()];
+        poll.lastResult = null;
+        poll.nextDueNanos = System.nanoTime() + poll.intervalNanos;
+        logger.debug("polling " + request.kind + " of " + request.id + " failed", e);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("admin.polling.in.flight", inFlight, AtomicInteger::get).register(registry);
+        Gauge.builder("admin.polling.queued", queue, PriorityBlockingQueue::size).register(registry);
+        FunctionCounter.builder("admin.polling.requests", polls, LongAdder::sum).register(registry);
+        FunctionCounter.builder("admin.polling.coalesced", coalesced, LongAdder::sum).register(registry);
+        FunctionCounter.builder("admin.polling.failures", failures, LongAdder::sum).register(registry);
+    }
+
+    Duration currentInterval(InstanceId id, Kind kind) {
+        InstanceState state = states.get(id);
+        return state == null ? null : Duration.ofNanos(state.polls[kind.ordinal()].intervalNanos);
+    }
+
+    public long getPolls() {
+        return polls.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public int getPeakInFlight() {
+        return peakInFlight.get();
+    }
+
+    /**
+     * Mono为空时的占位结果,避免和有结果的情况混在一起比较
+     */
+    private enum NoResult {
+        NONE
+    }
+
+    private static final class PollRequest {
+
+        private final InstanceId id;
+
+        private final Kind kind;
+
+        private final int priority;
+
+        private final long dueNanos;
+
+        private PollRequest(InstanceId id, Kind kind, int priority, long dueNanos) {
+            this.id = id;
+            this.kind = kind;
+            this.priority = priority;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    private final class InstanceState {
+
+        private final PollState[] polls = new PollState[Kind.values().length];
+
+        private InstanceState(long now) {
+            for (Kind kind : Kind.values()) {
+                polls[kind.ordinal()] = new PollState(baseIntervals[kind.ordinal()], now);
+            }
+        }
+    }
+
+    private static final class PollState {
+
+        private final AtomicBoolean pending = new AtomicBoolean();
+
+        private volatile long intervalNanos;
+
+        private volatile long nextDueNanos;
+
+        private volatile Object lastResult;
+
+        private PollState(long intervalNanos, long nextDueNanos) {
+            this.intervalNanos = intervalNanos;
+            this.nextDueNanos = nextDueNanos;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package net.aty.springboot.admin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 客户端推送给admin server的一批metric增量,series和deltas一一对应,只包含发生变化的series
+ * <p>
+ * sequence在同一个instance内单调递增,服务端据此丢弃重复推送的批次
+ */
+public class MetricBatch {
+
+    private String instance;
+
+    private long sequence;
+
+    private long timestamp;
+
+    private List<String> series = new ArrayList<>();
+
+    private double[] deltas = new double[0];
+
+    public String getInstance() {
+        return instance;
+    }
+
+    public void setInstance(String instance) {
+        this.instance = instance;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public List<String> getSeries() {
+        return series;
+    }
+
+    public void setSeries(List<String> series) {
+        this.series = series;
+    }
+
+    public double[] getDeltas() {
+        return deltas;
+    }
+
+    public void setDeltas(double[] deltas) {
+        this.deltas = deltas;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricBatch{" +
+                "instance='" + instance + '\'' +
+                ", sequence=" + sequence +
+                ", series=" + series.size() +
+                '}';
+    }
+}
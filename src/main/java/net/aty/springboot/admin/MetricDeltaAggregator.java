@@ -0,0 +1,172 @@
+package net.aty.springboot.admin;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * admin server端的内存聚合:按series累加各个instance推送的增量,得到每个instance的当前值和所有instance的合计
+ * <p>
+ * 同一个instance的批次按sequence去重,重复或者过期的批次直接丢弃;不同instance之间互不加锁
+ * <p>
+ * instance每次重启都换一个id(MetricPushConfiguration),超过expireAfter没有推送的instance会被移除,
+ * 它累加到各个series上的值也从合计里减掉;检查在ingest和snapshot时顺带进行
+ */
+public class MetricDeltaAggregator {
+
+    private final long expireAfterMillis;
+
+    private final AtomicLong nextExpiryCheck = new AtomicLong();
+
+    private final Map<String, InstanceState> instances = new ConcurrentHashMap<>();
+
+    private final Map<String, SeriesState> series = new ConcurrentHashMap<>();
+
+    private final LongAdder accepted = new LongAdder();
+
+    private final LongAdder duplicated = new LongAdder();
+
+    private final LongAdder expired = new LongAdder();
+
+    public MetricDeltaAggregator(Duration expireAfter) {
+        this.expireAfterMillis = expireAfter.toMillis();
+    }
+
+    /**
+     * @return 批次被接受返回true,重复批次返回false
+     * @throws IllegalArgumentException 批次不完整(没有instance、series和deltas个数不一致等),此时不改变任何状态
+     */
+    public boolean ingest(MetricBatch batch) {
+        validate(batch);
+        long now = System.currentTimeMillis();
+        expireIfDue(now);
+        while (true) {
+            InstanceState instance = instances.computeIfAbsent(batch.getInstance(), id -> new InstanceState());
+            synchronized (instance) {
+                if (instance.expired) {
+                    // 刚被移除,重新取一次会创建新的状态
+                    continue;
+                }
+                if (batch.getSequence() <= instance.lastSequence) {
+                    duplicated.increment();
+                    return false;
+                }
+                instance.lastSequence = batch.getSequence();
+                instance.lastSeen = now;
+                double[] deltas = batch.getDeltas();
+                for (int i = 0; i < deltas.length; i++) {
+                    SeriesState state = series.computeIfAbsent(batch.getSeries().get(i), key -> new SeriesState());
+                    state.total.add(deltas[i]);
+                    state.byInstance.computeIfAbsent(batch.getInstance(), id -> new DoubleAdder()).add(deltas[i]);
+                }
+            }
+            accepted.increment();
+            return true;
+        }
+    }
+
+    private static void validate(MetricBatch batch) {
+        if (batch.getInstance() == null || batch.getInstance().isEmpty()) {
+            throw new IllegalArgumentException("batch without instance");
+        }
+        if (batch.getSeries() == null || batch.getDeltas() == null) {
+            throw new IllegalArgumentException("batch " + batch.getSequence() + " of " + batch.getInstance()
+                    + " without series or deltas");
+        }
+        if (batch.getSeries().size() != batch.getDeltas().length) {
+            throw new IllegalArgumentException("batch " + batch.getSequence() + " of " + batch.getInstance() + " has "
+                    + batch.getSeries().size() + " series but " + batch.getDeltas().length + " deltas");
+        }
+        if (batch.getSeries().contains(null)) {
+            throw new IllegalArgumentException("batch " + batch.getSequence() + " of " + batch.getInstance()
+                    + " has a null series");
+        }
+    }
+
+    private void expireIfDue(long now) {
+        long next = nextExpiryCheck.get();
+        // 最多每十分之一个expireAfter检查一次,并且同一时刻只有一个线程在检查
+        if (now >= next && nextExpiryCheck.compareAndSet(next, now + Math.max(1, expireAfterMillis / 10))) {
+            expire(now);
+        }
+    }
+
+    /**
+     * 移除lastSeen早于now - expireAfter的instance,并从各个series的合计里减掉它的值
+     */
+    void expire(long now) {
+        instances.forEach((id, instance) -> {
+            synchronized (instance) {
+                if (instance.expired || now - instance.lastSeen < expireAfterMillis) {
+                    return;
+                }
+                // 持有instance的锁,同一个instance的ingest不会同时在累加
+                instance.expired = true;
+                instances.remove(id, instance);
+                for (SeriesState state : series.values()) {
+                    DoubleAdder contribution = state.byInstance.remove(id);
+                    if (contribution != null) {
+                        state.total.add(-contribution.sum());
+                    }
+                }
+            }
+            expired.increment();
+        });
+    }
+
+    public Map<String, Double> totals() {
+        Map<String, Double> result = new TreeMap<>();
+        series.forEach((key, state) -> result.put(key, state.total.sum()));
+        return result;
+    }
+
+    public Map<String, Object> snapshot() {
+        expireIfDue(System.currentTimeMillis());
+        Map<String, Object> seriesView = new TreeMap<>();
+        series.forEach((key, state) -> {
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("total", state.total.sum());
+            Map<String, Double> byInstance = new TreeMap<>();
+            state.byInstance.forEach((instance, value) -> byInstance.put(instance, value.sum()));
+            view.put("instances", byInstance);
+            seriesView.put(key, view);
+        });
+        Map<String, Object> instanceView = new TreeMap<>();
+        instances.forEach((id, state) -> {
+            synchronized (state) {
+                Map<String, Object> view = new LinkedHashMap<>();
+                view.put("lastSequence", state.lastSequence);
+                view.put("lastSeen", state.lastSeen);
+                instanceView.put(id, view);
+            }
+        });
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("instances", instanceView);
+        result.put("acceptedBatches", accepted.sum());
+        result.put("duplicatedBatches", duplicated.sum());
+        result.put("expiredInstances", expired.sum());
+        result.put("series", seriesView);
+        return result;
+    }
+
+    private static final class InstanceState {
+
+        private long lastSequence;
+
+        private long lastSeen;
+
+        private boolean expired;
+    }
+
+    private static final class SeriesState {
+
+        private final DoubleAdder total = new DoubleAdder();
+
+        private final Map<String, DoubleAdder> byInstance = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,79 @@
+package net.aty.springboot.admin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 记录已经被服务端确认的取值,根据当前取值计算下一批增量
+ * <p>
+ * 一个批次在被确认之前会原样重发(sequence不变),服务端按sequence去重,
+ * 所以推送超时但实际已经被处理的情况也不会重复累加;确认之后基线才前移
+ * <p>
+ * 非线程安全,由同一个采样线程调用
+ */
+public class MetricDeltaTracker {
+
+    private final String instance;
+
+    private final Map<String, Double> acknowledged = new HashMap<>();
+
+    private long sequence;
+
+    private MetricBatch pending;
+
+    private Map<String, Double> pendingValues;
+
+    public MetricDeltaTracker(String instance) {
+        this.instance = instance;
+    }
+
+    /**
+     * 有未确认的批次时返回该批次;否则根据current计算新的批次,没有任何变化时返回null
+     */
+    public MetricBatch nextBatch(Map<String, Double> current) {
+        if (pending != null) {
+            return pending;
+        }
+        List<String> series = new ArrayList<>();
+        double[] deltas = new double[current.size()];
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            double previous = acknowledged.getOrDefault(entry.getKey(), 0.0);
+            double delta = entry.getValue() - previous;
+            if (delta != 0 && !Double.isNaN(delta)) {
+                deltas[series.size()] = delta;
+                series.add(entry.getKey());
+            }
+        }
+        if (series.isEmpty()) {
+            return null;
+        }
+        MetricBatch batch = new MetricBatch();
+        batch.setInstance(instance);
+        batch.setSequence(++sequence);
+        batch.setTimestamp(System.currentTimeMillis());
+        batch.setSeries(series);
+        batch.setDeltas(Arrays.copyOf(deltas, series.size()));
+        pending = batch;
+        pendingValues = new HashMap<>(current);
+        return batch;
+    }
+
+    public void acknowledge() {
+        if (pending == null) {
+            return;
+        }
+        List<String> series = pending.getSeries();
+        for (String key : series) {
+            acknowledged.put(key, pendingValues.get(key));
+        }
+        pending = null;
+        pendingValues = null;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+}
@@ -0,0 +1,39 @@
+package net.aty.springboot.admin;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * admin server的metric接收端点,和@EnableAdminServer在同一个应用里
+ */
+@RestController
+public class MetricIngestController {
+
+    private final MetricDeltaAggregator aggregator;
+
+    public MetricIngestController(MetricDeltaAggregator aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    @PostMapping("/ingest/metrics")
+    public ResponseEntity<Void> ingest(@RequestBody MetricBatch batch) {
+        try {
+            aggregator.ingest(batch);
+        } catch (IllegalArgumentException e) {
+            // 不完整的批次没有被处理,sequence也没有被占用
+            return ResponseEntity.badRequest().build();
+        }
+        // 重复批次也返回成功,客户端据此确认并前移基线
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping("/ingest/metrics")
+    public Map<String, Object> aggregated() {
+        return aggregator.snapshot();
+    }
+}
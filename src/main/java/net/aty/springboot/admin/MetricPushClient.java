@@ -0,0 +1,129 @@
+package net.aty.springboot.admin;
+
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import net.aty.springboot.actuator.MetricSampler;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 客户端:定期把本实例的metric增量推送给admin server,代替admin server逐个轮询actuator
+ * <p>
+ * series的格式是name{tag=value,...}:statistic,一个meter的每个measurement是一个series
+ * <p>
+ * 采样线程上只读取meter、计算批次,POST交给单独的metric-push线程,admin server慢或者不可用时不会拖住
+ * 其他数据源的采样。同一时刻最多一个推送:上一个还没结束时跳过这次采样,期间的变化在确认之后合并进下一个批次
+ */
+public class MetricPushClient implements MetricSampler, Closeable {
+
+    private static final Log logger = LogFactory.getLog(MetricPushClient.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final RestTemplate restTemplate;
+
+    private final MetricPushProperties properties;
+
+    // 只在没有推送进行中时由采样线程访问,推送线程确认后才放开inFlight
+    private final MetricDeltaTracker tracker;
+
+    private final AtomicBoolean inFlight = new AtomicBoolean();
+
+    private final ExecutorService pusher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "metric-push");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MetricPushClient(MeterRegistry meterRegistry, RestTemplate restTemplate,
+                            MetricPushProperties properties, String instance) {
+        this.meterRegistry = meterRegistry;
+        this.restTemplate = restTemplate;
+        this.properties = properties;
+        this.tracker = new MetricDeltaTracker(instance);
+    }
+
+    @Override
+    public Duration samplingInterval() {
+        return properties.getInterval();
+    }
+
+    @Override
+    public void sample() {
+        if (!inFlight.compareAndSet(false, true)) {
+            return;
+        }
+        MetricBatch batch = tracker.nextBatch(currentValues());
+        if (batch == null) {
+            inFlight.set(false);
+            return;
+        }
+        try {
+            pusher.execute(() -> push(batch));
+        } catch (RejectedExecutionException e) {
+            // 已经关闭
+            inFlight.set(false);
+        }
+    }
+
+    private void push(MetricBatch batch) {
+        try {
+            restTemplate.postForEntity(properties.getUrl() + "/ingest/metrics", batch, Void.class);
+            tracker.acknowledge();
+        } catch (RestClientException e) {
+            // 下次采样时原样重发这个批次
+            logger.warn("push " + batch + " failed: " + e.getMessage());
+        } finally {
+            inFlight.set(false);
+        }
+    }
+
+    /**
+     * 停止推送线程,正在进行的推送由RestTemplate的超时结束
+     */
+    @Override
+    public void close() {
+        pusher.shutdownNow();
+    }
+
+    Map<String, Double> currentValues() {
+        Map<String, Double> values = new HashMap<>();
+        for (Meter meter : meterRegistry.getMeters()) {
+            Meter.Id id = meter.getId();
+            if (!id.getName().startsWith(properties.getPrefix())) {
+                continue;
+            }
+            String key = seriesKey(id);
+            for (Measurement measurement : meter.measure()) {
+                values.put(key + ":" + measurement.getStatistic().getTagValueRepresentation(), measurement.getValue());
+            }
+        }
+        return values;
+    }
+
+    private static String seriesKey(Meter.Id id) {
+        StringBuilder key = new StringBuilder(id.getName()).append('{');
+        boolean first = true;
+        for (Tag tag : id.getTagsAsIterable()) {
+            if (!first) {
+                key.append(',');
+            }
+            key.append(tag.getKey()).append('=').append(tag.getValue());
+            first = false;
+        }
+        return key.append('}').toString();
+    }
+}
@@ -0,0 +1,40 @@
+package net.aty.springboot.admin;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.UUID;
+
+@Configuration
+public class MetricPushConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "aty.metrics.push")
+    public MetricPushProperties metricPushProperties() {
+        return new MetricPushProperties();
+    }
+
+    @Bean
+    public MetricDeltaAggregator metricDeltaAggregator(MetricPushProperties properties) {
+        return new MetricDeltaAggregator(properties.getInterval().multipliedBy(properties.getExpireIntervals()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "aty.metrics.push", name = "enabled", matchIfMissing = true)
+    public MetricPushClient metricPushClient(MeterRegistry meterRegistry, RestTemplateBuilder restTemplateBuilder,
+                                             MetricPushProperties properties, Environment environment) {
+        // 重启后sequence从头开始,所以instance里带上随机后缀,避免新批次被服务端当成重复批次丢弃
+        String instance = environment.getProperty("spring.application.name", "application")
+                + ":" + environment.getProperty("server.port", "8080")
+                + ":" + UUID.randomUUID().toString().substring(0, 8);
+        return new MetricPushClient(meterRegistry,
+                restTemplateBuilder.setConnectTimeout(Duration.ofSeconds(2)).setReadTimeout(Duration.ofSeconds(5)).build(),
+                properties, instance);
+    }
+}
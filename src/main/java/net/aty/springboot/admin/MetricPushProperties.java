@@ -0,0 +1,79 @@
+package net.aty.springboot.admin;
+
+import java.time.Duration;
+
+/**
+ * aty.metrics.push.*配置
+ */
+public class MetricPushProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * admin server地址,批次推送到{url}/ingest/metrics
+     */
+    private String url;
+
+    private Duration interval = Duration.ofSeconds(10);
+
+    /**
+     * 服务端:instance超过这么多个interval没有推送就被移除,它的值从合计里减掉
+     */
+    private int expireIntervals = 6;
+
+    /**
+     * 只推送名字以此开头的meter
+     */
+    private String prefix = "game.order";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public int getExpireIntervals() {
+        return expireIntervals;
+    }
+
+    public void setExpireIntervals(int expireIntervals) {
+        this.expireIntervals = expireIntervals;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricPushProperties{" +
+                "enabled=" + enabled +
+                ", url='" + url + '\'' +
+                ", interval=" + interval +
+                ", expireIntervals=" + expireIntervals +
+                ", prefix='" + prefix + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package net.aty.springboot.binder;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationProperty;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySource;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * 生成的binder读取属性和做类型转换的入口:属性查找走ConfigurationPropertySource(和Binder一样支持宽松绑定),
+ * 字符串里的占位符交给environment解析,类型转换用ApplicationConversionService
+ */
+public final class CompiledBindSource {
+
+    private final ConfigurableEnvironment environment;
+
+    private final Iterable<ConfigurationPropertySource> sources;
+
+    private final ConversionService conversionService;
+
+    private volatile Binder binder;
+
+    public CompiledBindSource(ConfigurableEnvironment environment) {
+        this.environment = environment;
+        this.sources = ConfigurationPropertySources.get(environment);
+        this.conversionService = ApplicationConversionService.getSharedInstance();
+    }
+
+    public Object get(ConfigurationPropertyName name) {
+        for (ConfigurationPropertySource source : sources) {
+            ConfigurationProperty property = source.getConfigurationProperty(name);
+            if (property != null) {
+                Object value = property.getValue();
+                return value instanceof String ? environment.resolvePlaceholders((String) value) : value;
+            }
+        }
+        return null;
+    }
+
+    public <T> T convert(Object value, Class<T> type) {
+        return conversionService.convert(value, type);
+    }
+
+    /**
+     * 没有生成binder的类型退回到反射的Binder
+     */
+    Binder binder() {
+        Binder current = binder;
+        if (current == null) {
+            current = Binder.get(environment);
+            binder = current;
+        }
+        return current;
+    }
+}
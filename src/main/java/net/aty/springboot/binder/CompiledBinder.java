@@ -0,0 +1,19 @@
+package net.aty.springboot.binder;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注需要在编译期生成binder的配置类,由CompiledBinderProcessor生成{@code 外部类_类名Binder},
+ * 把属性名直接对应到setter调用,绑定时不再反射分析JavaBean
+ * <p>
+ * 要求类是public的、有public无参构造函数;只处理public的单参数setter
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface CompiledBinder {
+}
@@ -0,0 +1,183 @@
+package net.aty.springboot.binder;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * 为@CompiledBinder标注的类生成GeneratedBinder实现:每个setter对应一次属性查找和一次直接调用,
+ * 参数类型也标注了@CompiledBinder时递归调用对应的生成binder,其他类型交给ConversionService转换
+ * <p>
+ * 属性名按Spring的规范形式生成(setFirstName对应first-name),宽松绑定由ConfigurationPropertySource负责;
+ * 泛型参数按擦除后的类型转换。和Binder一样,转换结果为null(例如空字符串转成int)时不调用setter
+ */
+@SupportedAnnotationTypes("net.aty.springboot.binder.CompiledBinder")
+public class CompiledBinderProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS || !element.getModifiers().contains(Modifier.PUBLIC)) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "@CompiledBinder requires a public class", element);
+                    continue;
+                }
+                try {
+                    generate((TypeElement) element);
+                } catch (IOException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "Cannot write binder: " + e.getMessage(), element);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String binderName = CompiledBinders.binderClassName(binaryName);
+        String simpleBinderName = binderName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+        String typeName = type.getQualifiedName().toString();
+
+        StringBuilder body = new StringBuilder();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            String name = method.getSimpleName().toString();
+            if (!name.startsWith("set") || name.length() == 3 || method.getParameters().size() != 1
+                    || !method.getModifiers().contains(Modifier.PUBLIC)
+                    || method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            String property = propertyName(name.substring(3));
+            TypeMirror parameter = method.getParameters().get(0).asType();
+            TypeElement nested = binderType(parameter);
+            if (nested != null) {
+                String nestedBinder = CompiledBinders.binderClassName(
+                        processingEnv.getElementUtils().getBinaryName(nested).toString());
+                body.append("        ").append(nested.getQualifiedName()).append(" ").append(variable(property))
+                        .append(" = new ").append(nestedBinder).append("().bind(source, prefix.append(\"")
+                        .append(property).append("\"));\n")
+                        .append("        if (").append(variable(property)).append(" != null) {\n")
+                        .append("            target = target != null ? target : new ").append(typeName).append("();\n")
+                        .append("            target.").append(name).append("(").append(variable(property)).append(");\n")
+                        .append("        }\n");
+            } else {
+                String rawType = rawType(parameter);
+                body.append("        value = source.get(prefix.append(\"").append(property).append("\"));\n")
+                        .append("        if (value != null) {\n")
+                        .append("            value = source.convert(value, ").append(conversionType(parameter)).append(".class);\n")
+                        .append("        }\n")
+                        .append("        if (value != null) {\n")
+                        .append("            target = target != null ? target : new ").append(typeName).append("();\n")
+                        .append("            target.").append(name).append("((").append(rawType).append(") value);\n")
+                        .append("        }\n");
+            }
+        }
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(binderName, type).openWriter()) {
+            if (!packageName.isEmpty()) {
+                writer.write("package " + packageName + ";\n\n");
+            }
+            writer.write("/**\n * Generated by CompiledBinderProcessor for " + typeName + ", do not edit.\n */\n");
+            writer.write("public final class " + simpleBinderName
+                    + " implements net.aty.springboot.binder.GeneratedBinder<" + typeName + "> {\n\n");
+            writer.write("    @Override\n");
+            writer.write("    public " + typeName + " bind(net.aty.springboot.binder.CompiledBindSource source,\n"
+                    + "            org.springframework.boot.context.properties.source.ConfigurationPropertyName prefix) {\n");
+            writer.write("        " + typeName + " target = null;\n");
+            writer.write("        Object value;\n");
+            writer.write(body.toString());
+            writer.write("        return target;\n");
+            writer.write("    }\n}\n");
+        }
+    }
+
+    private TypeElement binderType(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        Element element = ((DeclaredType) type).asElement();
+        return element.getAnnotation(CompiledBinder.class) != null ? (TypeElement) element : null;
+    }
+
+    private String rawType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return type.toString();
+        }
+        if (type.getKind() == TypeKind.ARRAY) {
+            return processingEnv.getTypeUtils().erasure(type).toString();
+        }
+        return ((TypeElement) processingEnv.getTypeUtils().asElement(type)).getQualifiedName().toString();
+    }
+
+    /**
+     * 基本类型转换成包装类型:ConversionService转换到基本类型时不能返回null,转换结果为空时会直接抛异常
+     */
+    private String conversionType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return rawType(type);
+    }
+
+    /**
+     * FirstName -> first-name;连续的大写字母是一个单词:URL -> url,HttpURL -> http-url,URLPath -> url-path
+     */
+    static String propertyName(String suffix) {
+        StringBuilder name = new StringBuilder(suffix.length() + 4);
+        for (int i = 0; i < suffix.length(); i++) {
+            char c = suffix.charAt(i);
+            if (Character.isUpperCase(c)) {
+                boolean afterLower = i > 0 && !Character.isUpperCase(suffix.charAt(i - 1));
+                // 大写串的最后一个字母后面跟着小写时,它是下一个单词的开头
+                boolean startsWord = i > 0 && i + 1 < suffix.length() && Character.isUpperCase(suffix.charAt(i - 1))
+                        && Character.isLowerCase(suffix.charAt(i + 1));
+                if (afterLower || startsWord) {
+                    name.append('-');
+                }
+                name.append(Character.toLowerCase(c));
+            } else {
+                name.append(c);
+            }
+        }
+        return name.toString();
+    }
+
+    private static String variable(String property) {
+        StringBuilder name = new StringBuilder();
+        boolean upper = false;
+        for (int i = 0; i < property.length(); i++) {
+            char c = property.charAt(i);
+            if (c == '-') {
+                upper = true;
+            } else {
+                name.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return name.append("Value").toString();
+    }
+}
@@ -0,0 +1,51 @@
+package net.aty.springboot.binder;
+
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+
+/**
+ * 按类型查找编译期生成的binder,找不到时退回到Spring的Binder
+ */
+public final class CompiledBinders {
+
+    private static final ClassValue<GeneratedBinder<?>> BINDERS = new ClassValue<GeneratedBinder<?>>() {
+        @Override
+        protected GeneratedBinder<?> computeValue(Class<?> type) {
+            try {
+                Class<?> binderClass = Class.forName(binderClassName(type.getName()), true, type.getClassLoader());
+                return (GeneratedBinder<?>) binderClass.getDeclaredConstructor().newInstance();
+            } catch (ClassNotFoundException e) {
+                return null;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create generated binder for " + type.getName(), e);
+            }
+        }
+    };
+
+    private CompiledBinders() {
+    }
+
+    /**
+     * net.aty.Outer$Inner对应的binder是net.aty.Outer_InnerBinder
+     */
+    static String binderClassName(String binaryName) {
+        return binaryName.replace('$', '_') + "Binder";
+    }
+
+    public static boolean hasGeneratedBinder(Class<?> type) {
+        return BINDERS.get(type) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> GeneratedBinder<T> binderFor(Class<T> type) {
+        return (GeneratedBinder<T>) BINDERS.get(type);
+    }
+
+    public static <T> T bind(CompiledBindSource source, String prefix, Class<T> type) {
+        GeneratedBinder<T> binder = binderFor(type);
+        if (binder == null) {
+            return source.binder().bind(prefix, Bindable.of(type)).orElse(null);
+        }
+        return binder.bind(source, ConfigurationPropertyName.of(prefix));
+    }
+}
@@ -0,0 +1,16 @@
+package net.aty.springboot.binder;
+
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+
+/**
+ * CompiledBinderProcessor生成的binder实现这个接口
+ *
+ * @param <T> 配置类
+ */
+public interface GeneratedBinder<T> {
+
+    /**
+     * prefix下一个属性都没有时返回null,和Binder的行为一致
+     */
+    T bind(CompiledBindSource source, ConfigurationPropertyName prefix);
+}
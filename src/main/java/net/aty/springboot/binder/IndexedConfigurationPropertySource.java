@@ -0,0 +1,128 @@
+package net.aty.springboot.binder;
+
+import org.springframework.boot.context.properties.source.ConfigurationProperty;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName.Form;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyState;
+import org.springframework.boot.context.properties.source.IterableConfigurationPropertySource;
+import org.springframework.boot.origin.PropertySourceOrigin;
+import org.springframework.core.env.EnumerablePropertySource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 在EnumerablePropertySource的属性名上建一棵前缀树,按名字查找和containsDescendantOf都只和名字的层数有关
+ * <p>
+ * Binder对普通的可枚举属性源判断containsDescendantOf时要遍历全部属性名,绑定aty.person[0..N]这种列表时
+ * 每个元素都要来一遍,整体是O(N^2);换成这个属性源后绑定只和匹配的key数量成线性关系。
+ * 属性源的内容在构造时固定下来,适合ResourcePropertySource这种加载之后不再变化的属性文件
+ * <pre>
+ * Binder binder = new Binder(IndexedConfigurationPropertySource.from(resourcePropertySource));
+ * List&lt;Person&gt; persons = binder.bind("aty.person", Bindable.listOf(Person.class)).get();
+ * </pre>
+ */
+public class IndexedConfigurationPropertySource implements IterableConfigurationPropertySource {
+
+    private final EnumerablePropertySource<?> propertySource;
+
+    private final IterableConfigurationPropertySource standard;
+
+    private final Node root = new Node();
+
+    private final List<ConfigurationPropertyName> names;
+
+    private IndexedConfigurationPropertySource(EnumerablePropertySource<?> propertySource) {
+        this.propertySource = propertySource;
+        // 属性名到ConfigurationPropertyName的宽松转换(驼峰、大写、下划线)沿用标准属性源的结果,绑定出来的map key也一样
+        this.standard = (IterableConfigurationPropertySource) ConfigurationPropertySources.from(propertySource)
+                .iterator().next();
+        List<ConfigurationPropertyName> names = new ArrayList<>();
+        standard.stream().forEach(name -> {
+            if (name.isEmpty()) {
+                return;
+            }
+            Node node = root;
+            for (int i = 0; i < name.getNumberOfElements(); i++) {
+                node = node.child(name.getElement(i, Form.UNIFORM));
+            }
+            if (node.name == null) {
+                node.name = name;
+                String propertyName = name.toString();
+                node.propertyName = propertySource.containsProperty(propertyName) ? propertyName : null;
+                names.add(name);
+            }
+        });
+        this.names = Collections.unmodifiableList(names);
+    }
+
+    public static IndexedConfigurationPropertySource from(EnumerablePropertySource<?> propertySource) {
+        return new IndexedConfigurationPropertySource(propertySource);
+    }
+
+    private Node find(ConfigurationPropertyName name) {
+        Node node = root;
+        for (int i = 0; i < name.getNumberOfElements() && node != null; i++) {
+            node = node.children.get(name.getElement(i, Form.UNIFORM));
+        }
+        return node;
+    }
+
+    @Override
+    public ConfigurationProperty getConfigurationProperty(ConfigurationPropertyName name) {
+        Node node = find(name);
+        if (node == null || node.name == null) {
+            return null;
+        }
+        if (node.propertyName == null) {
+            // 名字转回字符串对不上原来的key时交给标准属性源查找,只有存在的名字才会走到这里
+            return standard.getConfigurationProperty(node.name);
+        }
+        Object value = propertySource.getProperty(node.propertyName);
+        return value == null ? null
+                : new ConfigurationProperty(name, value, PropertySourceOrigin.get(propertySource, node.propertyName));
+    }
+
+    @Override
+    public ConfigurationPropertyState containsDescendantOf(ConfigurationPropertyName name) {
+        Node node = find(name);
+        return node != null && !node.children.isEmpty() ? ConfigurationPropertyState.PRESENT
+                : ConfigurationPropertyState.ABSENT;
+    }
+
+    @Override
+    public Stream<ConfigurationPropertyName> stream() {
+        return names.stream();
+    }
+
+    @Override
+    public Object getUnderlyingSource() {
+        return propertySource;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexedConfigurationPropertySource{" + propertySource.getName() + ", " + names.size() + " names}";
+    }
+
+    private static final class Node {
+
+        private Map<String, Node> children = Collections.emptyMap();
+
+        private ConfigurationPropertyName name;
+
+        private String propertyName;
+
+        private Node child(String element) {
+            if (children.isEmpty()) {
+                children = new HashMap<>(4);
+            }
+            return children.computeIfAbsent(element, key -> new Node());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package net.aty.springboot.core;
 
+import net.aty.springboot.startup.ParallelInit;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +10,7 @@ import javax.sound.midi.Soundbank;
 import java.util.Optional;
 
 
+@ParallelInit
 @Component
 public class RealService implements InitializingBean {
 
@@ -1,15 +1,24 @@
 package net.aty.springboot.core;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import net.aty.springboot.binder.CompiledBindSource;
+import net.aty.springboot.binder.CompiledBinder;
+import net.aty.springboot.binder.CompiledBinders;
+import net.aty.springboot.binder.IndexedConfigurationPropertySource;
+import net.aty.springboot.export.ConfigExporter;
+import net.aty.springboot.snapshot.SnapshotPropertySourceFactory;
 import org.springframework.boot.context.properties.bind.Bindable;
 import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.EnumerablePropertySource;
 import org.springframework.core.env.StandardEnvironment;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.util.List;
 
 public class SelfPropertyBinder {
 
+    @CompiledBinder
     public static class Address {
         private String country;
         private String province;
@@ -31,6 +40,7 @@ public class SelfPropertyBinder {
         }
     }
 
+    @CompiledBinder
     public static class Person {
         private int id;
         private String name;
@@ -63,14 +73,29 @@ public class SelfPropertyBinder {
 
     public static void main(String[] args) throws Exception {
         Resource resource = new ClassPathResource("bind.properties");
-        ResourcePropertySource resourcePropertySource = new ResourcePropertySource(resource);
+        // 有构建时生成的bind.properties.snap时直接加载快照,否则和原来一样解析文本
+        EnumerablePropertySource<?> propertySource = SnapshotPropertySourceFactory.load(resource);
 
         StandardEnvironment environment = new StandardEnvironment();
-        environment.getPropertySources().addLast(resourcePropertySource);
+        environment.getPropertySources().addLast(propertySource);
+
+        // jackson,每个类型的ObjectWriter只创建一次,直接写到输出流
+        ConfigExporter exporter = new ConfigExporter(new ObjectMapper());
 
         Binder binder = Binder.get(environment);
         Person person = binder.bind("aty.person", Bindable.of(Person.class)).get();
-        // jackson
-        System.out.println(new ObjectMapper().writeValueAsString(person));
+        exporter.write(System.out, person);
+        System.out.println();
+
+        // 编译期生成的SelfPropertyBinder_PersonBinder,直接调用setter
+        Person compiled = CompiledBinders.bind(new CompiledBindSource(environment), "aty.person", Person.class);
+        exporter.write(System.out, compiled);
+        System.out.println();
+
+        // 列表绑定,属性名建好前缀树后每个元素的查找只和名字的层数有关
+        Binder indexedBinder = new Binder(IndexedConfigurationPropertySource.from(propertySource));
+        List<Person> persons = indexedBinder.bind("aty.persons", Bindable.listOf(Person.class)).get();
+        exporter.writeArray(System.out, persons);
+        System.out.println();
     }
 }
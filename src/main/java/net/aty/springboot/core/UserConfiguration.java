@@ -1,14 +1,17 @@
 package net.aty.springboot.core;
 
+import net.aty.springboot.snapshot.SnapshotPropertySourceFactory;
 import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.ClassPathResource;
 
 @Configuration
-@PropertySource("classpath:user.properties")
+@PropertySource(value = "classpath:user.properties", factory = SnapshotPropertySourceFactory.class)
 @EnableConfigurationProperties(RedisProperties.class)
 public class UserConfiguration {
 
@@ -17,4 +20,14 @@ public class UserConfiguration {
     public UserProperties userProperties() {
         return new UserProperties();
     }
+
+    /**
+     * aty.user.reload.watch=false时不监听文件,只能手动reload();重新加载的值也会写回userProperties这个单例
+     */
+    @Bean
+    public UserPropertiesReloader userPropertiesReloader(ConfigurableEnvironment environment, UserProperties userProperties) {
+        boolean watch = environment.getProperty("aty.user.reload.watch", Boolean.class, true);
+        return new UserPropertiesReloader(environment, new ClassPathResource("user.properties"), "user.aty",
+                watch, userProperties);
+    }
 }
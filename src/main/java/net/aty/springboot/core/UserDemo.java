@@ -1,20 +1,26 @@
 package net.aty.springboot.core;
 
+import net.aty.springboot.startup.ParallelInit;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.stereotype.Component;
 
+@ParallelInit
 @Component
 public class UserDemo implements InitializingBean {
     @Autowired
     private UserProperties userProperties;
     @Autowired
+    private UserPropertiesReloader userPropertiesReloader;
+    @Autowired
     private RedisProperties redisProperties;
 
     @Override
     public void afterPropertiesSet() throws Exception {
         System.out.println("userProperties..." + userProperties);
+        // 修改user.properties之后current()拿到的是重新绑定的值
+        System.out.println("userProperties snapshot..." + userPropertiesReloader.current());
         System.out.println("redisProperties..." + redisProperties);
     }
 }
@@ -0,0 +1,159 @@
+package net.aty.springboot.core;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * user.properties修改后重新绑定user.aty,不刷新context也不需要@RefreshScope代理:
+ * 重新加载的属性源替换掉environment里原来的那个,绑定出新的UserProperties后转成不可变的UserPropertiesSnapshot,
+ * 通过一个volatile字段整体替换。读取方调用current()只有一次volatile读,没有锁
+ * <p>
+ * 新绑定的值同时拷贝到启动时注入的那个UserProperties单例上,注入它的地方(比如/config/export)也能看到新值;
+ * 单例上的字段是逐个写的,需要id和name来自同一次加载的读取方要用current()
+ * <p>
+ * 属性文件在文件系统上时(比如target/classes)用WatchService监听所在目录,打在jar里的文件只能手动调用reload()。
+ * 文件最好整体替换(写临时文件再rename),加载失败时保留原来的快照
+ */
+public class UserPropertiesReloader implements InitializingBean, DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(UserPropertiesReloader.class);
+
+    /**
+     * 编辑器保存时经常连着触发好几次修改事件,安静这么久之后才重新加载
+     */
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    private final ConfigurableEnvironment environment;
+
+    private final Resource resource;
+
+    private final String prefix;
+
+    private final boolean watch;
+
+    private final String sourceName;
+
+    private final UserProperties bean;
+
+    private final Object reloadLock = new Object();
+
+    private volatile UserPropertiesSnapshot current;
+
+    private WatchService watchService;
+
+    private Thread watcher;
+
+    public UserPropertiesReloader(ConfigurableEnvironment environment, Resource resource, String prefix,
+                                  boolean watch, UserProperties initial) {
+        this.environment = environment;
+        this.resource = resource;
+        this.prefix = prefix;
+        this.watch = watch;
+        // 和@PropertySource没有指定name时的属性源名字一致,重新加载时替换掉它
+        this.sourceName = resource.getDescription();
+        this.bean = initial;
+        this.current = UserPropertiesSnapshot.of(initial);
+    }
+
+    public UserPropertiesSnapshot current() {
+        return current;
+    }
+
+    /**
+     * 重新读取属性文件并绑定,多个reload之间串行,不影响读取方
+     */
+    public UserPropertiesSnapshot reload() throws IOException {
+        synchronized (reloadLock) {
+            ResourcePropertySource propertySource = new ResourcePropertySource(sourceName, resource);
+            MutablePropertySources propertySources = environment.getPropertySources();
+            if (propertySources.contains(sourceName)) {
+                propertySources.replace(sourceName, propertySource);
+            } else {
+                propertySources.addLast(propertySource);
+            }
+            UserProperties properties = Binder.get(environment).bind(prefix, UserProperties.class)
+                    .orElseGet(UserProperties::new);
+            UserPropertiesSnapshot snapshot = UserPropertiesSnapshot.of(properties);
+            current = snapshot;
+            // 整体拷贝而不是在原对象上绑定,文件里删掉的属性也会恢复成默认值
+            BeanUtils.copyProperties(properties, bean);
+            return snapshot;
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (!watch) {
+            return;
+        }
+        if (!resource.isFile()) {
+            logger.info(resource.getDescription() + " is not a file, reload it by calling reload()");
+            return;
+        }
+        Path file = resource.getFile().toPath().toAbsolutePath();
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        watcher = new Thread(() -> watch(file.getFileName()), "user-properties-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch(Path fileName) {
+        try {
+            while (true) {
+                if (!changed(watchService.take(), fileName)) {
+                    continue;
+                }
+                WatchKey next;
+                while ((next = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed(next, fileName);
+                }
+                try {
+                    logger.info("reloaded " + prefix + ": " + reload());
+                } catch (Exception e) {
+                    logger.warn("Failed to reload " + resource.getDescription() + ", keep " + current, e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // destroy()
+        }
+    }
+
+    private static boolean changed(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= fileName.equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (watcher != null) {
+            watcher.join(TimeUnit.SECONDS.toMillis(1));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package net.aty.springboot.core;
+
+/**
+ * UserProperties某一时刻的不可变副本,由UserPropertiesReloader整体替换,读到的id和name一定来自同一次加载
+ */
+public final class UserPropertiesSnapshot {
+
+    private final int id;
+
+    private final String name;
+
+    public UserPropertiesSnapshot(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public static UserPropertiesSnapshot of(UserProperties properties) {
+        return new UserPropertiesSnapshot(properties.getId(), properties.getName());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "UserPropertiesSnapshot{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
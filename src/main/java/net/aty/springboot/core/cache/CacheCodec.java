@@ -0,0 +1,25 @@
+package net.aty.springboot.core.cache;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * L2里的值是字节数组,每个缓存用一个codec转换
+ */
+public interface CacheCodec<V> {
+
+    CacheCodec<String> STRING = new CacheCodec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    byte[] encode(V value);
+
+    V decode(byte[] bytes);
+}
@@ -0,0 +1,81 @@
+package net.aty.springboot.core.cache;
+
+/**
+ * TinyLFU的频率估计:4行count-min sketch,每个计数器4位(最大15);
+ * 累计增加次数达到采样大小后所有计数器减半,让过去的热点逐渐冷却
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    private final int sampleSize;
+
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        // 每个long放16个计数器,保证计数器总数不少于容量
+        int length = Integer.highestOneBit(Math.max(16, maximumSize) - 1) << 1;
+        this.table = new long[Math.max(1, length / 4)];
+        this.tableMask = table.length - 1;
+        this.sampleSize = 10 * Math.max(16, maximumSize);
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = index(hash, i);
+            int offset = offset(hash, i);
+            frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xfL));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = index(hash, i);
+            int offset = offset(hash, i);
+            if (((table[index] >>> offset) & 0xfL) != 0xfL) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int index(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    /**
+     * 每行用long里不同的一组4个计数器,避免4行落在同一个计数器上
+     */
+    private static int offset(int hash, int row) {
+        return (((hash >>> (row << 3)) & 3) << 2 | row) << 2;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
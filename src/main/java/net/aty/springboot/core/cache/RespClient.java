@@ -0,0 +1,483 @@
+package net.aty.springboot.core.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 最简单的Redis协议(RESP2)客户端,只实现缓存需要的命令,支持把多条命令放在一次往返里发送(pipeline)
+ * <p>
+ * 所有缓存共用一个客户端,命令走一个小连接池:每次调用独占一条连接,用完放回;连接按需建立,最多poolSize条,
+ * 都在用时最多等timeout。出现IO错误的连接直接关闭,错误以UncheckedIOException抛出,
+ * 服务端返回的错误(-ERR)以IllegalStateException抛出
+ * <p>
+ * Redis不可用时不让每次调用都卡满timeout:IO错误之后的一段时间内直接抛出UncheckedIOException,不访问网络,
+ * 调用方(TwoLevelCache)退回到loader;这段时间从100ms开始,连续失败时翻倍直到10s,
+ * 到期后只放一次调用去试探,成功后恢复正常
+ */
+public class RespClient implements Closeable {
+
+    private static final Log logger = LogFactory.getLog(RespClient.class);
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final int DEFAULT_POOL_SIZE = 8;
+
+    private static final long MIN_BACKOFF_MILLIS = 100;
+
+    private static final long MAX_BACKOFF_MILLIS = 10_000;
+
+    private final String host;
+
+    private final int port;
+
+    private final String password;
+
+    private final int database;
+
+    private final int timeoutMillis;
+
+    private final Semaphore permits;
+
+    private final Deque<Connection> idle = new ConcurrentLinkedDeque<>();
+
+    private volatile boolean closed;
+
+    /**
+     * 0表示可用;否则在这个时间(nanoTime)之前直接失败
+     */
+    private long unavailableUntil;
+
+    private long backoffMillis;
+
+    public RespClient(String host, int port, String password, int database, Duration timeout) {
+        this(host, port, password, database, timeout, DEFAULT_POOL_SIZE);
+    }
+
+    public RespClient(String host, int port, String password, int database, Duration timeout, int poolSize) {
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.database = database;
+        this.timeoutMillis = timeout == null ? 2000 : (int) timeout.toMillis();
+        this.permits = new Semaphore(Math.max(1, poolSize));
+    }
+
+    /**
+     * 使用spring.redis.*绑定好的RedisProperties:url优先于host/port/password,不支持ssl和sentinel/cluster;
+     * 连接池大小取spring.redis.lettuce.pool.max-active或者jedis.pool.max-active,都没配置时是8
+     */
+    public static RespClient from(RedisProperties properties) {
+        if (properties.isSsl() || properties.getSentinel() != null || properties.getCluster() != null) {
+            throw new IllegalStateException("only a single plain-text redis node is supported");
+        }
+        String host = properties.getHost();
+        int port = properties.getPort();
+        String password = properties.getPassword();
+        int database = properties.getDatabase();
+        if (properties.getUrl() != null) {
+            URI uri = URI.create(properties.getUrl());
+            if ("rediss".equals(uri.getScheme())) {
+                throw new IllegalStateException("ssl is not supported: " + properties.getUrl());
+            }
+            host = uri.getHost();
+            port = uri.getPort() == -1 ? 6379 : uri.getPort();
+            if (uri.getUserInfo() != null) {
+                String userInfo = uri.getUserInfo();
+                password = userInfo.substring(userInfo.indexOf(':') + 1);
+            }
+            if (uri.getPath() != null && uri.getPath().length() > 1) {
+                database = Integer.parseInt(uri.getPath().substring(1));
+            }
+        }
+        RedisProperties.Pool pool = properties.getLettuce().getPool() != null
+                ? properties.getLettuce().getPool() : properties.getJedis().getPool();
+        int poolSize = pool != null && pool.getMaxActive() > 0 ? pool.getMaxActive() : DEFAULT_POOL_SIZE;
+        return new RespClient(host, port, password, database, properties.getTimeout(), poolSize);
+    }
+
+    public byte[] get(String key) {
+        return (byte[]) execute(command("GET", key));
+    }
+
+    public void set(String key, byte[] value, long ttlMillis) {
+        if (ttlMillis > 0) {
+            execute(command("SET", key, value, "PX", String.valueOf(ttlMillis)));
+        } else {
+            execute(command("SET", key, value));
+        }
+    }
+
+    public long del(Collection<String> keys) {
+        List<Object> args = new ArrayList<>(keys.size() + 1);
+        args.add("DEL");
+        args.addAll(keys);
+        return (Long) execute(args.toArray());
+    }
+
+    public long publish(String channel, String message) {
+        return (Long) execute(command("PUBLISH", channel, message));
+    }
+
+    public Object execute(Object... command) {
+        return pipeline(List.<Object[]>of(command)).get(0);
+    }
+
+    /**
+     * 一次写出所有命令再依次读取回复;某条命令的错误回复不影响其他命令,在读完所有回复之后抛出
+     */
+    public List<Object> pipeline(List<Object[]> commands) {
+        if (closed) {
+            throw new IllegalStateException("client is closed");
+        }
+        checkAvailable();
+        acquire();
+        List<Object> replies;
+        try {
+            replies = exchange(commands);
+        } finally {
+            permits.release();
+        }
+        for (Object reply : replies) {
+            if (reply instanceof IllegalStateException) {
+                throw (IllegalStateException) reply;
+            }
+        }
+        return replies;
+    }
+
+    private List<Object> exchange(List<Object[]> commands) {
+        Connection connection = idle.pollFirst();
+        try {
+            if (connection == null) {
+                connection = open();
+            }
+            for (Object[] command : commands) {
+                connection.write(command);
+            }
+            connection.out.flush();
+            List<Object> replies = new ArrayList<>(commands.size());
+            for (int i = 0; i < commands.size(); i++) {
+                replies.add(connection.read());
+            }
+            available();
+            release(connection);
+            return replies;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            unavailable();
+            throw new UncheckedIOException("redis " + host + ":" + port + " failed: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            // 回复没读完,连接上的状态已经不可信
+            if (connection != null) {
+                connection.close();
+            }
+            throw e;
+        }
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new UncheckedIOException("redis " + host + ":" + port + " failed",
+                        new IOException("no free connection within " + timeoutMillis + "ms"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException("redis " + host + ":" + port + " failed",
+                    new InterruptedIOException("interrupted while waiting for a connection"));
+        }
+    }
+
+    private void release(Connection connection) {
+        idle.offerFirst(connection);
+        if (closed) {
+            closeIdle();
+        }
+    }
+
+    /**
+     * 不可用期间直接失败;到期后第一个调用把期限再往后推一个backoff,自己去试探,其他调用继续直接失败
+     */
+    private synchronized void checkAvailable() {
+        if (unavailableUntil == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - unavailableUntil < 0) {
+            throw new UncheckedIOException("redis " + host + ":" + port + " failed",
+                    new IOException("unavailable, retry in " + TimeUnit.NANOSECONDS.toMillis(unavailableUntil - now) + "ms"));
+        }
+        unavailableUntil = now + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+    }
+
+    private synchronized void available() {
+        unavailableUntil = 0;
+        backoffMillis = 0;
+    }
+
+    private synchronized void unavailable() {
+        backoffMillis = backoffMillis == 0 ? MIN_BACKOFF_MILLIS : Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+        unavailableUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+    }
+
+    /**
+     * 在单独的连接和daemon线程上订阅频道,断开后每秒重连一次,直到返回的Closeable被关闭
+     */
+    public Closeable subscribe(String channel, Consumer<String> listener) {
+        Subscription subscription = new Subscription(channel, listener);
+        Thread thread = new Thread(subscription, "resp-subscriber-" + channel);
+        thread.setDaemon(true);
+        thread.start();
+        return subscription;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        closeIdle();
+    }
+
+    private static Object[] command(Object... args) {
+        return args;
+    }
+
+    private Connection open() throws IOException {
+        Connection connection = new Connection(host, port, timeoutMillis);
+        try {
+            if (password != null && !password.isEmpty()) {
+                connection.call("AUTH", password);
+            }
+            if (database != 0) {
+                connection.call("SELECT", String.valueOf(database));
+            }
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 正在使用的连接用完放回时发现已经关闭,再由release关闭
+     */
+    private void closeIdle() {
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    private final class Subscription implements Runnable, Closeable {
+
+        private final String channel;
+
+        private final Consumer<String> listener;
+
+        private volatile boolean closed;
+
+        private volatile Connection subscriber;
+
+        private Subscription(String channel, Consumer<String> listener) {
+            this.channel = channel;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                try {
+                    subscriber = open();
+                    subscriber.socket.setSoTimeout(0);
+                    subscriber.write(command("SUBSCRIBE", channel));
+                    subscriber.out.flush();
+                    while (!closed) {
+                        Object reply = subscriber.read();
+                        if (reply instanceof List && ((List<?>) reply).size() == 3) {
+                            List<?> message = (List<?>) reply;
+                            if ("message".equals(text(message.get(0)))) {
+                                listener.accept(text(message.get(2)));
+                            }
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (!closed) {
+                        logger.warn("subscription to " + channel + " failed, retry in 1s: " + e.getMessage());
+                        sleep();
+                    }
+                } finally {
+                    if (subscriber != null) {
+                        subscriber.close();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            Connection subscriber = this.subscriber;
+            if (subscriber != null) {
+                subscriber.close();
+            }
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closed = true;
+            }
+        }
+    }
+
+    private static String text(Object value) {
+        return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+
+    private static final class Connection {
+
+        private final Socket socket;
+
+        private final InputStream in;
+
+        private final OutputStream out;
+
+        private Connection(String host, int port, int timeoutMillis) throws IOException {
+            socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+                socket.setSoTimeout(timeoutMillis);
+                socket.setTcpNoDelay(true);
+                in = new BufferedInputStream(socket.getInputStream());
+                out = new BufferedOutputStream(socket.getOutputStream());
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        private void call(Object... command) throws IOException {
+            write(command);
+            out.flush();
+            Object reply = read();
+            if (reply instanceof IllegalStateException) {
+                throw (IllegalStateException) reply;
+            }
+        }
+
+        private void write(Object[] command) throws IOException {
+            out.write('*');
+            out.write(ascii(command.length));
+            out.write(CRLF);
+            for (Object arg : command) {
+                byte[] bytes = arg instanceof byte[] ? (byte[]) arg : arg.toString().getBytes(StandardCharsets.UTF_8);
+                out.write('$');
+                out.write(ascii(bytes.length));
+                out.write(CRLF);
+                out.write(bytes);
+                out.write(CRLF);
+            }
+        }
+
+        /**
+         * 简单字符串返回String,整数返回Long,bulk string返回byte[](不存在时null),数组返回List,错误返回IllegalStateException
+         */
+        private Object read() throws IOException {
+            int type = in.read();
+            switch (type) {
+                case '+':
+                    return line();
+                case '-':
+                    return new IllegalStateException(line());
+                case ':':
+                    return Long.parseLong(line());
+                case '$': {
+                    int length = Integer.parseInt(line());
+                    if (length < 0) {
+                        return null;
+                    }
+                    byte[] bytes = new byte[length];
+                    int read = 0;
+                    while (read < length) {
+                        int n = in.read(bytes, read, length - read);
+                        if (n < 0) {
+                            throw new EOFException();
+                        }
+                        read += n;
+                    }
+                    line();
+                    return bytes;
+                }
+                case '*': {
+                    int count = Integer.parseInt(line());
+                    if (count < 0) {
+                        return null;
+                    }
+                    List<Object> items = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        items.add(read());
+                    }
+                    return items;
+                }
+                case -1:
+                    throw new EOFException("connection closed by server");
+                default:
+                    throw new IOException("unexpected reply type: " + (char) type);
+            }
+        }
+
+        private String line() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\r') {
+                if (c < 0) {
+                    throw new EOFException();
+                }
+                line.append((char) c);
+            }
+            if (in.read() != '\n') {
+                throw new IOException("malformed reply");
+            }
+            return line.toString();
+        }
+
+        private static byte[] ascii(int value) {
+            return Integer.toString(value).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 连接已经不可用
+            }
+        }
+    }
+}
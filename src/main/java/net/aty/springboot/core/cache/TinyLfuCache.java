@@ -0,0 +1,206 @@
+package net.aty.springboot.core.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 有界的进程内缓存,按W-TinyLFU的思路淘汰:
+ * <ul>
+ * <li>新写入的条目先进入容量1%的window(LRU),给刚出现的key积累访问频率的机会</li>
+ * <li>被window挤出的条目作为候选者,和main区probation段最久未访问的条目比较TinyLFU频率,频率高的留下</li>
+ * <li>main区是分段LRU:probation里再次被访问的条目升到protected(占main的80%),protected满了降回probation</li>
+ * </ul>
+ * 一次扫描式的访问(大量只访问一次的key)只会冲掉window,不会冲掉频繁访问的条目
+ * <p>
+ * 所有操作在同一把锁里完成,读也要调整LRU顺序;写入超过expireAfterWrite的条目读取时当作不存在
+ */
+public class TinyLfuCache<K, V> {
+
+    private static final int WINDOW = 0;
+
+    private static final int PROBATION = 1;
+
+    private static final int PROTECTED = 2;
+
+    private final int maximumSize;
+
+    private final int windowMaximum;
+
+    private final int protectedMaximum;
+
+    private final long expireAfterWriteNanos;
+
+    private final LongSupplier ticker;
+
+    private final FrequencySketch sketch;
+
+    private final Map<K, Node<K, V>> data = new HashMap<>();
+
+    private final Node<K, V>[] queues;
+
+    private final int[] sizes = new int[3];
+
+    private long evictions;
+
+    public TinyLfuCache(int maximumSize, long expireAfterWrite, TimeUnit unit) {
+        this(maximumSize, unit.toNanos(expireAfterWrite), System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    TinyLfuCache(int maximumSize, long expireAfterWriteNanos, LongSupplier ticker) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.protectedMaximum = (int) ((maximumSize - windowMaximum) * 0.8);
+        this.expireAfterWriteNanos = expireAfterWriteNanos <= 0 ? Long.MAX_VALUE : expireAfterWriteNanos;
+        this.ticker = ticker;
+        this.sketch = new FrequencySketch(maximumSize);
+        this.queues = new Node[3];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new Node<>(null, null, 0);
+            queues[i].prev = queues[i];
+            queues[i].next = queues[i];
+        }
+    }
+
+    public synchronized V get(K key) {
+        sketch.increment(key);
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            return null;
+        }
+        if (ticker.getAsLong() - node.writeTime >= expireAfterWriteNanos) {
+            remove(node);
+            return null;
+        }
+        onHit(node);
+        return node.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        sketch.increment(key);
+        long now = ticker.getAsLong();
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            node.value = value;
+            node.writeTime = now;
+            onHit(node);
+            return;
+        }
+        node = new Node<>(key, value, now);
+        data.put(key, node);
+        addFirst(WINDOW, node);
+        if (sizes[WINDOW] > windowMaximum) {
+            Node<K, V> candidate = queues[WINDOW].prev;
+            unlink(candidate);
+            addFirst(PROBATION, candidate);
+            if (data.size() > maximumSize) {
+                evict(candidate);
+            }
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            remove(node);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        data.clear();
+        for (int i = 0; i < queues.length; i++) {
+            queues[i].prev = queues[i];
+            queues[i].next = queues[i];
+            sizes[i] = 0;
+        }
+    }
+
+    public synchronized int size() {
+        return data.size();
+    }
+
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * 候选者和probation段的牺牲者比较频率,相同时淘汰候选者,保护已经在main区的条目
+     */
+    private void evict(Node<K, V> candidate) {
+        Node<K, V> victim = queues[PROBATION].prev;
+        if (victim == candidate || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+            remove(candidate);
+        } else {
+            remove(victim);
+        }
+        evictions++;
+    }
+
+    private void onHit(Node<K, V> node) {
+        if (node.queue == PROBATION) {
+            unlink(node);
+            addFirst(PROTECTED, node);
+            if (sizes[PROTECTED] > protectedMaximum) {
+                Node<K, V> demoted = queues[PROTECTED].prev;
+                unlink(demoted);
+                addFirst(PROBATION, demoted);
+            }
+        } else {
+            int queue = node.queue;
+            unlink(node);
+            addFirst(queue, node);
+        }
+    }
+
+    private void remove(Node<K, V> node) {
+        unlink(node);
+        data.remove(node.key);
+    }
+
+    private void addFirst(int queue, Node<K, V> node) {
+        Node<K, V> head = queues[queue];
+        node.queue = queue;
+        node.prev = head;
+        node.next = head.next;
+        head.next.prev = node;
+        head.next = node;
+        sizes[queue]++;
+    }
+
+    private void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        sizes[node.queue]--;
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+
+        private V value;
+
+        private long writeTime;
+
+        private int queue;
+
+        private Node<K, V> prev;
+
+        private Node<K, V> next;
+
+        private Node(K key, V value, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = writeTime;
+        }
+    }
+}
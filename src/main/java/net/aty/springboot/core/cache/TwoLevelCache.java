@@ -0,0 +1,384 @@
+package net.aty.springboot.core.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 两级缓存:L1是进程内的TinyLfuCache,L2是Redis,按cache-aside的方式使用(get时加载,数据修改后invalidate)
+ * <p>
+ * 同一个key同时未命中时只有一个线程去读L2和调用loader,其他线程等待它的结果。
+ * invalidate立即删除本地的L1,L2的DEL和通知其他实例的PUBLISH攒成一批,在一次往返里发送;
+ * 失效还没发送出去的key读取时跳过L2,加载过程中被失效的结果不放进L1
+ * <p>
+ * key中不能包含换行符(失效通知里用换行分隔key),get和invalidate遇到时抛IllegalArgumentException
+ */
+public class TwoLevelCache<V> implements MeterBinder, Closeable {
+
+    private static final Log logger = LogFactory.getLog(TwoLevelCache.class);
+
+    private final String name;
+
+    private final String keyPrefix;
+
+    private final String channel;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final TinyLfuCache<String, V> local;
+
+    private final RespClient remote;
+
+    private final CacheCodec<V> codec;
+
+    private final long ttlMillis;
+
+    private final long invalidationDelayNanos;
+
+    private final int invalidationBatchSize;
+
+    private final ConcurrentHashMap<String, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+
+    /**
+     * 还没发送到L2的失效,值是失效的序号:发送前又失效了一次的key在这次发送之后仍然保留
+     */
+    private final ConcurrentHashMap<String, Long> pending = new ConcurrentHashMap<>();
+
+    private final LinkedBlockingQueue<String> invalidations = new LinkedBlockingQueue<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Thread invalidator;
+
+    private final Closeable subscription;
+
+    private volatile boolean closed;
+
+    private final LongAdder localHits = new LongAdder();
+
+    private final LongAdder remoteHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder joins = new LongAdder();
+
+    private final LongAdder remoteErrors = new LongAdder();
+
+    private final LongAdder invalidationBatches = new LongAdder();
+
+    private final LongAdder invalidatedKeys = new LongAdder();
+
+    private final LongAdder peerInvalidations = new LongAdder();
+
+    public TwoLevelCache(String name, RespClient remote, CacheCodec<V> codec, TwoLevelCacheProperties properties) {
+        this.name = name;
+        this.keyPrefix = properties.getKeyPrefix() + name + ":";
+        this.channel = properties.getKeyPrefix() + name + ":invalidate";
+        this.local = new TinyLfuCache<>(properties.getMaximumSize(),
+                properties.getLocalExpireAfterWrite().toNanos(), TimeUnit.NANOSECONDS);
+        this.remote = remote;
+        this.codec = codec;
+        this.ttlMillis = properties.getTtl().toMillis();
+        this.invalidationDelayNanos = properties.getInvalidationDelay().toNanos();
+        this.invalidationBatchSize = properties.getInvalidationBatchSize();
+        this.subscription = remote.subscribe(channel, this::onPeerInvalidation);
+        this.invalidator = new Thread(this::runInvalidator, "two-level-cache-" + name + "-invalidator");
+        this.invalidator.setDaemon(true);
+        this.invalidator.start();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 依次查L1、L2,都没有时调用loader并写入两级缓存;loader返回null时不缓存
+     */
+    public V get(String key, Callable<? extends V> loader) {
+        checkKey(key);
+        V value = local.get(key);
+        if (value != null) {
+            localHits.increment();
+            return value;
+        }
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = loads.putIfAbsent(key, future);
+        if (existing != null) {
+            joins.increment();
+            return await(existing);
+        }
+        try {
+            value = local.get(key);
+            if (value != null) {
+                localHits.increment();
+            } else {
+                value = load(key, loader);
+            }
+        } catch (Exception e) {
+            loads.remove(key, future);
+            future.completeExceptionally(e);
+            throw e instanceof RuntimeException ? (RuntimeException) e : new CompletionException(e);
+        }
+        future.complete(value);
+        if (!publish(key, future, value)) {
+            // 加载期间被失效了:结果不进L1,刚写入L2的值可能已经过时,再删一次
+            enqueue(key);
+        }
+        return value;
+    }
+
+    public void invalidate(String key) {
+        checkKey(key);
+        // 先标记为待失效,之后开始的加载不会再读到L2里的旧值
+        pending.put(key, sequence.incrementAndGet());
+        dropLocal(key);
+        invalidations.add(key);
+    }
+
+    /**
+     * 有一个key不合法时都不失效
+     */
+    public void invalidateAll(Iterable<String> keys) {
+        for (String key : keys) {
+            checkKey(key);
+        }
+        for (String key : keys) {
+            invalidate(key);
+        }
+    }
+
+    private static void checkKey(String key) {
+        if (key.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("cache key must not contain a line feed: " + key);
+        }
+    }
+
+    private V load(String key, Callable<? extends V> loader) throws Exception {
+        boolean stale = pending.containsKey(key);
+        if (!stale) {
+            byte[] bytes = remoteGet(key);
+            if (bytes != null) {
+                remoteHits.increment();
+                return codec.decode(bytes);
+            }
+        }
+        misses.increment();
+        V value = loader.call();
+        if (value != null && !stale) {
+            remoteSet(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 只有这次加载还没被失效时才放进L1;和invalidate在同一个key上互斥
+     */
+    private boolean publish(String key, CompletableFuture<V> future, V value) {
+        boolean[] current = {false};
+        loads.computeIfPresent(key, (k, f) -> {
+            if (f != future) {
+                return f;
+            }
+            if (value != null) {
+                local.put(k, value);
+            }
+            current[0] = true;
+            return null;
+        });
+        return current[0];
+    }
+
+    private void dropLocal(String key) {
+        loads.compute(key, (k, f) -> {
+            local.invalidate(k);
+            return null;
+        });
+    }
+
+    private void enqueue(String key) {
+        pending.put(key, sequence.incrementAndGet());
+        invalidations.add(key);
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private byte[] remoteGet(String key) {
+        try {
+            return remote.get(keyPrefix + key);
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+            logger.debug("cache " + name + " failed to read " + key + " from redis", e);
+            return null;
+        }
+    }
+
+    private void remoteSet(String key, V value) {
+        try {
+            remote.set(keyPrefix + key, codec.encode(value), ttlMillis);
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+            logger.debug("cache " + name + " failed to write " + key + " to redis", e);
+        }
+    }
+
+    private void runInvalidator() {
+        Set<String> batch = new LinkedHashSet<>();
+        while (!closed) {
+            try {
+                batch.add(invalidations.take());
+                long deadline = System.nanoTime() + invalidationDelayNanos;
+                while (batch.size() < invalidationBatchSize) {
+                    String key = invalidations.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (key == null) {
+                        break;
+                    }
+                    batch.add(key);
+                }
+            } catch (InterruptedException e) {
+                invalidations.drainTo(batch);
+                if (!batch.isEmpty()) {
+                    send(batch);
+                }
+                return;
+            }
+            if (!send(batch)) {
+                invalidations.addAll(batch);
+                try {
+                    TimeUnit.SECONDS.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * 一次往返里删除L2的key并通知其他实例;通知里带上自己的id,收到自己发出的通知时忽略
+     */
+    private boolean send(Set<String> batch) {
+        Map<String, Long> sequences = new HashMap<>();
+        List<Object> del = new ArrayList<>(batch.size() + 1);
+        del.add("DEL");
+        for (String key : batch) {
+            sequences.put(key, pending.get(key));
+            del.add(keyPrefix + key);
+        }
+        String message = instanceId + "\n" + String.join("\n", batch);
+        try {
+            remote.pipeline(List.of(del.toArray(), new Object[]{"PUBLISH", channel, message}));
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+            logger.warn("cache " + name + " failed to send " + batch.size() + " invalidations, retry in 1s: "
+                    + e.getMessage());
+            return false;
+        }
+        invalidationBatches.increment();
+        invalidatedKeys.add(batch.size());
+        sequences.forEach((key, seq) -> {
+            if (seq != null) {
+                pending.remove(key, seq);
+            }
+        });
+        return true;
+    }
+
+    private void onPeerInvalidation(String message) {
+        int newline = message.indexOf('\n');
+        if (newline < 0 || message.substring(0, newline).equals(instanceId)) {
+            return;
+        }
+        for (String key : message.substring(newline + 1).split("\n")) {
+            dropLocal(key);
+            peerInvalidations.increment();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("aty.cache.gets", localHits, LongAdder::sum)
+                .tag("cache", name).tag("result", "local-hit").register(registry);
+        FunctionCounter.builder("aty.cache.gets", remoteHits, LongAdder::sum)
+                .tag("cache", name).tag("result", "remote-hit").register(registry);
+        FunctionCounter.builder("aty.cache.gets", misses, LongAdder::sum)
+                .tag("cache", name).tag("result", "miss").register(registry);
+        FunctionCounter.builder("aty.cache.gets", joins, LongAdder::sum)
+                .tag("cache", name).tag("result", "joined").register(registry);
+        FunctionCounter.builder("aty.cache.remote.errors", remoteErrors, LongAdder::sum)
+                .tag("cache", name).register(registry);
+        FunctionCounter.builder("aty.cache.invalidation.batches", invalidationBatches, LongAdder::sum)
+                .tag("cache", name).register(registry);
+        FunctionCounter.builder("aty.cache.invalidations", invalidatedKeys, LongAdder::sum)
+                .tag("cache", name).tag("source", "local").register(registry);
+        FunctionCounter.builder("aty.cache.invalidations", peerInvalidations, LongAdder::sum)
+                .tag("cache", name).tag("source", "peer").register(registry);
+        FunctionCounter.builder("aty.cache.evictions", local, TinyLfuCache::evictionCount)
+                .tag("cache", name).register(registry);
+        Gauge.builder("aty.cache.size", local, TinyLfuCache::size).tag("cache", name).register(registry);
+    }
+
+    public long getLocalHits() {
+        return localHits.sum();
+    }
+
+    public long getRemoteHits() {
+        return remoteHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getJoins() {
+        return joins.sum();
+    }
+
+    public long getInvalidationBatches() {
+        return invalidationBatches.sum();
+    }
+
+    /**
+     * 发送剩下的失效后停止;RespClient由创建者关闭
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        invalidator.interrupt();
+        try {
+            invalidator.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        subscription.close();
+    }
+}
@@ -0,0 +1,30 @@
+package net.aty.springboot.core.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * aty.cache.enabled=true时启用两级缓存,L2连接UserConfiguration里已经绑定好的RedisProperties
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "aty.cache", name = "enabled")
+public class TwoLevelCacheConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "aty.cache")
+    public TwoLevelCacheProperties twoLevelCacheProperties() {
+        return new TwoLevelCacheProperties();
+    }
+
+    @Bean
+    public TwoLevelCacheManager twoLevelCacheManager(RedisProperties redisProperties,
+                                                     TwoLevelCacheProperties properties,
+                                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        return new TwoLevelCacheManager(RespClient.from(redisProperties), properties, meterRegistry.getIfAvailable());
+    }
+}
@@ -0,0 +1,47 @@
+package net.aty.springboot.core.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按名称创建和复用TwoLevelCache,所有缓存共用一个RespClient;同名缓存第一次创建时的codec生效
+ */
+public class TwoLevelCacheManager implements DisposableBean {
+
+    private final RespClient client;
+
+    private final TwoLevelCacheProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, TwoLevelCache<?>> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(RespClient client, TwoLevelCacheProperties properties, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> TwoLevelCache<V> getCache(String name, CacheCodec<V> codec) {
+        return (TwoLevelCache<V>) caches.computeIfAbsent(name, key -> {
+            TwoLevelCache<V> cache = new TwoLevelCache<>(key, client, codec, properties);
+            if (meterRegistry != null) {
+                cache.bindTo(meterRegistry);
+            }
+            return cache;
+        });
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        for (TwoLevelCache<?> cache : caches.values()) {
+            cache.close();
+        }
+        client.close();
+    }
+}
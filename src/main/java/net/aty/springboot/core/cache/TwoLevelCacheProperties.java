@@ -0,0 +1,97 @@
+package net.aty.springboot.core.cache;
+
+import java.time.Duration;
+
+/**
+ * aty.cache.*配置;L2的连接信息来自spring.redis.*
+ */
+public class TwoLevelCacheProperties {
+
+    private boolean enabled;
+
+    /**
+     * 每个缓存L1最多保留的条目数
+     */
+    private int maximumSize = 10_000;
+
+    /**
+     * L1条目写入后的最长存活时间,防止错过失效通知后一直读到旧值
+     */
+    private Duration localExpireAfterWrite = Duration.ofMinutes(5);
+
+    /**
+     * L2条目的过期时间,0表示不过期
+     */
+    private Duration ttl = Duration.ofMinutes(30);
+
+    /**
+     * 失效请求攒批的最长等待时间,也是其他实例和L2可能读到旧值的最长时间
+     */
+    private Duration invalidationDelay = Duration.ofMillis(20);
+
+    /**
+     * 一批失效最多包含的key数量
+     */
+    private int invalidationBatchSize = 256;
+
+    /**
+     * L2里的key前缀,完整的key是prefix + 缓存名 + ":" + key;失效通知的频道是prefix + 缓存名 + ":invalidate"
+     */
+    private String keyPrefix = "aty:cache:";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getLocalExpireAfterWrite() {
+        return localExpireAfterWrite;
+    }
+
+    public void setLocalExpireAfterWrite(Duration localExpireAfterWrite) {
+        this.localExpireAfterWrite = localExpireAfterWrite;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public Duration getInvalidationDelay() {
+        return invalidationDelay;
+    }
+
+    public void setInvalidationDelay(Duration invalidationDelay) {
+        this.invalidationDelay = invalidationDelay;
+    }
+
+    public int getInvalidationBatchSize() {
+        return invalidationBatchSize;
+    }
+
+    public void setInvalidationBatchSize(int invalidationBatchSize) {
+        this.invalidationBatchSize = invalidationBatchSize;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public void setKeyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+    }
+}
@@ -0,0 +1,71 @@
+package net.aty.springboot.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.properties.ConfigurationPropertiesBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * /config/export导出本项目所有@ConfigurationProperties对象(按前缀),/config/export/{prefix}导出一个;
+ * json直接写到响应的输出流
+ * <p>
+ * 只导出net.aty包下的配置类:第三方的配置里有密码(spring.redis.password)和不适合序列化的类型
+ */
+@RestController
+public class ConfigExportController {
+
+    private final ConfigExporter exporter;
+
+    private final ApplicationContext applicationContext;
+
+    private volatile Map<String, Object> sources;
+
+    public ConfigExportController(ObjectMapper objectMapper, ApplicationContext applicationContext) {
+        this.exporter = new ConfigExporter(objectMapper);
+        this.applicationContext = applicationContext;
+    }
+
+    @GetMapping("/config/export")
+    public ResponseEntity<StreamingResponseBody> exportAll() {
+        Map<String, Object> sources = sources();
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(out -> exporter.writeObject(out, sources));
+    }
+
+    @GetMapping("/config/export/{prefix}")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable String prefix) {
+        Object source = sources().get(prefix);
+        if (source == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(out -> exporter.write(out, source));
+    }
+
+    /**
+     * 配置对象都是单例,UserPropertiesReloader重新加载user.aty后也是把值复制到同一个实例上,
+     * 所以第一次请求时查找一次之后一直引用这些实例
+     */
+    private Map<String, Object> sources() {
+        Map<String, Object> sources = this.sources;
+        if (sources == null) {
+            sources = new TreeMap<>();
+            for (ConfigurationPropertiesBean bean : ConfigurationPropertiesBean.getAll(applicationContext).values()) {
+                if (bean.getInstance().getClass().getName().startsWith("net.aty.")) {
+                    sources.put(bean.getAnnotation().prefix(), bean.getInstance());
+                }
+            }
+            this.sources = sources = Collections.unmodifiableMap(sources);
+        }
+        return sources;
+    }
+}
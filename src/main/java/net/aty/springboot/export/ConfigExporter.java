@@ -0,0 +1,106 @@
+package net.aty.springboot.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 把绑定好的配置对象写成json,直接写到输出流:
+ * <ul>
+ * <li>每个类型缓存一个ObjectWriter,创建时就解析好根类型的序列化器,之后每次导出不再查找序列化器</li>
+ * <li>集合逐个元素写到同一个JsonGenerator,不在内存里拼出完整的字符串或字节数组;
+ * 关闭了FLUSH_AFTER_WRITE_VALUE,否则每个元素都会flush一次底层输出流</li>
+ * <li>输出流由调用方关闭,这里只在最后flush</li>
+ * </ul>
+ * ObjectMapper用Spring容器里的那个,和其他接口的json格式一致
+ */
+public class ConfigExporter {
+
+    private final ObjectMapper mapper;
+
+    private final ClassValue<ObjectWriter> writers = new ClassValue<ObjectWriter>() {
+        @Override
+        protected ObjectWriter computeValue(Class<?> type) {
+            return mapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+    };
+
+    public ConfigExporter(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public ObjectWriter writerFor(Class<?> type) {
+        return writers.get(type);
+    }
+
+    public void write(OutputStream out, Object value) throws IOException {
+        try (JsonGenerator generator = generator(out)) {
+            writeValue(generator, value);
+        }
+    }
+
+    /**
+     * 元素逐个序列化,values可以是按需生成元素的Iterable;元素类型不同时各自用自己的ObjectWriter
+     */
+    public void writeArray(OutputStream out, Iterable<?> values) throws IOException {
+        try (JsonGenerator generator = generator(out)) {
+            writeArray(generator, values);
+        }
+    }
+
+    /**
+     * 写出一个json对象,每个字段的值按自己的类型序列化
+     */
+    public void writeObject(OutputStream out, Map<String, ?> fields) throws IOException {
+        try (JsonGenerator generator = generator(out)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, ?> field : fields.entrySet()) {
+                generator.writeFieldName(field.getKey());
+                writeValue(generator, field.getValue());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Iterable) {
+            writeArray(generator, (Iterable<?>) value);
+        } else {
+            writers.get(value.getClass()).writeValue(generator, value);
+        }
+    }
+
+    private void writeArray(JsonGenerator generator, Iterable<?> values) throws IOException {
+        generator.writeStartArray();
+        Class<?> lastType = null;
+        ObjectWriter writer = null;
+        for (Iterator<?> it = values.iterator(); it.hasNext(); ) {
+            Object value = it.next();
+            if (value == null) {
+                generator.writeNull();
+                continue;
+            }
+            if (value.getClass() != lastType) {
+                lastType = value.getClass();
+                writer = writers.get(lastType);
+            }
+            writer.writeValue(generator, value);
+        }
+        generator.writeEndArray();
+    }
+
+    private JsonGenerator generator(OutputStream out) throws IOException {
+        JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+}
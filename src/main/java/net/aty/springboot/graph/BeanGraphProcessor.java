@@ -0,0 +1,362 @@
+package net.aty.springboot.graph;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 编译期扫描指定包及其子包(选项aty.beangraph.packages,默认net.aty.springboot.core和net.aty.springboot.actuator)下的组件,
+ * 生成PrecomputedBeanGraph:
+ * <ul>
+ * <li>@ConditionalOnClass/@ConditionalOnMissingClass的类名在编译期取出,启动时用ClassUtils.isPresent判断,
+ * 运行时的classpath可能和编译时不同;编译期就拿不到类名的组件不生成</li>
+ * <li>只有public无参构造器的普通组件用构造器引用创建实例,其他的由Spring推断构造器</li>
+ * <li>还有其他@Conditional或@Lazy、@Scope等注解的组件交给AnnotatedBeanDefinitionReader在启动时处理</li>
+ * </ul>
+ * bean名称的规则和AnnotationBeanNameGenerator一致
+ * <p>
+ * 选项aty.beangraph.scanBase(默认net.aty.springboot)下其余有组件的包记录在SCAN_PACKAGES里,
+ * 同时生成带这份@ComponentScan的PrecomputedComponentScan,应用不用再手写包列表
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions({BeanGraphProcessor.PACKAGES_OPTION, BeanGraphProcessor.SCAN_BASE_OPTION})
+public class BeanGraphProcessor extends AbstractProcessor {
+
+    static final String PACKAGES_OPTION = "aty.beangraph.packages";
+
+    static final String SCAN_BASE_OPTION = "aty.beangraph.scanBase";
+
+    static final String GENERATED_CLASS = "net.aty.springboot.graph.PrecomputedBeanGraph";
+
+    static final String GENERATED_SCAN_CLASS = "net.aty.springboot.graph.PrecomputedComponentScan";
+
+    private static final String COMPONENT = "org.springframework.stereotype.Component";
+
+    private static final String CONFIGURATION = "org.springframework.context.annotation.Configuration";
+
+    private static final String CONDITIONAL = "org.springframework.context.annotation.Conditional";
+
+    private static final String ON_CLASS = "org.springframework.boot.autoconfigure.condition.ConditionalOnClass";
+
+    private static final String ON_MISSING_CLASS = "org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass";
+
+    private static final Set<String> DEFINITION_ANNOTATIONS = new HashSet<>(Arrays.asList(
+            "org.springframework.context.annotation.Lazy",
+            "org.springframework.context.annotation.Primary",
+            "org.springframework.context.annotation.DependsOn",
+            "org.springframework.context.annotation.Role",
+            "org.springframework.context.annotation.Description",
+            "org.springframework.context.annotation.Scope"));
+
+    private boolean generated;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (generated || roundEnv.processingOver()) {
+            return false;
+        }
+        List<String> packages = packages();
+        List<String> scanBase = Collections.singletonList(
+                processingEnv.getOptions().getOrDefault(SCAN_BASE_OPTION, "net.aty.springboot"));
+        List<TypeElement> components = new ArrayList<>();
+        Set<String> scanPackages = new TreeSet<>();
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+            if (included(packages, packageName)) {
+                collect(type, components);
+            } else if (included(scanBase, packageName)) {
+                List<TypeElement> others = new ArrayList<>();
+                collect(type, others);
+                if (!others.isEmpty()) {
+                    scanPackages.add(packageName);
+                }
+            }
+        }
+        if (components.isEmpty()) {
+            return false;
+        }
+        generated = true;
+        components.sort(Comparator.comparing(type -> type.getQualifiedName().toString()));
+        try {
+            generate(packages, outermost(scanPackages), components);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write " + GENERATED_CLASS + ": " + e.getMessage());
+        }
+        return false;
+    }
+
+    private List<String> packages() {
+        String option = processingEnv.getOptions().get(PACKAGES_OPTION);
+        if (option == null || option.trim().isEmpty()) {
+            return Arrays.asList("net.aty.springboot.core", "net.aty.springboot.actuator");
+        }
+        List<String> packages = new ArrayList<>();
+        for (String pkg : option.split(",")) {
+            packages.add(pkg.trim());
+        }
+        return packages;
+    }
+
+    /**
+     * 扫描包含子包,父包已经在列表里的子包去掉
+     */
+    private static List<String> outermost(Set<String> packages) {
+        List<String> result = new ArrayList<>();
+        for (String pkg : packages) {
+            if (!included(result, pkg)) {
+                result.add(pkg);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 和组件扫描一样包含子包
+     */
+    private static boolean included(List<String> packages, String packageName) {
+        for (String pkg : packages) {
+            if (packageName.equals(pkg) || packageName.startsWith(pkg + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 和扫描一样:具体的、独立的(顶层或静态嵌套)类才是候选组件
+     */
+    private void collect(TypeElement type, List<TypeElement> components) {
+        if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT)
+                && isAnnotated(type, COMPONENT, new HashSet<>())) {
+            components.add(type);
+        }
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            if (nested.getModifiers().contains(Modifier.STATIC)) {
+                collect(nested, components);
+            }
+        }
+    }
+
+    private void generate(List<String> packages, List<String> scanPackages, List<TypeElement> components)
+            throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (TypeElement type : components) {
+            String typeName = type.getQualifiedName().toString();
+            List<String> conditions = classConditions(type);
+            if (conditions == null) {
+                body.append("        // ").append(typeName)
+                        .append(": skipped, class condition cannot be resolved at compile time\n");
+                continue;
+            }
+            String indent = "        ";
+            if (!conditions.isEmpty()) {
+                body.append(indent).append("if (").append(String.join(" && ", conditions)).append(") {\n");
+                indent += "    ";
+            }
+            if (needsReader(type)) {
+                body.append(indent).append("annotated(registry, ").append(typeName).append(".class);\n");
+            } else {
+                body.append(indent).append("component(registry, \"").append(beanName(type)).append("\", ")
+                        .append(typeName).append(".class, ")
+                        .append(canUseConstructorReference(type) ? typeName + "::new" : "null").append(");\n");
+            }
+            if (!conditions.isEmpty()) {
+                body.append("        }\n");
+            }
+        }
+
+        Element[] origins = components.toArray(new Element[0]);
+        int dot = GENERATED_CLASS.lastIndexOf('.');
+        try (Writer writer = processingEnv.getFiler().createSourceFile(GENERATED_CLASS, origins).openWriter()) {
+            writer.write("package " + GENERATED_CLASS.substring(0, dot) + ";\n\n");
+            writer.write("/**\n * Generated by BeanGraphProcessor for " + String.join(", ", packages)
+                    + ", do not edit.\n */\n");
+            writer.write("public final class " + GENERATED_CLASS.substring(dot + 1)
+                    + " extends net.aty.springboot.graph.PrecomputedBeanGraphRegistrar {\n\n");
+            writer.write("    public static final String[] PACKAGES = " + arrayLiteral(packages) + ";\n\n");
+            writer.write("    public static final String[] SCAN_PACKAGES = " + arrayLiteral(scanPackages) + ";\n\n");
+            writer.write("    @Override\n");
+            writer.write("    protected void register(org.springframework.beans.factory.support.BeanDefinitionRegistry registry) {\n");
+            writer.write(body.toString());
+            writer.write("    }\n}\n");
+        }
+        generateComponentScan(scanPackages, origins);
+    }
+
+    /**
+     * 扫描要和配置类一起在解析阶段做,排在自动配置前面,@ConditionalOnMissingBean才能看到扫描出来的bean;
+     * 没有要扫描的包时生成空类,不能写成不带包的@ComponentScan(那样会扫描这个类所在的包)
+     */
+    private void generateComponentScan(List<String> scanPackages, Element[] origins) throws IOException {
+        int dot = GENERATED_SCAN_CLASS.lastIndexOf('.');
+        try (Writer writer = processingEnv.getFiler().createSourceFile(GENERATED_SCAN_CLASS, origins).openWriter()) {
+            writer.write("package " + GENERATED_SCAN_CLASS.substring(0, dot) + ";\n\n");
+            writer.write("/**\n * Generated by BeanGraphProcessor, do not edit.\n */\n");
+            if (!scanPackages.isEmpty()) {
+                writer.write("@org.springframework.context.annotation.ComponentScan(" + arrayLiteral(scanPackages) + ")\n");
+            }
+            writer.write("public final class " + GENERATED_SCAN_CLASS.substring(dot + 1) + " {\n}\n");
+        }
+    }
+
+    private static String arrayLiteral(List<String> values) {
+        return values.isEmpty() ? "{}" : "{\"" + String.join("\", \"", values) + "\"}";
+    }
+
+    /**
+     * @ConditionalOnClass/@ConditionalOnMissingClass对应的运行时判断表达式,没有时是空列表;
+     * 有编译期找不到的Class引用(拿不到类名)时返回null
+     */
+    private List<String> classConditions(TypeElement type) {
+        List<String> conditions = new ArrayList<>();
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            String name = annotationName(annotation);
+            if (!ON_CLASS.equals(name) && !ON_MISSING_CLASS.equals(name)) {
+                continue;
+            }
+            for (String className : classNames(annotation)) {
+                if (className == null) {
+                    return null;
+                }
+                conditions.add((ON_CLASS.equals(name) ? "" : "!") + "present(\"" + className + "\")");
+            }
+        }
+        return conditions;
+    }
+
+    private boolean needsReader(TypeElement type) {
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            String name = annotationName(annotation);
+            if (ON_CLASS.equals(name) || ON_MISSING_CLASS.equals(name)) {
+                continue;
+            }
+            if (DEFINITION_ANNOTATIONS.contains(name) || CONDITIONAL.equals(name)
+                    || isAnnotated(annotation.getAnnotationType().asElement(), CONDITIONAL, new HashSet<>())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean canUseConstructorReference(TypeElement type) {
+        if (!type.getModifiers().contains(Modifier.PUBLIC) || isAnnotated(type, CONFIGURATION, new HashSet<>())) {
+            return false;
+        }
+        for (Element enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement;
+             enclosing = enclosing.getEnclosingElement()) {
+            if (!enclosing.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+        }
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        return constructors.size() == 1 && constructors.get(0).getParameters().isEmpty()
+                && constructors.get(0).getModifiers().contains(Modifier.PUBLIC);
+    }
+
+    /**
+     * 直接标注的stereotype注解的value,没有时是简单类名首字母小写(嵌套类是Outer.Inner)
+     */
+    private String beanName(TypeElement type) {
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            if (!isAnnotated(annotation.getAnnotationType().asElement(), COMPONENT, new HashSet<>())
+                    && !COMPONENT.equals(annotationName(annotation))) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : annotation.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value")
+                        && entry.getValue().getValue() instanceof String
+                        && !((String) entry.getValue().getValue()).isEmpty()) {
+                    return (String) entry.getValue().getValue();
+                }
+            }
+        }
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String shortName = binaryName.substring(binaryName.lastIndexOf('.') + 1).replace('$', '.');
+        return decapitalize(shortName);
+    }
+
+    /**
+     * 和java.beans.Introspector.decapitalize一样:前两个字母都是大写时保持不变
+     */
+    static String decapitalize(String name) {
+        if (name.isEmpty() || (name.length() > 1 && Character.isUpperCase(name.charAt(1))
+                && Character.isUpperCase(name.charAt(0)))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private boolean isAnnotated(Element element, String annotationName, Set<String> visited) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            String name = annotationName(annotation);
+            if (name.equals(annotationName)) {
+                return true;
+            }
+            if (!name.startsWith("java.lang.annotation.") && visited.add(name)
+                    && isAnnotated(annotation.getAnnotationType().asElement(), annotationName, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String annotationName(AnnotationMirror annotation) {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    /**
+     * value和name属性里的类名;编译期找不到的Class引用返回null
+     */
+    private List<String> classNames(AnnotationMirror annotation) {
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : annotation.getElementValues().entrySet()) {
+            Object value = entry.getValue().getValue();
+            List<?> values = value instanceof List ? (List<?>) value : Collections.singletonList(entry.getValue());
+            for (Object item : values) {
+                Object itemValue = ((AnnotationValue) item).getValue();
+                if (itemValue instanceof String) {
+                    names.add((String) itemValue);
+                } else if (itemValue instanceof TypeMirror) {
+                    TypeMirror typeMirror = (TypeMirror) itemValue;
+                    names.add(typeMirror.getKind() == TypeKind.DECLARED
+                            ? ((TypeElement) ((DeclaredType) typeMirror).asElement()).getQualifiedName().toString()
+                            : null);
+                }
+            }
+        }
+        return names;
+    }
+}
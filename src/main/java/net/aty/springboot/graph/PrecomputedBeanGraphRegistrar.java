@@ -0,0 +1,67 @@
+package net.aty.springboot.graph;
+
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.AnnotatedBeanDefinitionReader;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
+
+import java.util.function.Supplier;
+
+/**
+ * BeanGraphProcessor生成的注册器的父类:编译期已经扫描好组件、取出了@ConditionalOnClass的类名,
+ * 启动时只检查这些类在不在,然后直接注册RootBeanDefinition,不再扫描classpath、不再解析组件的注解
+ * <p>
+ * 编译期判断不了的条件(@ConditionalOnProperty、@Profile等)和@Lazy、@Scope等交给AnnotatedBeanDefinitionReader,
+ * 和扫描时的处理一样
+ */
+public abstract class PrecomputedBeanGraphRegistrar implements ImportBeanDefinitionRegistrar, EnvironmentAware,
+        BeanClassLoaderAware {
+
+    private Environment environment;
+
+    private ClassLoader classLoader;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public final void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+        register(registry);
+    }
+
+    protected abstract void register(BeanDefinitionRegistry registry);
+
+    /**
+     * supplier为null时由Spring推断构造器;@Configuration类不能用supplier,否则拿到的不是CGLIB增强后的实例
+     */
+    protected <T> void component(BeanDefinitionRegistry registry, String beanName, Class<T> type, Supplier<T> supplier) {
+        RootBeanDefinition definition = new RootBeanDefinition(type);
+        if (supplier != null) {
+            definition.setInstanceSupplier(supplier);
+        }
+        registry.registerBeanDefinition(beanName, definition);
+    }
+
+    /**
+     * 和OnClassCondition一样用bean的ClassLoader判断,没有设置时用默认的ClassLoader
+     */
+    protected boolean present(String className) {
+        return ClassUtils.isPresent(className, classLoader);
+    }
+
+    protected void annotated(BeanDefinitionRegistry registry, Class<?> type) {
+        new AnnotatedBeanDefinitionReader(registry, environment).registerBean(type);
+    }
+}
@@ -0,0 +1,20 @@
+package net.aty.springboot.graph;
+
+import org.springframework.context.annotation.ImportSelector;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
+
+/**
+ * 按名称导入生成的PrecomputedBeanGraph和PrecomputedComponentScan:第一遍编译时还没有这两个类,不能直接@Import
+ */
+public class PrecomputedBeanGraphSelector implements ImportSelector {
+
+    @Override
+    public String[] selectImports(AnnotationMetadata importingClassMetadata) {
+        if (!ClassUtils.isPresent(BeanGraphProcessor.GENERATED_CLASS, getClass().getClassLoader())) {
+            throw new IllegalStateException(BeanGraphProcessor.GENERATED_CLASS
+                    + " not found, compile with net.aty.springboot.graph.BeanGraphProcessor");
+        }
+        return new String[]{BeanGraphProcessor.GENERATED_CLASS, BeanGraphProcessor.GENERATED_SCAN_CLASS};
+    }
+}
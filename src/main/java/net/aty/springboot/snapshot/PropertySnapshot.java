@@ -0,0 +1,109 @@
+package net.aty.springboot.snapshot;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * 属性快照的二进制格式,全部是big endian:
+ * <pre>
+ * header  magic(int) version(int) sourceLength(long) sourceModified(long) sourceChecksum(long) count(int) keyPoolLength(int)
+ * table   count个条目,按key的UTF-8字节排序,每个条目 keyOffset keyLength valueOffset valueLength(都是int)
+ * pool    UTF-8字符串池,相同的字符串只存一份,offset相对于pool的开头;
+ *         所有key排在前keyPoolLength个字节里,枚举属性名时只需要一次性读取这一段
+ * </pre>
+ * sourceLength、sourceModified和sourceChecksum是原始属性文件的字节数、修改时间(毫秒)和CRC32,
+ * 加载时字节数不一致就是过期,字节数和修改时间都一致直接使用,只有修改时间变了才再比较CRC32;
+ * 快照按Properties.load的默认编码(ISO-8859-1)解析属性文件
+ */
+public final class PropertySnapshot {
+
+    static final int MAGIC = 0x41505331;
+
+    static final int VERSION = 3;
+
+    static final int HEADER_SIZE = 40;
+
+    static final int ENTRY_SIZE = 16;
+
+    private PropertySnapshot() {
+    }
+
+    public static long checksum(byte[] source) {
+        CRC32 crc = new CRC32();
+        crc.update(source, 0, source.length);
+        return crc.getValue();
+    }
+
+    public static void write(Map<String, String> properties, long sourceLength, long sourceModified, long sourceChecksum,
+                             OutputStream out)
+            throws IOException {
+        // 按UTF-8字节排序,加载时直接在字节上二分查找
+        TreeMap<byte[], byte[]> sorted = new TreeMap<>(PropertySnapshot::compare);
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            sorted.put(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+
+        Map<ByteBuffer, Integer> offsets = new HashMap<>();
+        List<byte[]> pool = new ArrayList<>();
+        int[] poolSize = {0};
+        int[] table = new int[sorted.size() * 4];
+        int index = 0;
+        for (Map.Entry<byte[], byte[]> entry : sorted.entrySet()) {
+            table[index] = intern(entry.getKey(), offsets, pool, poolSize);
+            table[index + 1] = entry.getKey().length;
+            index += 4;
+        }
+        int keyPoolLength = poolSize[0];
+        index = 0;
+        for (byte[] value : sorted.values()) {
+            table[index + 2] = intern(value, offsets, pool, poolSize);
+            table[index + 3] = value.length;
+            index += 4;
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(sourceLength);
+        data.writeLong(sourceModified);
+        data.writeLong(sourceChecksum);
+        data.writeInt(sorted.size());
+        data.writeInt(keyPoolLength);
+        for (int value : table) {
+            data.writeInt(value);
+        }
+        for (byte[] bytes : pool) {
+            data.write(bytes);
+        }
+        data.flush();
+    }
+
+    private static int intern(byte[] bytes, Map<ByteBuffer, Integer> offsets, List<byte[]> pool, int[] poolSize) {
+        return offsets.computeIfAbsent(ByteBuffer.wrap(bytes), key -> {
+            int offset = poolSize[0];
+            pool.add(bytes);
+            poolSize[0] += bytes.length;
+            return offset;
+        });
+    }
+
+    static int compare(byte[] left, byte[] right) {
+        int length = Math.min(left.length, right.length);
+        for (int i = 0; i < length; i++) {
+            int diff = (left[i] & 0xff) - (right[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return left.length - right.length;
+    }
+}
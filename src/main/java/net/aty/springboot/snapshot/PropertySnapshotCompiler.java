@@ -0,0 +1,50 @@
+package net.aty.springboot.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 构建时把属性文件编译成快照:mvn -P property-snapshot package
+ * <p>
+ * 参数:输出目录(一般是target/classes) 属性文件1 属性文件2...,属性文件路径相对于输出目录,
+ * 快照写在属性文件旁边,文件名加上.snap后缀
+ */
+public class PropertySnapshotCompiler {
+
+    public static final String SUFFIX = ".snap";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: PropertySnapshotCompiler <classes dir> <properties file>...");
+            System.exit(1);
+        }
+        File dir = new File(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            File source = new File(dir, args[i]);
+            File target = compile(source);
+            System.out.println("compiled " + source + " -> " + target + " (" + target.length() + " bytes)");
+        }
+    }
+
+    public static File compile(File source) throws Exception {
+        // 校验和与解析用的是同一份字节
+        byte[] bytes = Files.readAllBytes(source.toPath());
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(bytes));
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            values.put(name, properties.getProperty(name));
+        }
+        File target = new File(source.getPath() + SUFFIX);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target.toPath()))) {
+            PropertySnapshot.write(values, bytes.length, source.lastModified(), PropertySnapshot.checksum(bytes), out);
+        }
+        return target;
+    }
+}
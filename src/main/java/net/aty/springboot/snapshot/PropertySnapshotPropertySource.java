@@ -0,0 +1,138 @@
+package net.aty.springboot.snapshot;
+
+import org.springframework.core.env.EnumerablePropertySource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 从PropertySnapshot格式的buffer(一般是mmap)读取属性,不做文本解析;
+ * key按字节二分查找,value第一次读取时才解码成String
+ */
+public class PropertySnapshotPropertySource extends EnumerablePropertySource<ByteBuffer> {
+
+    private final int count;
+
+    private final int poolOffset;
+
+    private final int keyPoolLength;
+
+    private final long sourceLength;
+
+    private final long sourceModified;
+
+    private final long sourceChecksum;
+
+    private final String[] values;
+
+    private volatile String[] names;
+
+    public PropertySnapshotPropertySource(String name, ByteBuffer buffer) {
+        super(name, buffer.asReadOnlyBuffer());
+        if (!isCurrentFormat(buffer)) {
+            throw new IllegalArgumentException("Not a property snapshot: " + name);
+        }
+        this.sourceLength = buffer.getLong(8);
+        this.sourceModified = buffer.getLong(16);
+        this.sourceChecksum = buffer.getLong(24);
+        this.count = buffer.getInt(32);
+        this.keyPoolLength = buffer.getInt(36);
+        this.poolOffset = PropertySnapshot.HEADER_SIZE + count * PropertySnapshot.ENTRY_SIZE;
+        this.values = new String[count];
+    }
+
+    public static boolean isCurrentFormat(ByteBuffer buffer) {
+        return buffer.limit() >= PropertySnapshot.HEADER_SIZE && buffer.getInt(0) == PropertySnapshot.MAGIC
+                && buffer.getInt(4) == PropertySnapshot.VERSION;
+    }
+
+    public long getSourceLength() {
+        return sourceLength;
+    }
+
+    public long getSourceModified() {
+        return sourceModified;
+    }
+
+    public long getSourceChecksum() {
+        return sourceChecksum;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        String value = values[index];
+        if (value == null) {
+            int entry = PropertySnapshot.HEADER_SIZE + index * PropertySnapshot.ENTRY_SIZE;
+            value = decode(source.getInt(entry + 8), source.getInt(entry + 12));
+            values[index] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsProperty(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        String[] current = names;
+        if (current == null) {
+            byte[] keys = new byte[keyPoolLength];
+            ByteBuffer slice = source.duplicate();
+            slice.position(poolOffset);
+            slice.get(keys);
+            current = new String[count];
+            for (int i = 0; i < count; i++) {
+                int entry = PropertySnapshot.HEADER_SIZE + i * PropertySnapshot.ENTRY_SIZE;
+                current[i] = new String(keys, source.getInt(entry), source.getInt(entry + 4), StandardCharsets.UTF_8);
+            }
+            names = current;
+        }
+        return current.clone();
+    }
+
+    private int indexOf(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareKey(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareKey(int index, byte[] key) {
+        int entry = PropertySnapshot.HEADER_SIZE + index * PropertySnapshot.ENTRY_SIZE;
+        int offset = poolOffset + source.getInt(entry);
+        int length = source.getInt(entry + 4);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int diff = (source.get(offset + i) & 0xff) - (key[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length;
+    }
+
+    private String decode(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = source.duplicate();
+        slice.position(poolOffset + offset);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
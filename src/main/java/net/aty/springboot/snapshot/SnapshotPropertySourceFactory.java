@@ -0,0 +1,93 @@
+package net.aty.springboot.snapshot;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PropertySourceFactory;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 属性文件旁边有构建时生成的.snap快照时直接加载快照(文件系统上的用mmap,jar里的读进内存),
+ * 没有快照、快照和属性文件的大小对不上时退回到ResourcePropertySource;大小和修改时间都一致时直接用快照,
+ * 不再读属性文件,只有修改时间变了(重新拷贝、touch或者编辑)才读取属性文件比较CRC32;
+ * 指定了编码(@PropertySource的encoding)时快照的解析方式和它不一致,也退回到ResourcePropertySource
+ * <p>
+ * 用法:@PropertySource(value = "classpath:user.properties", factory = SnapshotPropertySourceFactory.class)
+ */
+public class SnapshotPropertySourceFactory implements PropertySourceFactory {
+
+    private static final Log logger = LogFactory.getLog(SnapshotPropertySourceFactory.class);
+
+    @Override
+    public PropertySource<?> createPropertySource(String name, EncodedResource resource) throws IOException {
+        if (resource.getEncoding() != null || resource.getCharset() != null) {
+            return name != null ? new ResourcePropertySource(name, resource) : new ResourcePropertySource(resource);
+        }
+        return load(name, resource.getResource());
+    }
+
+    public static EnumerablePropertySource<?> load(Resource resource) throws IOException {
+        return load(null, resource);
+    }
+
+    public static EnumerablePropertySource<?> load(String name, Resource resource) throws IOException {
+        String sourceName = name != null ? name : resource.getDescription();
+        Resource snapshot = resource.createRelative(resource.getFilename() + PropertySnapshotCompiler.SUFFIX);
+        if (snapshot.exists()) {
+            ByteBuffer buffer = read(snapshot);
+            // 旧版本的快照格式不同,和过期一样处理
+            if (PropertySnapshotPropertySource.isCurrentFormat(buffer)) {
+                PropertySnapshotPropertySource propertySource = new PropertySnapshotPropertySource(sourceName, buffer);
+                if (isUpToDate(propertySource, resource)) {
+                    return propertySource;
+                }
+            }
+            logger.warn("Ignoring stale property snapshot " + snapshot.getDescription());
+        }
+        return name != null ? new ResourcePropertySource(name, resource) : new ResourcePropertySource(resource);
+    }
+
+    private static boolean isUpToDate(PropertySnapshotPropertySource snapshot, Resource resource) throws IOException {
+        if (snapshot.getSourceLength() != resource.contentLength()) {
+            return false;
+        }
+        return snapshot.getSourceModified() == lastModified(resource) || snapshot.getSourceChecksum() == checksum(resource);
+    }
+
+    /**
+     * 拿不到修改时间(比如某些自定义Resource)时返回-1,一定会走CRC32比较
+     */
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static long checksum(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return PropertySnapshot.checksum(in.readAllBytes());
+        }
+    }
+
+    private static ByteBuffer read(Resource snapshot) throws IOException {
+        if (snapshot.isFile()) {
+            try (FileChannel channel = FileChannel.open(snapshot.getFile().toPath(), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        try (InputStream in = snapshot.getInputStream()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package net.aty.springboot.startup;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+
+/**
+ * 排在所有BeanPostProcessor最前面(由StartupTimelineInitializer直接加到beanFactory上):
+ * 实例化之前开始一帧,实例化之后标记instantiate结束,所有初始化后处理之前标记init结束
+ */
+class BeanTimelineFirstPostProcessor implements InstantiationAwareBeanPostProcessor, PriorityOrdered {
+
+    private final StartupTimeline timeline;
+
+    BeanTimelineFirstPostProcessor(StartupTimeline timeline) {
+        this.timeline = timeline;
+    }
+
+    @Override
+    public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
+        timeline.begin(StartupTimeline.KIND_BEAN, beanName);
+        return null;
+    }
+
+    @Override
+    public boolean postProcessAfterInstantiation(Object bean, String beanName) throws BeansException {
+        StartupTimeline.Frame frame = timeline.currentBean(beanName);
+        if (frame != null) {
+            frame.mark(0);
+        }
+        return true;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        StartupTimeline.Frame frame = timeline.currentBean(beanName);
+        if (frame != null) {
+            frame.mark(3);
+            if (!timeline.isClosingPostProcessorActive()) {
+                timeline.end(frame);
+            }
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,65 @@
+package net.aty.springboot.startup;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValues;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.Ordered;
+
+/**
+ * 排在AutowiredAnnotationBeanPostProcessor、CommonAnnotationBeanPostProcessor之后:
+ * Spring把MergedBeanDefinitionPostProcessor当成内部处理器重新排到最后,
+ * 这里也实现这个接口并且只实现Ordered,才能排在那两个PriorityOrdered的处理器后面
+ * <p>
+ * 属性注入完成时标记inject结束,初始化前处理都完成时标记init开始,最后一个初始化后处理时结束这一帧
+ */
+class BeanTimelineLastPostProcessor implements InstantiationAwareBeanPostProcessor, MergedBeanDefinitionPostProcessor,
+        Ordered {
+
+    private final StartupTimeline timeline;
+
+    BeanTimelineLastPostProcessor(StartupTimeline timeline) {
+        this.timeline = timeline;
+    }
+
+    @Override
+    public void postProcessMergedBeanDefinition(RootBeanDefinition beanDefinition, Class<?> beanType, String beanName) {
+        if (!timeline.isClosingPostProcessorActive()) {
+            timeline.closingPostProcessorActivated();
+        }
+    }
+
+    @Override
+    public PropertyValues postProcessProperties(PropertyValues pvs, Object bean, String beanName) throws BeansException {
+        StartupTimeline.Frame frame = timeline.currentBean(beanName);
+        if (frame != null) {
+            frame.mark(1);
+        }
+        return pvs;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        StartupTimeline.Frame frame = timeline.currentBean(beanName);
+        if (frame != null) {
+            frame.mark(1);
+            frame.mark(2);
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        StartupTimeline.Frame frame = timeline.currentBean(beanName);
+        if (frame != null) {
+            timeline.end(frame);
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,60 @@
+package net.aty.springboot.startup;
+
+import org.springframework.boot.context.properties.ConfigurationPropertiesBindHandlerAdvisor;
+import org.springframework.boot.context.properties.bind.AbstractBindHandler;
+import org.springframework.boot.context.properties.bind.BindContext;
+import org.springframework.boot.context.properties.bind.BindHandler;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+
+/**
+ * 记录@ConfigurationProperties绑定的耗时,每个前缀(user.aty、spring.redis)一帧,挂在正在创建的bean下面
+ */
+class BindingTimelineAdvisor implements ConfigurationPropertiesBindHandlerAdvisor {
+
+    private final StartupTimeline timeline;
+
+    BindingTimelineAdvisor(StartupTimeline timeline) {
+        this.timeline = timeline;
+    }
+
+    @Override
+    public BindHandler apply(BindHandler bindHandler) {
+        return new AbstractBindHandler(bindHandler) {
+
+            private StartupTimeline.Frame frame;
+
+            @Override
+            public <T> Bindable<T> onStart(ConfigurationPropertyName name, Bindable<T> target, BindContext context) {
+                if (context.getDepth() == 0) {
+                    frame = timeline.begin(StartupTimeline.KIND_BIND, name.toString());
+                }
+                return super.onStart(name, target, context);
+            }
+
+            @Override
+            public void onFinish(ConfigurationPropertyName name, Bindable<?> target, BindContext context,
+                                 Object result) throws Exception {
+                super.onFinish(name, target, context, result);
+                finish(context);
+            }
+
+            @Override
+            public Object onFailure(ConfigurationPropertyName name, Bindable<?> target, BindContext context,
+                                    Exception error) throws Exception {
+                try {
+                    return super.onFailure(name, target, context, error);
+                } finally {
+                    finish(context);
+                }
+            }
+
+            private void finish(BindContext context) {
+                if (context.getDepth() == 0 && frame != null) {
+                    timeline.end(frame);
+                    frame = null;
+                }
+            }
+        };
+    }
+}
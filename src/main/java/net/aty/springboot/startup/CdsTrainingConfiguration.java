@@ -0,0 +1,25 @@
+package net.aty.springboot.startup;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * --aty.cds.training=true时启用AppCDS训练运行,见CdsTrainingRunner
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "aty.cds", name = "training")
+public class CdsTrainingConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "aty.cds")
+    public CdsTrainingProperties cdsTrainingProperties() {
+        return new CdsTrainingProperties();
+    }
+
+    @Bean
+    public CdsTrainingRunner cdsTrainingRunner(CdsTrainingProperties cdsTrainingProperties) {
+        return new CdsTrainingRunner(cdsTrainingProperties);
+    }
+}
@@ -0,0 +1,51 @@
+package net.aty.springboot.startup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * aty.cds.*配置
+ */
+public class CdsTrainingProperties {
+
+    /**
+     * 为true时应用启动完成后请求一遍下面的路径然后退出,配合-XX:ArchiveClassesAtExit生成AppCDS归档
+     */
+    private boolean training;
+
+    /**
+     * 每个路径请求的次数,让懒加载的类(消息转换、序列化、admin的轮询)都被加载
+     */
+    private int trainingRounds = 3;
+
+    private List<String> trainingPaths = new ArrayList<>(Arrays.asList(
+            "/actuator", "/actuator/health", "/actuator/info", "/actuator/metrics",
+            "/actuator/metrics/jvm.memory.used", "/actuator/prometheus", "/actuator/env", "/actuator/beans",
+            "/actuator/configprops", "/actuator/loggers", "/actuator/startuptimeline", "/actuator/orderhistory",
+            "/metrics/prometheus", "/applications", "/instances", "/"));
+
+    public boolean isTraining() {
+        return training;
+    }
+
+    public void setTraining(boolean training) {
+        this.training = training;
+    }
+
+    public int getTrainingRounds() {
+        return trainingRounds;
+    }
+
+    public void setTrainingRounds(int trainingRounds) {
+        this.trainingRounds = trainingRounds;
+    }
+
+    public List<String> getTrainingPaths() {
+        return trainingPaths;
+    }
+
+    public void setTrainingPaths(List<String> trainingPaths) {
+        this.trainingPaths = trainingPaths;
+    }
+}
@@ -0,0 +1,82 @@
+package net.aty.springboot.startup;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * AppCDS的训练运行:启动完成后在单独的线程里把actuator、admin的接口各请求几遍,然后正常关闭并退出jvm,
+ * -XX:ArchiveClassesAtExit在退出时把加载过的类写进归档
+ * <p>
+ * mvn -P cds-training package生成target/cds/aty.jsa,之后mvn exec:exec@run自动带上-XX:SharedArchiveFile启动;
+ * 容器里直接用java -XX:SharedArchiveFile=aty.jsa -jar aty.jar,归档和jar不匹配时jvm会忽略归档
+ */
+public class CdsTrainingRunner implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Log logger = LogFactory.getLog(CdsTrainingRunner.class);
+
+    private final CdsTrainingProperties properties;
+
+    public CdsTrainingRunner(CdsTrainingProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        if (!(context instanceof WebServerApplicationContext)) {
+            return;
+        }
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        Thread thread = new Thread(() -> {
+            train(port);
+            System.exit(SpringApplication.exit(context));
+        }, "cds-training");
+        thread.start();
+    }
+
+    private void train(int port) {
+        long start = System.nanoTime();
+        int requests = 0;
+        int failures = 0;
+        for (int round = 0; round < properties.getTrainingRounds(); round++) {
+            for (String path : properties.getTrainingPaths()) {
+                requests++;
+                if (!request("http://localhost:" + port + path)) {
+                    failures++;
+                }
+            }
+        }
+        logger.info(String.format("cds training sent %d requests (%d failed) in %.1fms, exiting", requests, failures,
+                (System.nanoTime() - start) / 1e6));
+    }
+
+    private static boolean request(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(30000);
+            int status = connection.getResponseCode();
+            InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (body != null) {
+                try (InputStream in = body) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            return status < 400;
+        } catch (IOException e) {
+            logger.warn("cds training request " + url + " failed: " + e.getMessage());
+            return false;
+        }
+    }
+}
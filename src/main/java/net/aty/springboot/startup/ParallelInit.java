@@ -0,0 +1,19 @@
+package net.aty.springboot.startup;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注的InitializingBean在aty.startup.parallel-init.enabled=true时,afterPropertiesSet不在创建bean时调用,
+ * 而是等所有单例创建完之后由ParallelInitBeanPostProcessor按依赖顺序并发调用
+ * <p>
+ * 只适合没有其他bean在初始化阶段直接调用它的叶子bean,比如启动时打印、注册metric的服务
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ParallelInit {
+}
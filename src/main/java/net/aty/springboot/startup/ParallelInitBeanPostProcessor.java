@@ -0,0 +1,346 @@
+package net.aty.springboot.startup;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * 并发执行@ParallelInit bean的afterPropertiesSet:
+ * <ol>
+ * <li>合并bean定义时把afterPropertiesSet登记成外部管理的初始化方法,创建bean时Spring就不再调用它</li>
+ * <li>所有单例创建完之后,沿着beanFactory记录的依赖关系(穿过不需要延迟初始化的bean)建出这些bean之间的依赖图</li>
+ * <li>没有未完成依赖的bean提交到有界线程池,完成后再释放依赖它的bean,全部完成后才继续启动(lifecycle的start在这之后)</li>
+ * <li>最后按每个bean的耗时算出关键路径并打印,关键路径上的耗时之和就是这个阶段至少要花的时间</li>
+ * </ol>
+ * 任何一个afterPropertiesSet抛异常都会让启动失败
+ */
+public class ParallelInitBeanPostProcessor implements MergedBeanDefinitionPostProcessor, SmartInitializingSingleton,
+        BeanFactoryAware {
+
+    private static final Log logger = LogFactory.getLog(ParallelInitBeanPostProcessor.class);
+
+    private static final String INIT_METHOD = "afterPropertiesSet";
+
+    private final int threads;
+
+    private final Set<String> deferred = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean finished;
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    private volatile List<Timing> lastTimings = Collections.emptyList();
+
+    public ParallelInitBeanPostProcessor(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+    }
+
+    @Override
+    public void postProcessMergedBeanDefinition(RootBeanDefinition beanDefinition, Class<?> beanType, String beanName) {
+        // 启动阶段结束之后才创建的bean(懒加载、原型)没有人再调用它的afterPropertiesSet,按原来的方式初始化
+        if (finished || !beanDefinition.isSingleton() || beanDefinition.isLazyInit()
+                || !InitializingBean.class.isAssignableFrom(beanType)
+                || !AnnotatedElementUtils.hasAnnotation(beanType, ParallelInit.class)) {
+            return;
+        }
+        beanDefinition.registerExternallyManagedInitMethod(INIT_METHOD);
+        deferred.add(beanName);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        finished = true;
+        if (deferred.isEmpty()) {
+            return;
+        }
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        for (String beanName : deferred) {
+            dependencies.put(beanName, deferredDependencies(beanName));
+            warnEarlyUsers(beanName);
+        }
+        lastTimings = run(dependencies);
+        report(lastTimings);
+    }
+
+    /**
+     * 上一次并发初始化每个bean的耗时,按开始时间排序
+     */
+    public List<Timing> getTimings() {
+        return lastTimings;
+    }
+
+    /**
+     * 沿beanFactory记录的依赖往下找,遇到需要延迟初始化的bean就停下,它自己的依赖由它负责等待
+     */
+    private Set<String> deferredDependencies(String beanName) {
+        Set<String> result = new LinkedHashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> stack = new ArrayDeque<>();
+        Collections.addAll(stack, beanFactory.getDependenciesForBean(beanName));
+        while (!stack.isEmpty()) {
+            String dependency = stack.pop();
+            if (!visited.add(dependency) || dependency.equals(beanName)) {
+                continue;
+            }
+            if (deferred.contains(dependency)) {
+                result.add(dependency);
+            } else {
+                Collections.addAll(stack, beanFactory.getDependenciesForBean(dependency));
+            }
+        }
+        return result;
+    }
+
+    private void warnEarlyUsers(String beanName) {
+        List<String> users = new ArrayList<>();
+        for (String dependent : beanFactory.getDependentBeans(beanName)) {
+            if (!deferred.contains(dependent)) {
+                users.add(dependent);
+            }
+        }
+        if (!users.isEmpty() && logger.isDebugEnabled()) {
+            logger.debug(beanName + " is injected into " + users + ", they must not use it during their own initialization");
+        }
+    }
+
+    private List<Timing> run(Map<String, Set<String>> dependencies) {
+        checkAcyclic(dependencies);
+        Map<String, List<String>> dependents = new HashMap<>();
+        Map<String, AtomicInteger> pending = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            pending.put(entry.getKey(), new AtomicInteger(entry.getValue().size()));
+            for (String dependency : entry.getValue()) {
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, dependencies.size()), runnable -> {
+            Thread thread = new Thread(runnable, "parallel-init-" + threadIndex.incrementAndGet());
+            thread.setContextClassLoader(classLoader);
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, Timing> timings = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(dependencies.size());
+        AtomicReference<BeanCreationException> failure = new AtomicReference<>();
+        long origin = System.nanoTime();
+        // 任务之间互相提交,先把所有任务建好再开始执行
+        Map<String, Runnable> tasks = new HashMap<>();
+        for (String beanName : dependencies.keySet()) {
+            tasks.put(beanName, () -> {
+                long start = System.nanoTime();
+                try {
+                    if (failure.get() == null) {
+                        ((InitializingBean) beanFactory.getBean(beanName)).afterPropertiesSet();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, new BeanCreationException(beanName, "Parallel " + INIT_METHOD + " failed", e));
+                }
+                timings.put(beanName, new Timing(beanName, start - origin, System.nanoTime() - start,
+                        Thread.currentThread().getName(), dependencies.get(beanName)));
+                for (String dependent : dependents.getOrDefault(beanName, Collections.emptyList())) {
+                    if (pending.get(dependent).decrementAndGet() == 0) {
+                        executor.execute(tasks.get(dependent));
+                    }
+                }
+                done.countDown();
+            });
+        }
+        try {
+            for (String beanName : dependencies.keySet()) {
+                if (pending.get(beanName).get() == 0) {
+                    executor.execute(tasks.get(beanName));
+                }
+            }
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeanCreationException("Interrupted while waiting for parallel " + INIT_METHOD);
+        } finally {
+            executor.shutdown();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        List<Timing> result = new ArrayList<>(timings.values());
+        result.sort(Comparator.comparingLong(Timing::getStartNanos));
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 单例之间的构造器循环依赖Spring自己就会报错,这里只是防止依赖图有环时永远等下去
+     */
+    private static void checkAcyclic(Map<String, Set<String>> dependencies) {
+        Map<String, Integer> state = new HashMap<>();
+        for (String beanName : dependencies.keySet()) {
+            visit(beanName, dependencies, state, new ArrayDeque<>());
+        }
+    }
+
+    private static void visit(String beanName, Map<String, Set<String>> dependencies, Map<String, Integer> state,
+                              Deque<String> path) {
+        Integer current = state.get(beanName);
+        if (current != null && current == 2) {
+            return;
+        }
+        path.push(beanName);
+        if (current != null) {
+            throw new BeanCreationException(beanName, "Cycle between parallel initialized beans: " + path);
+        }
+        state.put(beanName, 1);
+        for (String dependency : dependencies.get(beanName)) {
+            visit(dependency, dependencies, state, path);
+        }
+        state.put(beanName, 2);
+        path.pop();
+    }
+
+    /**
+     * 关键路径:每个bean的路径耗时 = 自己的耗时 + 依赖里最大的路径耗时,取最大的那条往回找
+     */
+    static List<Timing> criticalPath(List<Timing> timings) {
+        Map<String, Timing> byName = new HashMap<>();
+        for (Timing timing : timings) {
+            byName.put(timing.beanName, timing);
+        }
+        Map<String, Long> cost = new HashMap<>();
+        Timing last = null;
+        for (Timing timing : timings) {
+            long total = pathCost(timing, byName, cost);
+            if (last == null || total > cost.get(last.beanName)) {
+                last = timing;
+            }
+        }
+        List<Timing> path = new ArrayList<>();
+        while (last != null) {
+            path.add(0, last);
+            Timing next = null;
+            for (String dependency : last.dependencies) {
+                Timing candidate = byName.get(dependency);
+                if (candidate != null && (next == null || cost.get(dependency) > cost.get(next.beanName))) {
+                    next = candidate;
+                }
+            }
+            last = next;
+        }
+        return path;
+    }
+
+    private static long pathCost(Timing timing, Map<String, Timing> byName, Map<String, Long> cost) {
+        Long cached = cost.get(timing.beanName);
+        if (cached != null) {
+            return cached;
+        }
+        long max = 0;
+        for (String dependency : timing.dependencies) {
+            Timing candidate = byName.get(dependency);
+            if (candidate != null) {
+                max = Math.max(max, pathCost(candidate, byName, cost));
+            }
+        }
+        long total = timing.durationNanos + max;
+        cost.put(timing.beanName, total);
+        return total;
+    }
+
+    private void report(List<Timing> timings) {
+        long serial = 0;
+        long wall = 0;
+        for (Timing timing : timings) {
+            serial += timing.durationNanos;
+            wall = Math.max(wall, timing.startNanos + timing.durationNanos);
+        }
+        List<Timing> path = criticalPath(timings);
+        long critical = path.stream().mapToLong(Timing::getDurationNanos).sum();
+        logger.info(String.format("parallel %s of %d beans on %d threads took %.1fms (serial %.1fms, critical path %.1fms): %s",
+                INIT_METHOD, timings.size(), Math.min(threads, timings.size()), wall / 1e6, serial / 1e6, critical / 1e6,
+                path.stream().map(Timing::toString).collect(Collectors.joining(" -> "))));
+        if (logger.isDebugEnabled()) {
+            timings.forEach(timing -> logger.debug(timing + " on " + timing.threadName + " after " + timing.dependencies));
+        }
+    }
+
+    /**
+     * 一个bean的afterPropertiesSet在并发初始化阶段里的开始时间(相对阶段开始)和耗时
+     */
+    public static final class Timing {
+
+        private final String beanName;
+
+        private final long startNanos;
+
+        private final long durationNanos;
+
+        private final String threadName;
+
+        private final Set<String> dependencies;
+
+        Timing(String beanName, long startNanos, long durationNanos, String threadName, Set<String> dependencies) {
+            this.beanName = beanName;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.threadName = threadName;
+            this.dependencies = dependencies;
+        }
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public Set<String> getDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%.1fms)", beanName, durationNanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package net.aty.springboot.startup;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * aty.startup.parallel-init.enabled=true时并发执行@ParallelInit bean的afterPropertiesSet
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "aty.startup.parallel-init", name = "enabled")
+public class ParallelInitConfiguration {
+
+    /**
+     * BeanPostProcessor要在普通bean之前创建,这时@ConfigurationProperties还没法绑定,直接用Binder读取配置
+     */
+    @Bean
+    public static ParallelInitBeanPostProcessor parallelInitBeanPostProcessor(Environment environment) {
+        ParallelInitProperties properties = Binder.get(environment)
+                .bind("aty.startup.parallel-init", ParallelInitProperties.class)
+                .orElseGet(ParallelInitProperties::new);
+        return new ParallelInitBeanPostProcessor(properties.getThreads());
+    }
+}
@@ -0,0 +1,38 @@
+package net.aty.springboot.startup;
+
+/**
+ * aty.startup.parallel-init.*配置
+ */
+public class ParallelInitProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * 并发执行afterPropertiesSet的线程数,默认不超过4和cpu核数
+     */
+    private int threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelInitProperties{" +
+                "enabled=" + enabled +
+                ", threads=" + threads +
+                '}';
+    }
+}
@@ -0,0 +1,340 @@
+package net.aty.springboot.startup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 启动过程的时间线:每个线程一个栈,bean的创建、配置绑定都是栈上的一帧,
+ * 在另一帧进行中开始的帧是它的子帧(比如注入时顺带创建的依赖bean)
+ * <p>
+ * Spring没有包住单个条件判断的扩展点,条件判断的耗时不单独计时:配置类解析阶段整体计时,结束时按
+ * ConditionEvaluationReport里每个类判断过的条件个数把这段时间分摊到各个类上,是估算值
+ * <p>
+ * bean帧按阶段划分:instantiate(构造) inject(@Autowired等属性注入) post-process(初始化前的BeanPostProcessor,
+ * 包括配置绑定和@PostConstruct) init(afterPropertiesSet和init-method) after-init(代理等初始化后的处理)。
+ * 每个阶段的自身耗时扣掉了这个阶段里子帧的耗时,按调用栈汇总后就是火焰图的collapsed格式
+ */
+public class StartupTimeline {
+
+    public static final String BEAN_NAME = "startupTimeline";
+
+    static final String KIND_BEAN = "bean";
+
+    static final String KIND_BIND = "bind";
+
+    static final String KIND_CONDITION = "condition";
+
+    static final String[] BEAN_PHASES = {"instantiate", "inject", "post-process", "init", "after-init"};
+
+    private static final String[] SELF_PHASE = {"self"};
+
+    private final long origin = System.nanoTime();
+
+    private final ThreadLocal<Deque<Frame>> stacks = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private volatile long configurationStart;
+
+    private volatile long configurationEnd;
+
+    private volatile long attributedMicros;
+
+    private volatile long ready;
+
+    private volatile boolean closingPostProcessorActive;
+
+    private volatile Path collapsedStacksFile;
+
+    public Frame begin(String kind, String name) {
+        Deque<Frame> stack = stacks.get();
+        Frame parent = stack.peek();
+        long now = System.nanoTime();
+        Frame frame = new Frame(kind, name, parent, parent == null ? -1 : parent.phaseAt(now), now);
+        stack.push(frame);
+        return frame;
+    }
+
+    /**
+     * 当前线程栈顶的帧是指定的bean时返回它;FactoryBean生产的对象、synthetic的bean等没有入栈的情况返回null
+     */
+    public Frame currentBean(String beanName) {
+        Frame frame = stacks.get().peek();
+        return frame != null && KIND_BEAN.equals(frame.kind) && frame.name.equals(beanName) ? frame : null;
+    }
+
+    /**
+     * 结束一帧;创建失败等情况下残留在它上面的帧一起出栈
+     */
+    public void end(Frame frame) {
+        Deque<Frame> stack = stacks.get();
+        if (!stack.contains(frame)) {
+            return;
+        }
+        long now = System.nanoTime();
+        Frame top;
+        do {
+            top = stack.pop();
+            top.end = now;
+            if (top.parent != null && top.parentPhase >= 0) {
+                top.parent.childNanos[top.parentPhase] += now - top.start;
+            }
+            synchronized (entries) {
+                entries.add(top.toEntry(origin));
+            }
+        } while (top != frame);
+    }
+
+    /**
+     * 排在最后的BeanPostProcessor注册之前创建的bean(主要是各个BeanPostProcessor自己)由排在最前的那个结束帧
+     */
+    boolean isClosingPostProcessorActive() {
+        return closingPostProcessorActive;
+    }
+
+    void closingPostProcessorActivated() {
+        closingPostProcessorActive = true;
+    }
+
+    void configurationStarted() {
+        configurationStart = System.nanoTime();
+    }
+
+    void configurationFinished() {
+        configurationEnd = System.nanoTime();
+    }
+
+    /**
+     * 把配置类解析阶段的耗时按条件个数分摊到各个类上,记成condition帧,火焰图里是configuration的子帧
+     *
+     * @param conditionCounts 类名到这个类(包括它的@Bean方法)判断过的条件个数
+     */
+    void attributeConditions(Map<String, Integer> conditionCounts) {
+        long total = configurationEnd - configurationStart;
+        int count = conditionCounts.values().stream().mapToInt(Integer::intValue).sum();
+        if (configurationEnd == 0 || count == 0) {
+            return;
+        }
+        long start = (configurationStart - origin) / 1000;
+        long attributed = 0;
+        synchronized (entries) {
+            for (Map.Entry<String, Integer> source : conditionCounts.entrySet()) {
+                long micros = total * source.getValue() / count / 1000;
+                attributed += micros;
+                Map<String, Long> self = new LinkedHashMap<>();
+                self.put(SELF_PHASE[0], micros);
+                entries.add(new Entry(KIND_CONDITION, source.getKey(), Thread.currentThread().getName(),
+                        "configuration;", start, micros, self, self));
+            }
+        }
+        attributedMicros = attributed;
+    }
+
+    void ready() {
+        ready = System.nanoTime();
+    }
+
+    public double getConfigurationMillis() {
+        return configurationEnd == 0 ? 0 : (configurationEnd - configurationStart) / 1e6;
+    }
+
+    /**
+     * 从上下文初始化开始到ApplicationReadyEvent的时间,还没启动完时为0
+     */
+    public double getStartupMillis() {
+        return ready == 0 ? 0 : (ready - origin) / 1e6;
+    }
+
+    public List<Entry> getEntries() {
+        synchronized (entries) {
+            return new ArrayList<>(entries);
+        }
+    }
+
+    /**
+     * 按调用栈汇总自身耗时(微秒),每行"frame;frame;frame value",可以直接交给flamegraph.pl或speedscope
+     */
+    public Map<String, Long> collapsedStacks() {
+        Map<String, Long> stacks = new TreeMap<>();
+        if (configurationEnd != 0) {
+            stacks.put("startup;configuration", (configurationEnd - configurationStart) / 1000 - attributedMicros);
+        }
+        for (Entry entry : getEntries()) {
+            for (Map.Entry<String, Long> phase : entry.selfMicros.entrySet()) {
+                String stack = "startup;" + entry.path + entry.label(phase.getKey());
+                stacks.merge(stack, phase.getValue(), Long::sum);
+            }
+        }
+        stacks.values().removeIf(value -> value <= 0);
+        return stacks;
+    }
+
+    public void writeCollapsedStacks(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> stack : collapsedStacks().entrySet()) {
+                writer.write(stack.getKey() + " " + stack.getValue() + "\n");
+            }
+        }
+        collapsedStacksFile = file;
+    }
+
+    /**
+     * 最近一次写出的火焰图文件,还没写过时为null
+     */
+    public Path getCollapsedStacksFile() {
+        return collapsedStacksFile;
+    }
+
+    public static final class Frame {
+
+        private final String kind;
+
+        private final String name;
+
+        private final Frame parent;
+
+        private final int parentPhase;
+
+        private final String path;
+
+        private final String thread;
+
+        private final long start;
+
+        private final long[] marks;
+
+        private final long[] childNanos;
+
+        private long end;
+
+        private Frame(String kind, String name, Frame parent, int parentPhase, long start) {
+            this.kind = kind;
+            this.name = name;
+            this.parent = parent;
+            this.parentPhase = parentPhase;
+            this.path = parent == null ? "" : parent.path + parent.label(parent.phases()[parentPhase]) + ";";
+            this.thread = Thread.currentThread().getName();
+            this.start = start;
+            // bean帧的阶段边界:instantiated injected initStart initEnd
+            this.marks = new long[phases().length - 1];
+            this.childNanos = new long[phases().length];
+        }
+
+        private String[] phases() {
+            return KIND_BEAN.equals(kind) ? BEAN_PHASES : SELF_PHASE;
+        }
+
+        private String label(String phase) {
+            return KIND_BEAN.equals(kind) ? name + ";" + phase : kind + ":" + name;
+        }
+
+        /**
+         * 记录阶段边界,index对应BEAN_PHASES里结束的那个阶段
+         */
+        public void mark(int index) {
+            if (index < marks.length && marks[index] == 0) {
+                marks[index] = System.nanoTime();
+            }
+        }
+
+        private int phaseAt(long now) {
+            for (int i = 0; i < marks.length; i++) {
+                if (marks[i] == 0 || marks[i] > now) {
+                    return i;
+                }
+            }
+            return marks.length;
+        }
+
+        private Entry toEntry(long origin) {
+            String[] phases = phases();
+            Map<String, Long> durations = new LinkedHashMap<>();
+            Map<String, Long> self = new LinkedHashMap<>();
+            long from = start;
+            for (int i = 0; i < phases.length; i++) {
+                long to = i < marks.length && marks[i] != 0 ? marks[i] : (i < marks.length ? from : end);
+                long duration = Math.max(0, to - from);
+                durations.put(phases[i], duration / 1000);
+                self.put(phases[i], Math.max(0, duration - childNanos[i]) / 1000);
+                from = Math.max(from, to);
+            }
+            return new Entry(kind, name, thread, path, (start - origin) / 1000, (end - start) / 1000, durations, self);
+        }
+    }
+
+    /**
+     * 一帧结束后的记录,时间单位都是微秒
+     */
+    public static final class Entry {
+
+        private final String kind;
+
+        private final String name;
+
+        private final String thread;
+
+        private final String path;
+
+        private final long startMicros;
+
+        private final long totalMicros;
+
+        private final Map<String, Long> phaseMicros;
+
+        private final Map<String, Long> selfMicros;
+
+        private Entry(String kind, String name, String thread, String path, long startMicros, long totalMicros,
+                      Map<String, Long> phaseMicros, Map<String, Long> selfMicros) {
+            this.kind = kind;
+            this.name = name;
+            this.thread = thread;
+            this.path = path;
+            this.startMicros = startMicros;
+            this.totalMicros = totalMicros;
+            this.phaseMicros = phaseMicros;
+            this.selfMicros = selfMicros;
+        }
+
+        private String label(String phase) {
+            return KIND_BEAN.equals(kind) ? name + ";" + phase : kind + ":" + name;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public long getStartMicros() {
+            return startMicros;
+        }
+
+        public long getTotalMicros() {
+            return totalMicros;
+        }
+
+        public Map<String, Long> getPhaseMicros() {
+            return phaseMicros;
+        }
+
+        public Map<String, Long> getSelfMicros() {
+            return selfMicros;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package net.aty.springboot.startup;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionEvaluationReport;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 启动时间线:StartupTimelineInitializer注册了StartupTimeline单例和记录bean创建的第一个BeanPostProcessor,
+ * 这里补上排在最后的BeanPostProcessor、配置绑定的计时、条件耗时的分摊和/actuator/startuptimeline;
+ * StartupTimeline是refresh之前手动注册的单例,解析配置类时就已经存在
+ */
+@Configuration
+@ConditionalOnBean(name = StartupTimeline.BEAN_NAME)
+public class StartupTimelineConfiguration {
+
+    /**
+     * BeanPostProcessor要在普通bean之前创建,直接从beanFactory取StartupTimeline单例
+     */
+    @Bean
+    public static BeanTimelineLastPostProcessor beanTimelineLastPostProcessor(ConfigurableListableBeanFactory beanFactory) {
+        return new BeanTimelineLastPostProcessor(timeline(beanFactory));
+    }
+
+    /**
+     * 排在ConfigurationClassPostProcessor之后的BeanFactoryPostProcessor,标记配置类解析的结束,
+     * 并按条件报告把这段时间分摊到判断过条件的类上
+     */
+    @Bean
+    public static BeanFactoryPostProcessor configurationEndMarker(ConfigurableListableBeanFactory beanFactory) {
+        StartupTimeline timeline = timeline(beanFactory);
+        return new BeanFactoryPostProcessor() {
+            @Override
+            public void postProcessBeanFactory(ConfigurableListableBeanFactory factory) throws BeansException {
+                timeline.configurationFinished();
+                timeline.attributeConditions(conditionCounts(ConditionEvaluationReport.get(factory)));
+            }
+        };
+    }
+
+    /**
+     * 报告里的source是类名或者"类名#方法名",@Bean方法的条件算到所在的类上
+     */
+    static Map<String, Integer> conditionCounts(ConditionEvaluationReport report) {
+        Map<String, Integer> counts = new TreeMap<>();
+        report.getConditionAndOutcomesBySource().forEach((source, outcomes) -> {
+            int separator = source.indexOf('#');
+            String className = ClassUtils.getShortName(separator < 0 ? source : source.substring(0, separator));
+            int count = 0;
+            for (ConditionEvaluationReport.ConditionAndOutcome ignored : outcomes) {
+                count++;
+            }
+            counts.merge(className, count, Integer::sum);
+        });
+        return counts;
+    }
+
+    @Bean
+    public BindingTimelineAdvisor bindingTimelineAdvisor(StartupTimeline startupTimeline) {
+        return new BindingTimelineAdvisor(startupTimeline);
+    }
+
+    @Bean
+    public StartupTimelineEndpoint startupTimelineEndpoint(StartupTimeline startupTimeline,
+                                                           ConfigurableListableBeanFactory beanFactory) {
+        return new StartupTimelineEndpoint(startupTimeline, beanFactory);
+    }
+
+    private static StartupTimeline timeline(ConfigurableListableBeanFactory beanFactory) {
+        return beanFactory.getBean(StartupTimeline.BEAN_NAME, StartupTimeline.class);
+    }
+}
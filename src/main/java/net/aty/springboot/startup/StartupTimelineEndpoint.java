@@ -0,0 +1,77 @@
+package net.aty.springboot.startup;
+
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionEvaluationReport;
+import org.springframework.lang.Nullable;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * /actuator/startuptimeline?limit=20
+ * <p>
+ * beans按总耗时倒序(包含依赖bean的创建),各阶段的时间单位是毫秒;conditions是配置类解析阶段按条件个数分摊到各个类的估算值;
+ * 完整的调用栈见flameGraph对应的collapsed文件
+ */
+@Endpoint(id = "startuptimeline")
+public class StartupTimelineEndpoint {
+
+    private final StartupTimeline timeline;
+
+    private final ConfigurableListableBeanFactory beanFactory;
+
+    public StartupTimelineEndpoint(StartupTimeline timeline, ConfigurableListableBeanFactory beanFactory) {
+        this.timeline = timeline;
+        this.beanFactory = beanFactory;
+    }
+
+    @ReadOperation
+    public Map<String, Object> timeline(@Nullable Integer limit) {
+        List<StartupTimeline.Entry> entries = timeline.getEntries();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startupMillis", timeline.getStartupMillis());
+        result.put("configurationMillis", timeline.getConfigurationMillis());
+        result.put("beanCount", entries.stream().filter(e -> StartupTimeline.KIND_BEAN.equals(e.getKind())).count());
+        result.put("beans", top(entries, StartupTimeline.KIND_BEAN, limit == null ? 20 : limit));
+        result.put("bindings", top(entries, StartupTimeline.KIND_BIND, Integer.MAX_VALUE));
+        result.put("conditions", top(entries, StartupTimeline.KIND_CONDITION, Integer.MAX_VALUE));
+
+        ConditionEvaluationReport report = ConditionEvaluationReport.get(beanFactory);
+        Map<String, Object> conditions = new LinkedHashMap<>();
+        conditions.put("sources", report.getConditionAndOutcomesBySource().size());
+        conditions.put("noMatch", report.getConditionAndOutcomesBySource().values().stream()
+                .filter(outcomes -> !outcomes.isFullMatch()).count());
+        result.put("conditionReport", conditions);
+        result.put("flameGraph", timeline.getCollapsedStacksFile() == null ? null
+                : timeline.getCollapsedStacksFile().toString());
+        return result;
+    }
+
+    private static List<Map<String, Object>> top(List<StartupTimeline.Entry> entries, String kind, int limit) {
+        return entries.stream()
+                .filter(entry -> kind.equals(entry.getKind()))
+                .sorted(Comparator.comparingLong(StartupTimeline.Entry::getTotalMicros).reversed())
+                .limit(limit)
+                .map(StartupTimelineEndpoint::describe)
+                .collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> describe(StartupTimeline.Entry entry) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("name", entry.getName());
+        description.put("thread", entry.getThread());
+        description.put("startMillis", entry.getStartMicros() / 1000.0);
+        description.put("totalMillis", entry.getTotalMicros() / 1000.0);
+        if (StartupTimeline.KIND_BEAN.equals(entry.getKind())) {
+            Map<String, Double> phases = new LinkedHashMap<>();
+            entry.getPhaseMicros().forEach((phase, micros) -> phases.put(phase, micros / 1000.0));
+            description.put("phases", phases);
+        }
+        return description;
+    }
+}
@@ -0,0 +1,83 @@
+package net.aty.springboot.startup;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 在refresh之前把StartupTimeline注册成单例,并把记录bean创建的第一个BeanPostProcessor直接加到beanFactory上,
+ * 这样包括BeanPostProcessor在内的所有bean都能被记录到;其余部分在StartupTimelineConfiguration里
+ * <p>
+ * 默认关闭,aty.startup.timeline.enabled=true时开启;火焰图文件写到aty.startup.timeline.file(默认临时目录下的aty-startup.collapsed)
+ */
+public class StartupTimelineInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    static final String ENABLED = "aty.startup.timeline.enabled";
+
+    private static final Log logger = LogFactory.getLog(StartupTimelineInitializer.class);
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        ConfigurableEnvironment environment = context.getEnvironment();
+        if (!environment.getProperty(ENABLED, Boolean.class, false)) {
+            return;
+        }
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+        if (beanFactory.containsSingleton(StartupTimeline.BEAN_NAME)) {
+            return;
+        }
+        StartupTimeline timeline = new StartupTimeline();
+        beanFactory.registerSingleton(StartupTimeline.BEAN_NAME, timeline);
+        beanFactory.addBeanPostProcessor(new BeanTimelineFirstPostProcessor(timeline));
+        context.addBeanFactoryPostProcessor(new ConfigurationStartMarker(timeline));
+
+        Path file = Paths.get(environment.getProperty("aty.startup.timeline.file",
+                Paths.get(System.getProperty("java.io.tmpdir"), "aty-startup.collapsed").toString()));
+        context.addApplicationListener((ApplicationListener<ApplicationReadyEvent>) event -> {
+            if (event.getApplicationContext() != context) {
+                return;
+            }
+            timeline.ready();
+            try {
+                timeline.writeCollapsedStacks(file);
+                logger.info(String.format("startup took %.1fms, flame graph stacks written to %s",
+                        timeline.getStartupMillis(), file));
+            } catch (IOException e) {
+                logger.warn("failed to write startup flame graph stacks to " + file, e);
+            }
+        });
+    }
+
+    /**
+     * 通过context直接添加的BeanDefinitionRegistryPostProcessor最先执行,标记配置类解析的开始
+     */
+    private static class ConfigurationStartMarker implements BeanDefinitionRegistryPostProcessor {
+
+        private final StartupTimeline timeline;
+
+        ConfigurationStartMarker(StartupTimeline timeline) {
+            this.timeline = timeline;
+        }
+
+        @Override
+        public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) throws BeansException {
+            timeline.configurationStarted();
+        }
+
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        }
+    }
+}
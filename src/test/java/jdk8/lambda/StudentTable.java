@@ -0,0 +1,286 @@
+package jdk8.lambda;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * 按列存储的Student:id和age是int[],name做字典编码(int[]里存字典下标),phone是String[]
+ * <p>
+ * 所有操作都基于IntStream.range(行号或者块号),它的Spliterator是SIZED|SUBSIZED的,并行时每次都对半切分;
+ * 过滤、聚合只读int[],不需要装箱也不需要逐个访问Student对象
+ */
+public class StudentTable {
+
+	private static final int BLOCK = 1 << 14;
+
+	private final int size;
+
+	private final int[] ids;
+
+	private final int[] ages;
+
+	private final int[] nameCodes;
+
+	private final String[] names;
+
+	private final String[] phones;
+
+	private StudentTable(int size, int[] ids, int[] ages, int[] nameCodes, String[] names, String[] phones) {
+		this.size = size;
+		this.ids = ids;
+		this.ages = ages;
+		this.nameCodes = nameCodes;
+		this.names = names;
+		this.phones = phones;
+	}
+
+	public static StudentTable of(Collection<Student> students) {
+		Builder builder = new Builder(students.size());
+		students.forEach(builder::add);
+		return builder.build();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int id(int row) {
+		return ids[row];
+	}
+
+	public int age(int row) {
+		return ages[row];
+	}
+
+	public String name(int row) {
+		return names[nameCodes[row]];
+	}
+
+	public String phone(int row) {
+		return phones[row];
+	}
+
+	public Student student(int row) {
+		return new Student(ids[row], ages[row], name(row), phones[row]);
+	}
+
+	/**
+	 * 不同name的个数
+	 */
+	public int nameCount() {
+		return names.length;
+	}
+
+	/**
+	 * 行号,parallel()后均匀切分
+	 */
+	public IntStream rows() {
+		return IntStream.range(0, size);
+	}
+
+	public IntStream rows(IntPredicate filter) {
+		return rows().filter(filter);
+	}
+
+	public IntStream ages() {
+		return Arrays.stream(ages, 0, size);
+	}
+
+	public IntStream ids() {
+		return Arrays.stream(ids, 0, size);
+	}
+
+	/**
+	 * 行号过滤条件:age在[from, to)之间,平移到Integer.MIN_VALUE后一次(无符号)比较,没有分支
+	 */
+	public IntPredicate ageBetween(int from, int to) {
+		return row -> ages[row] - from + Integer.MIN_VALUE < to - from + Integer.MIN_VALUE;
+	}
+
+	/**
+	 * 行号过滤条件:name等于指定值,比较的是字典下标
+	 */
+	public IntPredicate nameIs(String name) {
+		int code = Arrays.asList(names).indexOf(name);
+		return row -> nameCodes[row] == code;
+	}
+
+	public long count(IntPredicate filter, boolean parallel) {
+		return blocks(parallel).mapToLong(block -> {
+			int count = 0;
+			for (int row = from(block), to = to(block); row < to; row++) {
+				// 不用if,随机分布的数据上分支预测失败的代价比加0大
+				count += filter.test(row) ? 1 : 0;
+			}
+			return count;
+		}).sum();
+	}
+
+	public IntSummaryStatistics summarizeAge(IntPredicate filter, boolean parallel) {
+		return blocks(parallel).collect(IntSummaryStatistics::new, (statistics, block) -> {
+			for (int row = from(block), to = to(block); row < to; row++) {
+				if (filter.test(row)) {
+					statistics.accept(ages[row]);
+				}
+			}
+		}, IntSummaryStatistics::combine);
+	}
+
+	/**
+	 * 按name分组统计age,相当于groupingBy(Student::getName, summarizingInt(Student::getAge));
+	 * 每个切分用字典下标做数组下标累加,合并时逐个下标相加
+	 */
+	public Map<String, IntSummaryStatistics> summarizeAgeByName(IntPredicate filter, boolean parallel) {
+		AgeGroups groups = blocks(parallel).collect(() -> new AgeGroups(names.length), (g, block) -> {
+			for (int row = from(block), to = to(block); row < to; row++) {
+				if (filter.test(row)) {
+					g.add(nameCodes[row], ages[row]);
+				}
+			}
+		}, AgeGroups::merge);
+		return groups.toMap(names);
+	}
+
+	/**
+	 * 按name分组计数,相当于groupingBy(Student::getName, counting())
+	 */
+	public Map<String, Long> countByName(IntPredicate filter, boolean parallel) {
+		long[] counts = blocks(parallel).collect(() -> new long[names.length], (c, block) -> {
+			for (int row = from(block), to = to(block); row < to; row++) {
+				if (filter.test(row)) {
+					c[nameCodes[row]]++;
+				}
+			}
+		}, (c1, c2) -> {
+			for (int i = 0; i < c1.length; i++) {
+				c1[i] += c2[i];
+			}
+		});
+		Map<String, Long> result = new HashMap<>();
+		for (int code = 0; code < counts.length; code++) {
+			if (counts[code] > 0) {
+				result.put(names[code], counts[code]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 聚合按块执行:块号的IntStream负责(并行时均匀)切分,块内是对数组的普通循环,
+	 * 省掉每行经过filter/map等Sink的开销
+	 */
+	private IntStream blocks(boolean parallel) {
+		IntStream blocks = IntStream.range(0, (size + BLOCK - 1) / BLOCK);
+		return parallel ? blocks.parallel() : blocks;
+	}
+
+	private static int from(int block) {
+		return block * BLOCK;
+	}
+
+	private int to(int block) {
+		return Math.min(size, (block + 1) * BLOCK);
+	}
+
+	private static class AgeGroups {
+
+		private final long[] counts;
+
+		private final long[] sums;
+
+		private final int[] mins;
+
+		private final int[] maxs;
+
+		AgeGroups(int groups) {
+			counts = new long[groups];
+			sums = new long[groups];
+			mins = new int[groups];
+			maxs = new int[groups];
+			Arrays.fill(mins, Integer.MAX_VALUE);
+			Arrays.fill(maxs, Integer.MIN_VALUE);
+		}
+
+		void add(int group, int age) {
+			counts[group]++;
+			sums[group] += age;
+			mins[group] = Math.min(mins[group], age);
+			maxs[group] = Math.max(maxs[group], age);
+		}
+
+		void merge(AgeGroups other) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += other.counts[i];
+				sums[i] += other.sums[i];
+				mins[i] = Math.min(mins[i], other.mins[i]);
+				maxs[i] = Math.max(maxs[i], other.maxs[i]);
+			}
+		}
+
+		Map<String, IntSummaryStatistics> toMap(String[] names) {
+			Map<String, IntSummaryStatistics> result = new HashMap<>();
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] > 0) {
+					result.put(names[i], new IntSummaryStatistics(counts[i], mins[i], maxs[i], sums[i]));
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * 逐行追加,name第一次出现时加入字典
+	 */
+	public static class Builder {
+
+		private int size;
+
+		private int[] ids;
+
+		private int[] ages;
+
+		private int[] nameCodes;
+
+		private String[] phones;
+
+		private final Map<String, Integer> dictionary = new HashMap<>();
+
+		public Builder(int capacity) {
+			ids = new int[Math.max(capacity, 16)];
+			ages = new int[ids.length];
+			nameCodes = new int[ids.length];
+			phones = new String[ids.length];
+		}
+
+		public Builder add(Student student) {
+			return add(student.getId(), student.getAge(), student.getName(), student.getPhone());
+		}
+
+		public Builder add(int id, int age, String name, String phone) {
+			if (size == ids.length) {
+				int capacity = size + (size >> 1);
+				ids = Arrays.copyOf(ids, capacity);
+				ages = Arrays.copyOf(ages, capacity);
+				nameCodes = Arrays.copyOf(nameCodes, capacity);
+				phones = Arrays.copyOf(phones, capacity);
+			}
+			ids[size] = id;
+			ages[size] = age;
+			nameCodes[size] = dictionary.computeIfAbsent(name, key -> dictionary.size());
+			phones[size] = phone;
+			size++;
+			return this;
+		}
+
+		public StudentTable build() {
+			String[] names = new String[dictionary.size()];
+			dictionary.forEach((name, code) -> names[code] = name);
+			return new StudentTable(size, ids, ages, nameCodes, names, phones);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package jdk8.lambda;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 1000万行,List<Student>的对象流和StudentTable的列存,串行和并行:
+ * 按age过滤计数、age汇总统计、按name分组统计age(1000个不同的name)
+ * <p>
+ * 并行流自己用满commonPool,所以不在JmhRunner默认的include里,单线程运行:
+ * mvn -P jmh test -Djmh.include=jdk8.lambda.StudentTableBenchmark -Djmh.threads=1;
+ * 两种方式的结果在setup里核对
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class StudentTableBenchmark {
+
+	private static final int NAMES = 1000;
+
+	@Param("10000000")
+	private int rows;
+
+	@Param({ "false", "true" })
+	private boolean parallel;
+
+	private List<Student> students;
+
+	private StudentTable table;
+
+	@Setup
+	public void setup() {
+		students = buildStudents(rows);
+		table = StudentTable.of(students);
+		check(countObjects() == countTable());
+		check(summarizeObjects().toString().equals(summarizeTable().toString()));
+		Map<String, IntSummaryStatistics> group1 = groupingByObjects();
+		Map<String, IntSummaryStatistics> group2 = groupingByTable();
+		check(group1.keySet().equals(group2.keySet())
+				&& group1.keySet().stream().allMatch(k -> group1.get(k).toString().equals(group2.get(k).toString())));
+	}
+
+	@Benchmark
+	public long countObjects() {
+		return stream().filter(s -> s.getAge() >= 20 && s.getAge() < 30).count();
+	}
+
+	@Benchmark
+	public long countTable() {
+		return table.count(table.ageBetween(20, 30), parallel);
+	}
+
+	@Benchmark
+	public IntSummaryStatistics summarizeObjects() {
+		return stream().collect(Collectors.summarizingInt(Student::getAge));
+	}
+
+	@Benchmark
+	public IntSummaryStatistics summarizeTable() {
+		return table.summarizeAge(row -> true, parallel);
+	}
+
+	@Benchmark
+	public Map<String, IntSummaryStatistics> groupingByObjects() {
+		return stream().filter(s -> s.getAge() < 30)
+				.collect(Collectors.groupingBy(Student::getName, Collectors.summarizingInt(Student::getAge)));
+	}
+
+	@Benchmark
+	public Map<String, IntSummaryStatistics> groupingByTable() {
+		return table.summarizeAgeByName(table.ageBetween(0, 30), parallel);
+	}
+
+	private Stream<Student> stream() {
+		return parallel ? students.parallelStream() : students.stream();
+	}
+
+	private static void check(boolean same) {
+		if (!same) {
+			throw new IllegalStateException("results differ");
+		}
+	}
+
+	private static List<Student> buildStudents(int rows) {
+		Random random = new Random(42);
+		String[] names = new String[NAMES];
+		for (int i = 0; i < NAMES; i++) {
+			names[i] = "aty" + i;
+		}
+		List<Student> students = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			students.add(new Student(i, 10 + random.nextInt(50), names[random.nextInt(NAMES)], "1111"));
+		}
+		return students;
+	}
+}
@@ -0,0 +1,87 @@
+package jdk8.lambda.stream;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 并发的int集合:开放地址、线性探测,槽位用CAS占用,不加锁,不装箱。
+ * <p>
+ * 容量在创建时固定(不超过一半的负载),只能添加不能删除;0用来表示空槽,值0单独占最后一个槽位
+ */
+public class ConcurrentIntSet {
+
+	private final AtomicIntegerArray table;
+
+	private final int mask;
+
+	// 0表示空槽,值0单独记录是否存在,它的槽位是table.length()
+	private final AtomicIntegerArray zero = new AtomicIntegerArray(1);
+
+	/**
+	 * @param expectedSize 最多会放进去的元素个数
+	 */
+	public ConcurrentIntSet(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 2) * 2 - 1) << 1;
+		this.table = new AtomicIntegerArray(capacity);
+		this.mask = capacity - 1;
+	}
+
+	public boolean add(int value) {
+		int slot = slot(value, true);
+		return slot < 0;
+	}
+
+	public boolean contains(int value) {
+		return slot(value, false) != Integer.MIN_VALUE;
+	}
+
+	/**
+	 * 值所在的槽位,不在集合里时先放进去;槽位范围是[0, slots())
+	 */
+	public int slot(int value) {
+		int slot = slot(value, true);
+		return slot < 0 ? ~slot : slot;
+	}
+
+	public int slots() {
+		return table.length() + 1;
+	}
+
+	/**
+	 * 已有的返回槽位,新放进去的返回~槽位,不插入并且不存在时返回Integer.MIN_VALUE
+	 */
+	private int slot(int value, boolean insert) {
+		if (value == 0) {
+			if (!insert) {
+				return zero.get(0) != 0 ? table.length() : Integer.MIN_VALUE;
+			}
+			return zero.compareAndSet(0, 0, 1) ? ~table.length() : table.length();
+		}
+		int index = hash(value) & mask;
+		for (int probes = 0; probes <= mask; probes++) {
+			int current = table.get(index);
+			if (current == 0) {
+				if (!insert) {
+					return Integer.MIN_VALUE;
+				}
+				if (table.compareAndSet(index, 0, value)) {
+					return ~index;
+				}
+				// 被别的线程抢先占用,可能正好是同一个值
+				current = table.get(index);
+			}
+			if (current == value) {
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+		if (!insert) {
+			return Integer.MIN_VALUE;
+		}
+		throw new IllegalStateException("set is full, capacity " + table.length());
+	}
+
+	static int hash(int value) {
+		int h = value * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
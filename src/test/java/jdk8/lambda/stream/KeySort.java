@@ -0,0 +1,223 @@
+package jdk8.lambda.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * 按int/long键的稳定排序,可以并行,结果和sorted(Comparator)的串行排序一样(相等的元素保持原来的顺序)。
+ * <p>
+ * sorted(Comparator)要调用O(n log n)次comparator,每次都要从对象里取键(常常还要装箱);
+ * 并行的sorted只是把数组切开排序后再归并。这里:
+ * <ul>
+ * <li>每个元素的每个键只取一次,转换成按无符号比较有序的int(int键翻转符号位,long键拆成高低两个int),
+ * 多个键就是多列,排在前面的键是高位</li>
+ * <li>对(键, 下标)做LSD基数排序,每趟按8位分桶,从最低位的列开始。计数排序本身是稳定的,
+ * 下标一开始是原来的顺序,所以整个排序是稳定的;一趟里所有元素都落在同一个桶时跳过这一趟(age这种小范围的键只需要一趟)</li>
+ * <li>并行时每趟切成固定的几块:各块统计直方图,按(桶, 块)的顺序算出每块在每个桶里的起始位置,各块再各自搬运,
+ * 块的先后保证了稳定</li>
+ * <li>最后按排好的下标取出对象</li>
+ * </ul>
+ * <pre>
+ * KeySort.comparingInt(Student::getAge).thenComparingInt(Student::getId).sort(students, true);
+ * </pre>
+ */
+public class KeySort<T> {
+
+	private static final int RADIX = 256;
+
+	// 小于这个长度时并行不划算
+	private static final int MIN_PARALLEL_CHUNK = 1 << 16;
+
+	// 排在前面的是高位
+	private final List<ToIntFunction<? super T>> columns;
+
+	private KeySort(List<ToIntFunction<? super T>> columns) {
+		this.columns = columns;
+	}
+
+	public static <T> KeySort<T> comparingInt(ToIntFunction<? super T> key) {
+		return new KeySort<T>(Collections.emptyList()).thenComparingInt(key);
+	}
+
+	public static <T> KeySort<T> comparingLong(ToLongFunction<? super T> key) {
+		return new KeySort<T>(Collections.emptyList()).thenComparingLong(key);
+	}
+
+	public KeySort<T> thenComparingInt(ToIntFunction<? super T> key) {
+		List<ToIntFunction<? super T>> columns = new ArrayList<>(this.columns);
+		columns.add(t -> key.applyAsInt(t) ^ Integer.MIN_VALUE);
+		return new KeySort<>(columns);
+	}
+
+	public KeySort<T> thenComparingLong(ToLongFunction<? super T> key) {
+		List<ToIntFunction<? super T>> columns = new ArrayList<>(this.columns);
+		columns.add(t -> (int) (key.applyAsLong(t) >>> 32) ^ Integer.MIN_VALUE);
+		columns.add(t -> (int) key.applyAsLong(t));
+		return new KeySort<>(columns);
+	}
+
+	/**
+	 * 和这个排序等价的Comparator
+	 */
+	public Comparator<T> comparator() {
+		return (t1, t2) -> {
+			for (ToIntFunction<? super T> column : columns) {
+				int result = Integer.compareUnsigned(column.applyAsInt(t1), column.applyAsInt(t2));
+				if (result != 0) {
+					return result;
+				}
+			}
+			return 0;
+		};
+	}
+
+	public List<T> sort(List<? extends T> source, boolean parallel) {
+		int[] order = sortedIndexes(source, parallel);
+		Object[] sorted = new Object[order.length];
+		rows(order.length, parallel).forEach(i -> sorted[i] = source.get(order[i]));
+		@SuppressWarnings("unchecked")
+		List<T> result = (List<T>) Arrays.asList(sorted);
+		return result;
+	}
+
+	/**
+	 * 排序后每个位置上是原来的哪个下标
+	 */
+	public int[] sortedIndexes(List<? extends T> source, boolean parallel) {
+		int n = source.size();
+		// 每块往256个桶里搬运,块比核多时互相挤占缓存,所以块数不超过核数
+		int chunks = parallel ? Math.max(1, Math.min(n / MIN_PARALLEL_CHUNK, Runtime.getRuntime().availableProcessors())) : 1;
+
+		// 每个键只取一次
+		int[][] keys = new int[columns.size()][];
+		for (int c = 0; c < keys.length; c++) {
+			ToIntFunction<? super T> column = columns.get(c);
+			int[] key = keys[c] = new int[n];
+			rows(n, parallel).forEach(i -> key[i] = column.applyAsInt(source.get(i)));
+		}
+
+		int[] index = new int[n];
+		rows(n, parallel).forEach(i -> index[i] = i);
+		Pairs pairs = new Pairs(keys[keys.length - 1], index, chunks, parallel);
+		for (int c = keys.length - 1; c >= 0; c--) {
+			if (c < keys.length - 1) {
+				pairs.load(keys[c]);
+			}
+			for (int shift = 0; shift < Integer.SIZE; shift += 8) {
+				pairs.pass(shift);
+			}
+		}
+		return pairs.index;
+	}
+
+	private static IntStream rows(int n, boolean parallel) {
+		IntStream rows = IntStream.range(0, n);
+		return parallel ? rows.parallel() : rows;
+	}
+
+	/**
+	 * 当前这一列的键和下标,两组数组交替作为每一趟的来源和目标
+	 */
+	private static class Pairs {
+
+		private final int n;
+
+		private final int chunks;
+
+		private final int chunkSize;
+
+		private final boolean parallel;
+
+		private int[] key;
+
+		private int[] index;
+
+		private int[] keyBuffer;
+
+		private int[] indexBuffer;
+
+		Pairs(int[] key, int[] index, int chunks, boolean parallel) {
+			this.n = index.length;
+			this.chunks = chunks;
+			this.chunkSize = (n + chunks - 1) / Math.max(chunks, 1);
+			this.parallel = parallel;
+			// 第一列(最低位)直接在提取出来的数组上排
+			this.key = key;
+			this.index = index;
+			this.keyBuffer = new int[n];
+			this.indexBuffer = new int[n];
+		}
+
+		/**
+		 * 换到更高位的一列:按当前的下标顺序取出这一列的键,覆盖已经排完的那一列
+		 */
+		void load(int[] column) {
+			int[] key = this.key;
+			int[] index = this.index;
+			rows(n, parallel).forEach(i -> key[i] = column[index[i]]);
+		}
+
+		void pass(int shift) {
+			int[][] counts = new int[chunks][];
+			chunks().forEach(c -> {
+				int[] count = counts[c] = new int[RADIX];
+				for (int i = from(c), to = to(c); i < to; i++) {
+					count[(key[i] >>> shift) & 0xFF]++;
+				}
+			});
+
+			// 每块在每个桶里的起始位置:先按桶,同一个桶里按块的顺序
+			int offset = 0;
+			for (int digit = 0; digit < RADIX; digit++) {
+				int total = 0;
+				for (int c = 0; c < chunks; c++) {
+					total += counts[c][digit];
+				}
+				if (total == n) {
+					// 所有元素都在同一个桶里,这一趟不改变顺序
+					return;
+				}
+				for (int c = 0; c < chunks; c++) {
+					int count = counts[c][digit];
+					counts[c][digit] = offset;
+					offset += count;
+				}
+			}
+
+			int[] key = this.key;
+			int[] index = this.index;
+			int[] keyTo = keyBuffer;
+			int[] indexTo = indexBuffer;
+			chunks().forEach(c -> {
+				int[] position = counts[c];
+				for (int i = from(c), to = to(c); i < to; i++) {
+					int p = position[(key[i] >>> shift) & 0xFF]++;
+					keyTo[p] = key[i];
+					indexTo[p] = index[i];
+				}
+			});
+			this.keyBuffer = key;
+			this.indexBuffer = index;
+			this.key = keyTo;
+			this.index = indexTo;
+		}
+
+		private IntStream chunks() {
+			return rows(chunks, parallel && chunks > 1);
+		}
+
+		private int from(int chunk) {
+			return Math.min(n, chunk * chunkSize);
+		}
+
+		private int to(int chunk) {
+			return Math.min(n, (chunk + 1) * chunkSize);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package jdk8.lambda.stream;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jdk8.lambda.Student;
+
+/**
+ * sorted(Comparator)和KeySort对比,串行和并行:
+ * 单个键(id)和两个键(age再id),结果都要和串行的sorted(Comparator)完全一样(同一个对象在同一个位置,也就是稳定),
+ * 在setup里核对
+ * <p>
+ * 并行流自己用满commonPool,所以不在JmhRunner默认的include里,单线程运行:
+ * mvn -P jmh test -Djmh.include=jdk8.lambda.stream.KeySortBenchmark -Djmh.threads=1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeySortBenchmark {
+
+	@Param("2000000")
+	private int size;
+
+	@Param({ "id", "age,id" })
+	private String keys;
+
+	@Param({ "false", "true" })
+	private boolean parallel;
+
+	private List<Student> students;
+
+	private Comparator<Student> comparator;
+
+	private KeySort<Student> keySort;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		students = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			students.add(new Student(random.nextInt(size), random.nextInt(100), "aty" + (i % 1000), ""));
+		}
+		if ("id".equals(keys)) {
+			comparator = Comparator.comparingInt(Student::getId);
+			keySort = KeySort.comparingInt(Student::getId);
+		} else {
+			comparator = Comparator.comparingInt(Student::getAge).thenComparingInt(Student::getId);
+			keySort = KeySort.comparingInt(Student::getAge).thenComparingInt(Student::getId);
+		}
+		List<Student> expected = students.stream().sorted(comparator).collect(Collectors.toList());
+		check(expected, sorted());
+		check(expected, keySort());
+	}
+
+	@Benchmark
+	public List<Student> sorted() {
+		return (parallel ? students.parallelStream() : students.stream()).sorted(comparator)
+				.collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<Student> keySort() {
+		return keySort.sort(students, parallel);
+	}
+
+	private static void check(List<Student> expected, List<Student> actual) {
+		for (int i = 0; i < expected.size(); i++) {
+			if (expected.get(i) != actual.get(i)) {
+				throw new IllegalStateException("differs at " + i);
+			}
+		}
+	}
+}
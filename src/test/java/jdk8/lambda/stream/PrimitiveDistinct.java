@@ -0,0 +1,144 @@
+package jdk8.lambda.stream;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * int/long数组的并行去重,代替IntStream/LongStream的distinct()。
+ * <p>
+ * distinct()先装箱再去重:有序的并行流每个切分各自放进LinkedHashSet,最后再逐级合并;
+ * unordered的并行流用ConcurrentHashMap。这里用ConcurrentIntSet/ConcurrentLongSet(开放地址,CAS,不装箱):
+ * <ul>
+ * <li>unordered:filter(set::add),每个值只有第一个放进集合的线程保留它,没有合并这一步,保留的是哪一个不确定</li>
+ * <li>ordered:第一趟记下每个值最小的下标,第二趟按下标顺序只保留下标等于最小下标的元素,
+ * 结果和串行的distinct()一样,也不需要缓存和合并</li>
+ * <li>prefilter:数据量很大时先过一遍DuplicateFilter,每个值按另一个hash落到一个位置上,每个位置两位,
+ * 记下有没有元素落到过、是不是至少两个元素落到过;只有一个元素落到的位置上的值肯定没有重复,直接保留,不进集合。
+ * 集合只处理可能重复的那部分,小得多,随机访问的内存也少得多</li>
+ * </ul>
+ * 返回的都是并行流;集合和位图在调用时就建好,第二趟在流被消费时执行
+ */
+public class PrimitiveDistinct {
+
+	// 每个元素4到8个位置,大约12%到22%的不重复元素会和别的元素落在同一个位置上
+	private static final int PREFILTER_BITS_PER_ELEMENT = 4;
+
+	private PrimitiveDistinct() {
+	}
+
+	public static IntStream distinct(int[] values, boolean ordered, boolean prefilter) {
+		int n = values.length;
+		DuplicateFilter filter = prefilter ? new DuplicateFilter(n) : null;
+		if (filter != null) {
+			Arrays.stream(values).parallel().forEach(v -> filter.mark(hash(v)));
+		}
+		ConcurrentIntSet set = new ConcurrentIntSet(filter == null ? n : filter.candidates(n));
+
+		if (!ordered) {
+			IntStream stream = Arrays.stream(values).parallel().unordered();
+			return filter == null ? stream.filter(set::add) : stream.filter(v -> filter.unique(hash(v)) || set.add(v));
+		}
+
+		// 存Integer.MAX_VALUE - 下标,取最大值就是最小的下标,0表示还没有
+		AtomicIntegerArray first = new AtomicIntegerArray(set.slots());
+		IntStream.range(0, n).parallel().forEach(i -> {
+			int v = values[i];
+			if (filter == null || !filter.unique(hash(v))) {
+				first.accumulateAndGet(set.slot(v), Integer.MAX_VALUE - i, Math::max);
+			}
+		});
+		return IntStream.range(0, n).parallel().filter(i -> {
+			int v = values[i];
+			return filter != null && filter.unique(hash(v)) || first.get(set.slot(v)) == Integer.MAX_VALUE - i;
+		}).map(i -> values[i]);
+	}
+
+	public static LongStream distinct(long[] values, boolean ordered, boolean prefilter) {
+		int n = values.length;
+		DuplicateFilter filter = prefilter ? new DuplicateFilter(n) : null;
+		if (filter != null) {
+			Arrays.stream(values).parallel().forEach(v -> filter.mark(hash(v)));
+		}
+		ConcurrentLongSet set = new ConcurrentLongSet(filter == null ? n : filter.candidates(n));
+
+		if (!ordered) {
+			LongStream stream = Arrays.stream(values).parallel().unordered();
+			return filter == null ? stream.filter(set::add) : stream.filter(v -> filter.unique(hash(v)) || set.add(v));
+		}
+
+		AtomicIntegerArray first = new AtomicIntegerArray(set.slots());
+		IntStream.range(0, n).parallel().forEach(i -> {
+			long v = values[i];
+			if (filter == null || !filter.unique(hash(v))) {
+				first.accumulateAndGet(set.slot(v), Integer.MAX_VALUE - i, Math::max);
+			}
+		});
+		return IntStream.range(0, n).parallel().filter(i -> {
+			long v = values[i];
+			return filter != null && filter.unique(hash(v)) || first.get(set.slot(v)) == Integer.MAX_VALUE - i;
+		}).mapToLong(i -> values[i]);
+	}
+
+	// 和集合里的hash不相关
+	private static int hash(int value) {
+		int h = value * 0x85EBCA6B;
+		return h ^ (h >>> 13);
+	}
+
+	private static int hash(long value) {
+		long h = value * 0xC2B2AE3D27D4EB4FL;
+		return (int) (h ^ (h >>> 29));
+	}
+
+	/**
+	 * 每个位置两位:低位表示有元素落到过,高位表示至少两个元素落到过;两位放在同一个long里,每次只访问一个缓存行
+	 */
+	private static class DuplicateFilter {
+
+		private static final long SEEN = 0x5555555555555555L;
+
+		private final AtomicLongArray bits;
+
+		private final int mask;
+
+		DuplicateFilter(int size) {
+			int positions = Integer.highestOneBit(Math.max(size, 32) * PREFILTER_BITS_PER_ELEMENT - 1) << 1;
+			this.bits = new AtomicLongArray(positions >>> 5);
+			this.mask = positions - 1;
+		}
+
+		void mark(int hash) {
+			int position = hash & mask;
+			int word = position >>> 5;
+			long seen = 1L << ((position & 31) << 1);
+			long twice = seen << 1;
+			long current = bits.get(word);
+			while ((current & twice) == 0) {
+				long next = current | ((current & seen) == 0 ? seen : twice);
+				if (bits.compareAndSet(word, current, next)) {
+					return;
+				}
+				current = bits.get(word);
+			}
+		}
+
+		boolean unique(int hash) {
+			int position = hash & mask;
+			return (bits.get(position >>> 5) & (2L << ((position & 31) << 1))) == 0;
+		}
+
+		/**
+		 * 可能重复的元素个数:只被一个元素落到的位置上就是一个元素,其余的都是
+		 */
+		int candidates(int size) {
+			long single = IntStream.range(0, bits.length()).parallel().mapToLong(i -> {
+				long word = bits.get(i);
+				return Long.bitCount(word & SEEN & ~(word >>> 1));
+			}).sum();
+			return (int) (size - single);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package jdk8.lambda.stream;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 1000万个int,10%是重复的(从前面随机挑一个复制过来),对比IntStream.distinct()和PrimitiveDistinct:
+ * 串行/并行有序/并行无序的distinct(),PrimitiveDistinct的unordered、ordered,各自带不带prefilter;
+ * long版本只比较串行distinct()和ordered prefilter。
+ * 有序的结果要和串行distinct()完全一样,无序的只比较排序后的结果,在setup里核对
+ * <p>
+ * 装箱的distinct需要-Xmx3g左右。并行流自己用满commonPool,所以不在JmhRunner默认的include里,单线程运行:
+ * mvn -P jmh test -Djmh.include=jdk8.lambda.stream.PrimitiveDistinctBenchmark -Djmh.threads=1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class PrimitiveDistinctBenchmark {
+
+	@Benchmark
+	public int[] ints(IntValues state) {
+		return state.distinct();
+	}
+
+	@Benchmark
+	public long[] longs(LongValues state) {
+		return state.distinct();
+	}
+
+	@State(Scope.Benchmark)
+	public static class IntValues {
+
+		@Param("10000000")
+		private int size;
+
+		@Param({ "stream-sequential", "stream-parallel", "stream-parallel-unordered", "unordered",
+				"unordered-prefilter", "ordered", "ordered-prefilter" })
+		private String mode;
+
+		private int[] values;
+
+		@Setup
+		public void setup() {
+			values = values(size, new Random(42));
+			int[] expected = Arrays.stream(values).distinct().toArray();
+			int[] actual = distinct();
+			if (mode.contains("unordered")) {
+				expected = expected.clone();
+				Arrays.sort(expected);
+				Arrays.sort(actual);
+			}
+			check(Arrays.equals(expected, actual));
+		}
+
+		int[] distinct() {
+			switch (mode) {
+				case "stream-sequential":
+					return Arrays.stream(values).distinct().toArray();
+				case "stream-parallel":
+					return Arrays.stream(values).parallel().distinct().toArray();
+				case "stream-parallel-unordered":
+					return Arrays.stream(values).parallel().unordered().distinct().toArray();
+				default:
+					return PrimitiveDistinct.distinct(values, mode.startsWith("ordered"), mode.endsWith("prefilter"))
+							.toArray();
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class LongValues {
+
+		@Param("10000000")
+		private int size;
+
+		@Param({ "stream-sequential", "ordered-prefilter" })
+		private String mode;
+
+		private long[] values;
+
+		@Setup
+		public void setup() {
+			values = Arrays.stream(values(size, new Random(42))).asLongStream().map(v -> v * 0x100000001L).toArray();
+			check(Arrays.equals(Arrays.stream(values).distinct().toArray(), distinct()));
+		}
+
+		long[] distinct() {
+			return "stream-sequential".equals(mode) ? Arrays.stream(values).distinct().toArray()
+					: PrimitiveDistinct.distinct(values, true, true).toArray();
+		}
+	}
+
+	// 90%互不相同,10%从前面随机复制一个
+	private static int[] values(int size, Random random) {
+		int[] values = new int[size];
+		int unique = size - size / 10;
+		for (int i = 0; i < unique; i++) {
+			// 乘奇数是int上的双射,保证互不相同
+			values[i] = i * 0x9E3779B1;
+		}
+		for (int i = unique; i < size; i++) {
+			values[i] = values[random.nextInt(unique)];
+		}
+		for (int i = size - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = values[i];
+			values[i] = values[j];
+			values[j] = tmp;
+		}
+		return values;
+	}
+
+	private static void check(boolean same) {
+		if (!same) {
+			throw new IllegalStateException("results differ");
+		}
+	}
+}
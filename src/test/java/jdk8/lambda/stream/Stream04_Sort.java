@@ -47,6 +47,11 @@ public class Stream04_Sort {
 		System.out.println("parallel不稳定排序");
 		List<Student> parallel = original.stream().parallel().sorted(comparator).collect(Collectors.toList());
 		checkStable(original, parallel);
+
+		// case4
+		System.out.println("KeySort并行基数排序是稳定排序");
+		List<Student> radix = KeySort.comparingInt(Student::getId).sort(original, true);
+		checkStable(original, radix);
 	}
 
 	// 验证是否稳定排序
@@ -0,0 +1,186 @@
+package jdk8.lambda.stream.ordering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * forEachOrdered的替代:耗时的action并行执行,结果按遇到顺序(encounter order)交给downstream。
+ * <p>
+ * forEachOrdered要求action本身按顺序一个一个执行,所以action再慢也只能串行(Ordering5_performance.t1)。
+ * 这里把"计算"和"按顺序消费"分开:
+ * <ul>
+ * <li>几个worker按下标从小到大领取元素执行action,结果放进长度为window的环形槽位(下标 % window)</li>
+ * <li>谁放进了当前等待的那个下标(next),谁就把从next开始连续完成的结果依次交给downstream,一次只有一个线程在交付</li>
+ * <li>下标 >= next + window的元素要等前面的交付后才能开始执行:缓存的结果最多window个,
+ * 跑得快的worker会被挡住,不会无限堆积</li>
+ * </ul>
+ * 下标按顺序领取,next所在的元素一定已经被某个没有阻塞的worker领走或者就是下一个要领的,所以不会死锁。
+ * <p>
+ * Stream先收集成List(并行流的有序收集只是拼接,sorted()本来就要全部物化)再按下标处理。
+ * downstream可能在不同的线程上被调用,但调用之间串行并且有happens-before,不需要自己加锁
+ */
+public class OrderedParallelSink<T, R> {
+
+	private static final Object NULL = new Object();
+
+	private final Executor executor;
+
+	private final int parallelism;
+
+	private final int window;
+
+	private final Function<? super T, ? extends R> action;
+
+	private final Consumer<? super R> downstream;
+
+	/**
+	 * 在ForkJoinPool.commonPool()上执行,加上调用线程,并行度是commonPool的并行度+1
+	 */
+	public OrderedParallelSink(int window, Function<? super T, ? extends R> action, Consumer<? super R> downstream) {
+		this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism() + 1, window, action, downstream);
+	}
+
+	/**
+	 * @param parallelism 包括调用线程在内的worker个数,其余的提交给executor
+	 * @param window 最多同时执行或者等待交付的元素个数
+	 */
+	public OrderedParallelSink(Executor executor, int parallelism, int window, Function<? super T, ? extends R> action,
+			Consumer<? super R> downstream) {
+		if (parallelism < 1 || window < 1) {
+			throw new IllegalArgumentException("parallelism and window must be positive");
+		}
+		this.executor = executor;
+		this.parallelism = parallelism;
+		this.window = window;
+		this.action = action;
+		this.downstream = downstream;
+	}
+
+	public void forEachOrdered(Stream<? extends T> stream) {
+		forEachOrdered(stream.collect(Collectors.toList()));
+	}
+
+	/**
+	 * 处理完所有元素后返回;action或downstream抛出异常时其余worker停止领取新元素,异常在调用线程上抛出
+	 */
+	public void forEachOrdered(List<? extends T> source) {
+		Run run = new Run(source);
+		List<CompletableFuture<Void>> workers = new ArrayList<>();
+		for (int i = 1; i < Math.min(parallelism, source.size()); i++) {
+			workers.add(CompletableFuture.runAsync(run::work, executor));
+		}
+		run.work();
+		workers.forEach(CompletableFuture::join);
+		Throwable failure = run.failure;
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw new IllegalStateException(failure);
+		}
+	}
+
+	private class Run {
+
+		private final List<? extends T> source;
+
+		private final AtomicInteger claimed = new AtomicInteger();
+
+		private final Object[] slots = new Object[window];
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		private final Condition advanced = lock.newCondition();
+
+		// 下一个要交付的下标,lock保护
+		private int next;
+
+		private boolean emitting;
+
+		private volatile Throwable failure;
+
+		Run(List<? extends T> source) {
+			this.source = source;
+		}
+
+		void work() {
+			try {
+				int index;
+				while (failure == null && (index = claimed.getAndIncrement()) < source.size()) {
+					if (!awaitWindow(index)) {
+						return;
+					}
+					R result = action.apply(source.get(index));
+					complete(index, result);
+				}
+			} catch (Throwable e) {
+				fail(e);
+			}
+		}
+
+		private boolean awaitWindow(int index) throws InterruptedException {
+			lock.lock();
+			try {
+				while (index - next >= window && failure == null) {
+					advanced.await();
+				}
+				return failure == null;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private void complete(int index, R result) {
+			lock.lock();
+			try {
+				slots[index % window] = result == null ? NULL : result;
+				if (emitting) {
+					// 正在交付的线程交付完手上的结果后会重新检查槽位
+					return;
+				}
+				emitting = true;
+				Object value;
+				while (failure == null && (value = slots[next % window]) != null) {
+					slots[next % window] = null;
+					lock.unlock();
+					try {
+						downstream.accept(value == NULL ? null : (R) value);
+					} finally {
+						lock.lock();
+					}
+					next++;
+					advanced.signalAll();
+				}
+				emitting = false;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void fail(Throwable e) {
+			lock.lock();
+			try {
+				if (failure == null) {
+					failure = e;
+				}
+				advanced.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package jdk8.lambda.stream.ordering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Ordering5_performance.t1的sorted().forEachOrdered换成OrderedParallelSink:sleep(500)并行执行,打印仍然按顺序。
+ * <p>
+ * 第二个例子处理2000个耗时随机(0-2ms)的元素,检查交付顺序,并统计同时在执行或者等待交付的元素个数不超过window
+ */
+public class Ordering6_OrderedParallelSink {
+
+	public static void main(String[] args) {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			t1(); // 4000+
+			t2(executor); // 500+
+			t3(executor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void t1() {
+		Set<Integer> intSet = new LinkedHashSet<>(Arrays.asList(3, 4, 1, 2, 8, 7, 5, 6));
+
+		long start = System.currentTimeMillis();
+		intSet.parallelStream().sorted().forEachOrdered(a -> System.out.print(slow(a)));
+		long end = System.currentTimeMillis();
+		System.out.println();
+		System.out.println("forEachOrdered cost time=" + (end - start));
+	}
+
+	private static void t2(ExecutorService executor) {
+		Set<Integer> intSet = new LinkedHashSet<>(Arrays.asList(3, 4, 1, 2, 8, 7, 5, 6));
+
+		long start = System.currentTimeMillis();
+		new OrderedParallelSink<Integer, Integer>(executor, 8, 8, Ordering6_OrderedParallelSink::slow, System.out::print)
+				.forEachOrdered(intSet.parallelStream().sorted());
+		long end = System.currentTimeMillis();
+		System.out.println();
+		System.out.println("OrderedParallelSink cost time=" + (end - start));
+	}
+
+	private static void t3(ExecutorService executor) {
+		int window = 16;
+		AtomicInteger pending = new AtomicInteger();
+		AtomicInteger maxPending = new AtomicInteger();
+		List<Integer> delivered = new ArrayList<>();
+
+		long start = System.currentTimeMillis();
+		new OrderedParallelSink<Integer, Integer>(executor, 8, window, i -> {
+			maxPending.accumulateAndGet(pending.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return i;
+		}, i -> {
+			delivered.add(i);
+			pending.decrementAndGet();
+		}).forEachOrdered(IntStream.range(0, 2000).boxed().parallel());
+		long end = System.currentTimeMillis();
+
+		boolean ordered = delivered.equals(IntStream.range(0, 2000).boxed().collect(Collectors.toList()));
+		System.out.println("ordered=" + ordered + ", max pending=" + maxPending + "/" + window + ", cost time="
+				+ (end - start));
+	}
+
+	private static Integer slow(Integer a) {
+		try {
+			Thread.sleep(500);
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		return a;
+	}
+
+}
@@ -0,0 +1,56 @@
+package jdk8.lambda.stream.ordering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+/**
+ * 按并行流的规则(AbstractTask:估计大小超过总数/(4*并行度)就继续切)把Set自带的Spliterator和SetSpliterators的快照切到底,
+ * 统计叶子任务的元素个数:最大的叶子决定了并行度为P时的最短完成时间,加速比上限 = n / max(最大叶子, n/P)。
+ * 只数元素,不计时;耗时见{@link SetSpliteratorBenchmark}
+ * <p>
+ * 参数是模拟的并行度(默认8)
+ */
+public class SetSplitReport {
+
+	public static void main(String[] args) {
+		int parallelism = args.length > 0 ? Integer.parseInt(args[0]) : SetSpliteratorBenchmark.PARALLELISM;
+		System.out.println("simulated parallelism=" + parallelism);
+
+		for (String kind : new String[] { "clustered", "uniform", "linked" }) {
+			Set<Integer> set = SetSpliteratorBenchmark.build(kind);
+			report(kind + " / set", set.spliterator(), set.size(), parallelism);
+			report(kind + " / snapshot", SetSpliterators.snapshot(set), set.size(), parallelism);
+		}
+
+		// 快照保持LinkedHashSet的遍历顺序
+		Set<Integer> linked = SetSpliteratorBenchmark.build("linked");
+		List<Integer> ordered = SetSpliterators.parallelStream(linked).map(i -> i).collect(Collectors.toList());
+		System.out.println("LinkedHashSet order kept: " + ordered.equals(new ArrayList<>(linked)));
+	}
+
+	private static void report(String name, Spliterator<Integer> spliterator, int size, int parallelism) {
+		long threshold = Math.max(spliterator.estimateSize() / (parallelism << 2), 1);
+		List<Integer> leaves = new ArrayList<>();
+		split(spliterator, threshold, leaves);
+		int max = leaves.stream().mapToInt(Integer::intValue).max().orElse(0);
+		double speedup = size / Math.max(max, (double) size / parallelism);
+		System.out.printf("%-24s leaves=%4d  max leaf=%6d (%4.1f%%)  speedup bound=%.2f/%d%n", name,
+				leaves.size(), max, max * 100.0 / size, speedup, parallelism);
+	}
+
+	private static void split(Spliterator<Integer> spliterator, long threshold, List<Integer> leaves) {
+		while (spliterator.estimateSize() > threshold) {
+			Spliterator<Integer> prefix = spliterator.trySplit();
+			if (prefix == null) {
+				break;
+			}
+			split(prefix, threshold, leaves);
+		}
+		int[] count = new int[1];
+		spliterator.forEachRemaining(e -> count[0]++);
+		leaves.add(count[0]);
+	}
+}
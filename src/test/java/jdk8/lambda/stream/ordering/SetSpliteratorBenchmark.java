@@ -0,0 +1,130 @@
+package jdk8.lambda.stream.ordering;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 偏斜的Set上,Set自带的Spliterator和SetSpliterators的快照对比:
+ * <ul>
+ * <li>split:按并行流的规则(AbstractTask:估计大小超过总数/(4*并行度)就继续切)切到底并遍历叶子,
+ * Iterator切分时要顺序遍历出一批元素</li>
+ * <li>parallelSum:在当前机器上用parallelStream做每个元素约1微秒的计算(包含快照的toArray)</li>
+ * </ul>
+ * 切出来的叶子大小和加速比上限见{@link SetSplitReport}。
+ * 并行流自己用满commonPool,所以不在JmhRunner默认的include里,单线程运行:
+ * mvn -P jmh test -Djmh.include=jdk8.lambda.stream.ordering.SetSpliteratorBenchmark -Djmh.threads=1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetSpliteratorBenchmark {
+
+	static final int SIZE = 100_000;
+
+	// 模拟的并行度
+	static final int PARALLELISM = 8;
+
+	@Param({ "clustered", "uniform", "linked" })
+	private String set;
+
+	@Param({ "set", "snapshot" })
+	private String spliterator;
+
+	private Set<Integer> elements;
+
+	@Setup
+	public void setup() {
+		elements = build(set);
+	}
+
+	@Benchmark
+	public long split() {
+		Spliterator<Integer> source = spliterator();
+		return split(source, Math.max(source.estimateSize() / (PARALLELISM << 2), 1));
+	}
+
+	@Benchmark
+	public long parallelSum() {
+		Stream<Integer> stream = "snapshot".equals(spliterator) ? SetSpliterators.parallelStream(elements)
+				: elements.parallelStream();
+		return stream.mapToLong(SetSpliteratorBenchmark::work).sum();
+	}
+
+	private Spliterator<Integer> spliterator() {
+		return "snapshot".equals(spliterator) ? SetSpliterators.snapshot(elements) : elements.spliterator();
+	}
+
+	// 返回所有元素的和,遍历不会被优化掉
+	private static long split(Spliterator<Integer> spliterator, long threshold) {
+		long sum = 0;
+		while (spliterator.estimateSize() > threshold) {
+			Spliterator<Integer> prefix = spliterator.trySplit();
+			if (prefix == null) {
+				break;
+			}
+			sum += split(prefix, threshold);
+		}
+		long[] leaf = new long[1];
+		spliterator.forEachRemaining(e -> leaf[0] += e);
+		return sum + leaf[0];
+	}
+
+	/**
+	 * clustered:先放200万个再删到只剩前10万个,桶数组不会缩小,元素全挤在前面5%的桶里;
+	 * uniform:随机的10万个;linked:随机的10万个放在LinkedHashSet里
+	 */
+	static Set<Integer> build(String kind) {
+		Random random = new Random(42);
+		switch (kind) {
+			case "clustered":
+				Set<Integer> clustered = new HashSet<>();
+				for (int i = 0; i < 20 * SIZE; i++) {
+					clustered.add(i);
+				}
+				clustered.removeIf(i -> i >= SIZE);
+				return clustered;
+			case "uniform":
+				return fill(new HashSet<>(), random);
+			case "linked":
+				return fill(new LinkedHashSet<>(), random);
+			default:
+				throw new IllegalArgumentException(kind);
+		}
+	}
+
+	private static Set<Integer> fill(Set<Integer> set, Random random) {
+		while (set.size() < SIZE) {
+			set.add(random.nextInt());
+		}
+		return set;
+	}
+
+	// 每个元素约1微秒的计算
+	private static long work(int value) {
+		long x = value;
+		for (int i = 0; i < 200; i++) {
+			x = x * 6364136223846793005L + 1442695040888963407L;
+		}
+		return x;
+	}
+}
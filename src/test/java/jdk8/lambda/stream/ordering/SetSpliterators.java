@@ -0,0 +1,54 @@
+package jdk8.lambda.stream.ordering;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Set自带的Spliterator并行切分不均匀:
+ * HashSet按桶数组的下标对半切,元素集中在部分桶里(删除后桶数组不会缩小,hash聚集)时两半的元素个数相差很大,
+ * 而且切分后的大小只是估计值,没有SUBSIZED;LinkedHashSet用的是基于Iterator的Spliterator,
+ * 每次切分都要顺序遍历出一批元素(1024、2048、3072...)放到数组里,切分本身就是串行的。
+ * <p>
+ * 这里先把元素复制到数组(toArray是一次顺序遍历),再用数组的Spliterator:SIZED|SUBSIZED,每次都精确对半切。
+ * LinkedHashSet和SortedSet的遍历顺序是确定的,数组里保持这个顺序,并报告ORDERED;
+ * HashSet没有遍历顺序,和它自己的Spliterator一样不报告ORDERED,unordered的流在并行时可以少做很多事
+ * <p>
+ * 是快照:创建之后对Set的修改看不到,也不会抛ConcurrentModificationException
+ */
+public class SetSpliterators {
+
+	private SetSpliterators() {
+	}
+
+	public static <T> Spliterator<T> snapshot(Set<? extends T> set) {
+		int characteristics = Spliterator.DISTINCT | Spliterator.IMMUTABLE;
+		if (hasEncounterOrder(set)) {
+			characteristics |= Spliterator.ORDERED;
+		}
+		// 数组的Spliterator自己加上SIZED|SUBSIZED
+		return Spliterators.spliterator(set.toArray(), characteristics);
+	}
+
+	public static <T> Stream<T> stream(Set<? extends T> set) {
+		return StreamSupport.stream(snapshot(set), false);
+	}
+
+	public static <T> Stream<T> parallelStream(Set<? extends T> set) {
+		return StreamSupport.stream(snapshot(set), true);
+	}
+
+	/**
+	 * 不认识的Set实现按它自己的Spliterator是否ORDERED判断
+	 */
+	static boolean hasEncounterOrder(Set<?> set) {
+		if (set instanceof LinkedHashSet || set instanceof SortedSet) {
+			return true;
+		}
+		return set.spliterator().hasCharacteristics(Spliterator.ORDERED);
+	}
+}
@@ -0,0 +1,31 @@
+package net.aty.springboot.actuator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCachedPrometheusScrapeController {
+
+    @Test
+    public void gzipWithoutQualityIsAccepted() {
+        Assert.assertTrue(CachedPrometheusScrapeController.acceptsGzip("gzip"));
+        Assert.assertTrue(CachedPrometheusScrapeController.acceptsGzip("deflate, GZIP"));
+        Assert.assertTrue(CachedPrometheusScrapeController.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+    }
+
+    @Test
+    public void zeroQualityIsRefused() {
+        Assert.assertFalse(CachedPrometheusScrapeController.acceptsGzip("gzip;q=0"));
+        Assert.assertFalse(CachedPrometheusScrapeController.acceptsGzip("gzip; q=0.000, identity"));
+        Assert.assertFalse(CachedPrometheusScrapeController.acceptsGzip("*, gzip;q=0"));
+    }
+
+    @Test
+    public void wildcardAppliesWhenGzipIsNotListed() {
+        Assert.assertTrue(CachedPrometheusScrapeController.acceptsGzip("*"));
+        Assert.assertFalse(CachedPrometheusScrapeController.acceptsGzip("*;q=0"));
+        Assert.assertFalse(CachedPrometheusScrapeController.acceptsGzip("identity"));
+        Assert.assertFalse(CachedPrometheusScrapeController.acceptsGzip(null));
+        // 不是gzip这个名字
+        Assert.assertFalse(CachedPrometheusScrapeController.acceptsGzip("x-notgzip"));
+    }
+}
@@ -0,0 +1,122 @@
+package net.aty.springboot.actuator;
+
+import io.prometheus.client.Collector;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestLatencyHistogram {
+
+    private static final long[] SLO = {1_000_000, 10_000_000, 100_000_000};
+
+    @Test
+    public void bucketBoundaries() {
+        Assert.assertEquals(0, LatencyHistogram.bucketIndex(0));
+        Assert.assertEquals(31, LatencyHistogram.bucketIndex(31));
+        Assert.assertEquals(32, LatencyHistogram.bucketIndex(32));
+        Assert.assertEquals(63, LatencyHistogram.bucketIndex(63));
+        // 64开始每个桶宽度2
+        Assert.assertEquals(64, LatencyHistogram.bucketIndex(64));
+        Assert.assertEquals(64, LatencyHistogram.bucketIndex(65));
+        Assert.assertEquals(65, LatencyHistogram.bucketIndex(66));
+        Assert.assertEquals(1151, LatencyHistogram.bucketIndex((1L << 40) - 1));
+        Assert.assertEquals(LatencyHistogram.BUCKET_COUNT - 1, 1151);
+        Assert.assertEquals((1L << 40) - 1, LatencyHistogram.upperBound(1151));
+
+        // 每个桶的上界落在这个桶里,上界+1落在下一个桶
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT - 1; i++) {
+            long upper = LatencyHistogram.upperBound(i);
+            Assert.assertEquals(i, LatencyHistogram.bucketIndex(upper));
+            Assert.assertEquals(i + 1, LatencyHistogram.bucketIndex(upper + 1));
+        }
+    }
+
+    @Test
+    public void valuesAboveMaxAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram(SLO);
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+        Assert.assertEquals(2, histogram.count());
+        Assert.assertEquals((1L << 40) - 1, histogram.maxNanos());
+        Assert.assertEquals((1L << 40) - 1, histogram.valueAtQuantile(1.0));
+        Assert.assertEquals(0, histogram.valueAtQuantile(0.5));
+    }
+
+    @Test
+    public void quantilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram(SLO);
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1000);
+        }
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            double exact = quantile * 100_000 * 1000;
+            long estimate = histogram.valueAtQuantile(quantile);
+            Assert.assertTrue(quantile + ": " + estimate, estimate >= exact);
+            Assert.assertTrue(quantile + ": " + estimate, estimate <= exact * (1 + 1.0 / 32));
+        }
+        Assert.assertEquals(100_000_000, histogram.valueAtQuantile(1.0));
+        Assert.assertEquals(0, new LatencyHistogram(SLO).valueAtQuantile(0.5));
+    }
+
+    @Test
+    public void merge() {
+        LatencyHistogram a = new LatencyHistogram(SLO);
+        LatencyHistogram b = new LatencyHistogram(SLO);
+        a.record(500_000);
+        a.record(5_000_000);
+        b.record(50_000_000);
+        b.record(500_000_000);
+        a.merge(b);
+        Assert.assertEquals(4, a.count());
+        Assert.assertEquals(555_500_000, a.totalNanos());
+        Assert.assertEquals(500_000_000, a.maxNanos());
+        Assert.assertArrayEquals(new long[]{1, 2, 3, 4}, a.cumulativeSloCounts());
+        Assert.assertEquals(LatencyHistogram.upperBound(LatencyHistogram.bucketIndex(50_000_000)),
+                a.valueAtQuantile(0.75));
+
+        try {
+            a.merge(new LatencyHistogram(new long[]{1}));
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void sloCountsAreExactAndCumulative() {
+        LatencyHistogram histogram = new LatencyHistogram(new long[]{100_000_000, 1_000_000});
+        Assert.assertArrayEquals(new long[]{1_000_000, 100_000_000}, histogram.getSloNanos());
+        // 等于边界算在这个边界以内(le)
+        histogram.record(1_000_000);
+        histogram.record(1_000_001);
+        histogram.record(100_000_000);
+        histogram.record(100_000_001);
+        long[] cumulative = histogram.cumulativeSloCounts();
+        Assert.assertArrayEquals(new long[]{1, 3, 4}, cumulative);
+        Assert.assertEquals(histogram.count(), cumulative[cumulative.length - 1]);
+    }
+
+    @Test
+    public void exportedCountMatchesInfBucket() {
+        OrderLatencyRecorder recorder = new OrderLatencyRecorder(Collections.singletonList("game"),
+                Arrays.asList(Duration.ofMillis(1), Duration.ofMillis(10)));
+        recorder.histogram("game").record(2_000_000);
+        recorder.histogram("game").record(20_000_000);
+
+        List<Collector.MetricFamilySamples.Sample> samples = recorder.collect().get(0).samples;
+        double inf = -1;
+        double count = -2;
+        for (Collector.MetricFamilySamples.Sample sample : samples) {
+            if (sample.labelValues.contains("+Inf")) {
+                inf = sample.value;
+            } else if (sample.name.endsWith("_count")) {
+                count = sample.value;
+            }
+        }
+        Assert.assertEquals(2, inf, 0);
+        Assert.assertEquals(inf, count, 0);
+    }
+}
@@ -0,0 +1,40 @@
+package net.aty.springboot.actuator;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestMeterHandles {
+
+    @Test
+    public void sameIdReturnsSameHandle() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MeterHandles.GaugeHandle first = MeterHandles.gauge(registry, "game.order.count", "channel", "theme");
+        MeterHandles.GaugeHandle second = MeterHandles.gauge(registry, "game.order.count", "channel", "theme");
+        Assert.assertSame(first, second);
+
+        second.set(3.0);
+        Assert.assertEquals(3.0, registry.get("game.order.count").tag("channel", "theme").gauge().value(), 0);
+    }
+
+    @Test
+    public void differentRegistriesGetTheirOwnHandle() {
+        SimpleMeterRegistry registry1 = new SimpleMeterRegistry();
+        SimpleMeterRegistry registry2 = new SimpleMeterRegistry();
+        MeterHandles.GaugeHandle handle1 = MeterHandles.gauge(registry1, "game.order.count", "channel", "store");
+        MeterHandles.GaugeHandle handle2 = MeterHandles.gauge(registry2, "game.order.count", "channel", "store");
+        Assert.assertNotSame(handle1, handle2);
+
+        handle2.set(5.0);
+        Assert.assertEquals(0.0, registry1.get("game.order.count").gauge().value(), 0);
+        Assert.assertEquals(5.0, registry2.get("game.order.count").gauge().value(), 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void gaugeRegisteredElsewhereIsRejected() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Gauge.builder("game.order.count", () -> 1.0).tag("channel", "game").register(registry);
+        MeterHandles.gauge(registry, "game.order.count", "channel", "game");
+    }
+}
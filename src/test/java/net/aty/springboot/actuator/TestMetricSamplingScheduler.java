@@ -0,0 +1,116 @@
+package net.aty.springboot.actuator;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestMetricSamplingScheduler {
+
+    private MetricSamplingScheduler scheduler;
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+    }
+
+    /**
+     * 抖动加在按间隔累加的计划时间上,准时执行时第n次的计划时间正好是n个间隔之后
+     */
+    @Test
+    public void dueTimesDoNotDrift() {
+        long interval = Duration.ofSeconds(1).toNanos();
+        MetricSamplingScheduler.Source source = new MetricSamplingScheduler.Source(() -> {
+        }, 0);
+        Assert.assertEquals(interval, source.nextDueNanos);
+        for (int i = 1; i <= 1000; i++) {
+            // 到期时执行,下一次的计划时间只和次数有关,和抖动无关
+            source.scheduleNext(source.nextDueNanos, 0.5);
+            Assert.assertEquals((i + 1) * interval, source.baseDueNanos);
+            Assert.assertTrue(source.nextDueNanos >= source.baseDueNanos);
+            Assert.assertTrue(source.nextDueNanos < source.baseDueNanos + interval / 2);
+        }
+    }
+
+    /**
+     * 落后一个间隔以上时从当前时间重新计算,不连续补跑
+     */
+    @Test
+    public void fallingBehindRestartsFromNow() {
+        long interval = Duration.ofSeconds(1).toNanos();
+        MetricSamplingScheduler.Source source = new MetricSamplingScheduler.Source(() -> {
+        }, 0);
+        source.scheduleNext(10 * interval, 0);
+        Assert.assertEquals(11 * interval, source.nextDueNanos);
+    }
+
+    @Test
+    public void failingSamplerDoesNotAffectOthers() throws Exception {
+        CountingSampler healthy = new CountingSampler();
+        CountingSampler failing = new CountingSampler() {
+            @Override
+            public void sample() {
+                super.sample();
+                throw new IllegalStateException("boom");
+            }
+        };
+        scheduler = newScheduler(healthy, failing);
+        scheduler.start();
+        Thread.sleep(500);
+        Assert.assertTrue("healthy=" + healthy.count, healthy.count.get() >= 5);
+        Assert.assertTrue("failing=" + failing.count, failing.count.get() >= 5);
+    }
+
+    @Test
+    public void stopAndStart() throws Exception {
+        CountingSampler sampler = new CountingSampler();
+        scheduler = newScheduler(sampler);
+        Assert.assertFalse(scheduler.isRunning());
+        scheduler.start();
+        scheduler.start();
+        Assert.assertTrue(scheduler.isRunning());
+        Thread.sleep(300);
+        scheduler.stop();
+        Assert.assertFalse(scheduler.isRunning());
+
+        int stopped = sampler.count.get();
+        Assert.assertTrue("sampled=" + stopped, stopped > 0);
+        Thread.sleep(200);
+        Assert.assertEquals(stopped, sampler.count.get());
+
+        scheduler.start();
+        Thread.sleep(300);
+        Assert.assertTrue(sampler.count.get() > stopped);
+    }
+
+    private static MetricSamplingScheduler newScheduler(MetricSampler... samplers) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        for (int i = 0; i < samplers.length; i++) {
+            beanFactory.registerSingleton("sampler" + i, samplers[i]);
+        }
+        MetricSamplingProperties properties = new MetricSamplingProperties();
+        properties.setTick(Duration.ofMillis(5));
+        properties.setJitter(0.2);
+        return new MetricSamplingScheduler(beanFactory.getBeanProvider(MetricSampler.class), properties);
+    }
+
+    private static class CountingSampler implements MetricSampler {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void sample() {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public Duration samplingInterval() {
+            return Duration.ofMillis(20);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package net.aty.springboot.actuator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.List;
+
+public class TestOrderMetricHistory {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacityIsRejected() throws IOException {
+        history(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooLargeCapacityIsRejected() throws IOException {
+        history(OrderMetricHistory.MAX_CAPACITY + 1);
+    }
+
+    @Test
+    public void readsOnlyTheSecondStoredInTheSlot() throws IOException {
+        OrderMetricHistory history = history(60);
+        history.write(2, 1000, 7.5);
+        Assert.assertEquals(7.5, history.read(2, 1000), 0);
+        // 同一个slot,不同的秒
+        Assert.assertTrue(Double.isNaN(history.read(2, 1060)));
+        Assert.assertTrue(Double.isNaN(history.read(1, 1000)));
+
+        history.write(2, 1060, 9.0);
+        Assert.assertEquals(9.0, history.read(2, 1060), 0);
+        Assert.assertTrue(Double.isNaN(history.read(2, 1000)));
+    }
+
+    @Test
+    public void largeCapacityDoesNotOverflowOffsets() throws IOException {
+        OrderMetricHistory history = history(OrderMetricHistory.MAX_CAPACITY);
+        long second = OrderMetricHistory.MAX_CAPACITY - 1;
+        history.write(2, second, 1.0);
+        Assert.assertEquals(1.0, history.read(2, second), 0);
+        Assert.assertTrue(Double.isNaN(history.read(0, second)));
+    }
+
+    @Test
+    public void seriesAveragesByResolution() throws IOException {
+        OrderMetricHistory history = history(60);
+        long now = System.currentTimeMillis() / 1000;
+        for (long second = now - 9; second <= now; second++) {
+            history.write(0, second, second - (now - 9));
+        }
+        List<OrderMetricHistory.Point> points = history.series("store", 1, 10);
+        Assert.assertTrue(points.size() >= 9);
+        Assert.assertEquals(9.0, points.get(points.size() - 1).getValue(), 0);
+    }
+
+    private OrderMetricHistory history(int capacity) throws IOException {
+        OrderMetricHistoryProperties properties = new OrderMetricHistoryProperties();
+        properties.setFile(folder.newFile());
+        properties.setCapacity(capacity);
+        return new OrderMetricHistory(new SimpleMeterRegistry(), properties);
+    }
+}
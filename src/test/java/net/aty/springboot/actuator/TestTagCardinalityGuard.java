@@ -0,0 +1,46 @@
+package net.aty.springboot.actuator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestTagCardinalityGuard {
+
+    @Test
+    public void heldHandleKeepsReportingAfterLimitIsReached() {
+        SimpleMeterRegistry registry = registry(2);
+        Counter held = Counter.builder("game.order").tag("channel", "store").register(registry);
+        held.increment();
+
+        Counter.builder("game.order").tag("channel", "game").register(registry);
+        Counter overflow = Counter.builder("game.order").tag("channel", "theme").register(registry);
+        Assert.assertEquals("other", overflow.getId().getTag("channel"));
+
+        // 名额满了以后已有的meter不会被移除,调用方手里的handle仍然有效
+        held.increment();
+        Assert.assertSame(held, registry.find("game.order").tag("channel", "store").counter());
+        Assert.assertEquals(2.0, registry.get("game.order").tag("channel", "store").counter().count(), 0);
+    }
+
+    @Test
+    public void admittedValueIsStillAcceptedWhenFull() {
+        SimpleMeterRegistry registry = registry(1);
+        Counter first = Counter.builder("game.order").tag("channel", "store").register(registry);
+        Counter.builder("game.order").tag("channel", "game").register(registry);
+
+        Counter again = Counter.builder("game.order").tag("channel", "store").register(registry);
+        Assert.assertSame(first, again);
+        Assert.assertEquals(1.0, registry.get("metric.tag.guard.rejected").functionCounter().count(), 0);
+    }
+
+    private static SimpleMeterRegistry registry(int maxValues) {
+        TagCardinalityProperties properties = new TagCardinalityProperties();
+        properties.setMaxValues(maxValues);
+        TagCardinalityGuard guard = new TagCardinalityGuard(properties);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(guard);
+        guard.bindTo(registry);
+        return registry;
+    }
+}
@@ -0,0 +1,126 @@
+package net.aty.springboot.admin;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 进程内模拟1000个实例,对比admin server原来的轮询方式(每个interval对所有实例发起status和info请求,不限并发)
+ * 和InstancePollingScheduler(全局并发上限+自适应间隔+请求合并)的请求数、峰值并发、CPU时间和线程数
+ * <p>
+ * 每个模拟请求延迟20~80ms,并消耗一点CPU模拟http调用和json解析;5%的实例状态会来回变化,info偶尔变化
+ * <p>
+ * 比较的是整个场景跑完后的计数,不是单次操作的耗时,所以没有写成JMH的@Benchmark,只借用Blackhole.consumeCPU消耗CPU
+ */
+public class InstancePollingBenchmark {
+
+    private static final int INSTANCES = 1000;
+
+    private static final Duration RUN = Duration.ofSeconds(30);
+
+    private static final Duration STATUS_INTERVAL = Duration.ofSeconds(2);
+
+    private static final Duration INFO_INTERVAL = Duration.ofSeconds(10);
+
+    // 大约0.2ms的CPU时间
+    private static final long BURN_TOKENS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        List<InstanceId> ids = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            ids.add(InstanceId.of("stub-" + i));
+        }
+        // 两种方式各预热一次,避免jit和reactor初始化算进正式的场景
+        run("warmup", ids, Duration.ofSeconds(5), false);
+        run("warmup", ids, Duration.ofSeconds(5), true);
+        run("fixed-interval", ids, RUN, false);
+        run("scheduler", ids, RUN, true);
+    }
+
+    private static void run(String name, List<InstanceId> ids, Duration duration, boolean scheduled) throws Exception {
+        StubInstances stubs = new StubInstances();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        threads.resetPeakThreadCount();
+        long cpu = os.getProcessCpuTime();
+
+        Disposable fixed = null;
+        InstancePollingScheduler scheduler = null;
+        if (scheduled) {
+            scheduler = new InstancePollingScheduler(() -> Flux.fromIterable(ids), stubs::status, stubs::info,
+                    32, Duration.ofMillis(200),
+                    STATUS_INTERVAL, Duration.ofSeconds(16), INFO_INTERVAL, Duration.ofSeconds(60));
+            scheduler.start();
+            ids.forEach(scheduler::requestNow);
+        } else {
+            // 和admin server的IntervalCheck一样,每个interval对所有实例flatMap发起请求
+            fixed = Flux.merge(
+                    Flux.interval(Duration.ZERO, STATUS_INTERVAL)
+                            .concatMap(i -> Flux.fromIterable(ids).flatMap(stubs::status).then()),
+                    Flux.interval(Duration.ZERO, INFO_INTERVAL)
+                            .concatMap(i -> Flux.fromIterable(ids).flatMap(stubs::info).then()))
+                    .subscribe();
+        }
+        Thread.sleep(duration.toMillis());
+        if (fixed != null) {
+            fixed.dispose();
+        }
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+
+        long cpuMillis = (os.getProcessCpuTime() - cpu) / 1_000_000;
+        System.out.println(name + ": instances=" + ids.size() + ", seconds=" + duration.getSeconds()
+                + ", status polls=" + stubs.statusPolls.sum() + ", info polls=" + stubs.infoPolls.sum()
+                + ", peak in-flight=" + stubs.peakInFlight.get() + ", cpu time=" + cpuMillis + "ms"
+                + ", peak threads=" + threads.getPeakThreadCount()
+                + (scheduler == null ? "" : ", coalesced=" + scheduler.getCoalesced()));
+    }
+
+    private static final class StubInstances {
+
+        private final LongAdder statusPolls = new LongAdder();
+
+        private final LongAdder infoPolls = new LongAdder();
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+
+        private Mono<String> status(InstanceId id) {
+            statusPolls.increment();
+            boolean flapping = id.getValue().hashCode() % 20 == 0;
+            return call(() -> flapping && ThreadLocalRandom.current().nextBoolean() ? "DOWN" : "UP");
+        }
+
+        private Mono<Object> info(InstanceId id) {
+            infoPolls.increment();
+            return call(() -> ThreadLocalRandom.current().nextInt(50) == 0 ? "build-" + System.nanoTime() : "build-1");
+        }
+
+        private <T> Mono<T> call(Supplier<T> result) {
+            return Mono.defer(() -> {
+                peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                return Mono.delay(Duration.ofMillis(20 + ThreadLocalRandom.current().nextInt(60)))
+                        .map(i -> {
+                            Blackhole.consumeCPU(BURN_TOKENS);
+                            inFlight.decrementAndGet();
+                            return result.get();
+                        });
+            });
+        }
+    }
+}
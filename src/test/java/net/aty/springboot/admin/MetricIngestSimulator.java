@@ -0,0 +1,141 @@
+package net.aty.springboot.admin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地模拟多个实例向admin server推送metric增量
+ * <p>
+ * 不带参数时在进程内创建MetricDeltaAggregator,批次经过一次json序列化/反序列化后直接交给aggregator,
+ * 并随机模拟"服务端已处理但客户端超时"的情况,最后校验聚合结果等于各实例最终取值之和;
+ * 参数传admin server地址(例如http://localhost:8080)时通过HTTP推送到运行中的AtyApplication
+ */
+public class MetricIngestSimulator {
+
+    private static final int INSTANCES = 300;
+
+    private static final int ROUNDS = 50;
+
+    private static final String[] SERIES = {
+            "game.order.count.way1{channel=store}:value",
+            "game.order.count.way2{channel=game}:value",
+            "game.order.count.way3{channel=theme}:value",
+            "game.order.count{channel=game}:count"
+    };
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : null;
+        MetricDeltaAggregator aggregator = new MetricDeltaAggregator(Duration.ofMinutes(1));
+        RestTemplate restTemplate = new RestTemplate();
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        List<SimulatedInstance> instances = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            instances.add(new SimulatedInstance("sim-" + i, new Random(i)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        long start = System.currentTimeMillis();
+        long bytes = 0;
+        int batches = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (SimulatedInstance instance : instances) {
+                futures.add(executor.submit(() -> {
+                    instance.tick();
+                    MetricBatch batch = instance.tracker.nextBatch(instance.values);
+                    if (batch == null) {
+                        return 0;
+                    }
+                    byte[] payload = objectMapper.writeValueAsBytes(batch);
+                    if (url != null) {
+                        restTemplate.postForEntity(url + "/ingest/metrics", batch, Void.class);
+                    } else {
+                        aggregator.ingest(objectMapper.readValue(payload, MetricBatch.class));
+                    }
+                    // 10%的概率丢失确认,下一轮会重发同一个批次
+                    if (instance.random.nextInt(10) != 0) {
+                        instance.tracker.acknowledge();
+                    }
+                    return payload.length;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                int size = future.get();
+                if (size > 0) {
+                    bytes += size;
+                    batches++;
+                }
+            }
+        }
+        // 把未确认的批次都送达
+        for (SimulatedInstance instance : instances) {
+            MetricBatch batch;
+            while ((batch = instance.tracker.nextBatch(instance.values)) != null) {
+                if (url != null) {
+                    restTemplate.postForEntity(url + "/ingest/metrics", batch, Void.class);
+                } else {
+                    aggregator.ingest(batch);
+                }
+                instance.tracker.acknowledge();
+            }
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        long cost = System.currentTimeMillis() - start;
+
+        System.out.println("instances=" + INSTANCES + ", rounds=" + ROUNDS + ", batches=" + batches
+                + ", avg batch bytes=" + (batches == 0 ? 0 : bytes / batches) + ", cost time=" + cost + "ms");
+
+        if (url == null) {
+            Map<String, Double> expected = new HashMap<>();
+            for (SimulatedInstance instance : instances) {
+                instance.values.forEach((key, value) -> expected.merge(key, value, Double::sum));
+            }
+            Map<String, Double> actual = aggregator.totals();
+            boolean consistent = true;
+            for (String key : SERIES) {
+                double diff = Math.abs(expected.get(key) - actual.get(key));
+                System.out.println(key + " expected=" + expected.get(key) + ", aggregated=" + actual.get(key));
+                consistent &= diff < 1e-6 * Math.max(1, Math.abs(expected.get(key)));
+            }
+            System.out.println("consistent=" + consistent + ", " + aggregator.snapshot().get("duplicatedBatches")
+                    + " duplicated batches dropped");
+        }
+    }
+
+    private static final class SimulatedInstance {
+
+        private final Random random;
+
+        private final MetricDeltaTracker tracker;
+
+        private final Map<String, Double> values = new HashMap<>();
+
+        private SimulatedInstance(String id, Random random) {
+            this.random = random;
+            this.tracker = new MetricDeltaTracker(id);
+        }
+
+        private void tick() {
+            for (int i = 0; i < SERIES.length - 1; i++) {
+                // gauge有一半的概率不变,不变的series不会出现在批次里
+                if (random.nextBoolean()) {
+                    values.put(SERIES[i], (double) random.nextInt(100));
+                }
+            }
+            values.merge(SERIES[SERIES.length - 1], (double) random.nextInt(5), Double::sum);
+        }
+    }
+}
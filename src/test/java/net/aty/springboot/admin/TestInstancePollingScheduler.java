@@ -0,0 +1,204 @@
+package net.aty.springboot.admin;
+
+import de.codecentric.boot.admin.server.domain.values.InstanceId;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class TestInstancePollingScheduler {
+
+    private static final InstanceId A = InstanceId.of("a");
+
+    private static final InstanceId B = InstanceId.of("b");
+
+    private final List<MonoProcessor<String>> pending = new CopyOnWriteArrayList<>();
+
+    private final List<String> order = new CopyOnWriteArrayList<>();
+
+    private InstancePollingScheduler scheduler;
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    public void concurrencyIsCapped() {
+        scheduler = newScheduler(Flux::empty, id -> hold(), 2, Duration.ofSeconds(10));
+        List<InstanceId> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(InstanceId.of("i" + i));
+        }
+        scheduler.scheduleDue(ids);
+        Assert.assertEquals(2, scheduler.getPolls());
+        Assert.assertEquals(2, pending.size());
+
+        // 完成一个之后队列里的下一个马上补上
+        pending.get(0).onNext("UP");
+        Assert.assertEquals(3, scheduler.getPolls());
+        Assert.assertEquals(2, scheduler.getPeakInFlight());
+
+        while (scheduler.getPolls() < 10) {
+            pending.get((int) scheduler.getPolls() - 2).onNext("UP");
+        }
+        Assert.assertEquals(2, scheduler.getPeakInFlight());
+    }
+
+    /**
+     * 同一实例同一类请求还在执行中时,事件触发和tick都合并到进行中的那次
+     */
+    @Test
+    public void pendingRequestsAreCoalesced() {
+        scheduler = newScheduler(Flux::empty, id -> hold(), 16, Duration.ofSeconds(10));
+        scheduler.requestNow(A);
+        Assert.assertEquals(2, scheduler.getPolls());
+
+        scheduler.requestNow(A);
+        scheduler.requestInfoNow(A);
+        scheduler.scheduleDue(Collections.singletonList(A));
+        Assert.assertEquals(2, scheduler.getPolls());
+        Assert.assertEquals(3, scheduler.getCoalesced());
+
+        for (MonoProcessor<String> processor : pending) {
+            processor.onNext("UP");
+        }
+        scheduler.requestNow(A);
+        Assert.assertEquals(4, scheduler.getPolls());
+    }
+
+    /**
+     * 并发只有1时,不是UP的实例排在UP的实例前面
+     */
+    @Test
+    public void instancesNotUpArePolledFirst() {
+        scheduler = newScheduler(Flux::empty, id -> Mono.just(A.equals(id) ? "UP" : "DOWN"), 1, Duration.ofNanos(1));
+        List<InstanceId> ids = Arrays.asList(A, B);
+        scheduler.scheduleDue(ids);
+        order.clear();
+
+        scheduler.scheduleDue(ids);
+        Assert.assertEquals(4, order.size());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(order.toString(), order.get(i).endsWith(i < 2 ? " b" : " a"));
+        }
+    }
+
+    /**
+     * 一直是UP时间隔逐次翻倍直到上限,状态一变马上恢复基础间隔
+     */
+    @Test
+    public void stableIntervalDoublesAndResetsOnChange() throws Exception {
+        String[] status = {"UP"};
+        Duration base = Duration.ofMillis(10);
+        scheduler = newScheduler(Flux::empty, id -> Mono.just(status[0]), 16, base);
+        scheduler.requestNow(A);
+        Assert.assertEquals(base, interval());
+
+        for (long expected : new long[]{20, 40, 40}) {
+            pollWhenDue();
+            Assert.assertEquals(Duration.ofMillis(expected), interval());
+        }
+
+        status[0] = "DOWN";
+        pollWhenDue();
+        Assert.assertEquals(base, interval());
+        // DOWN没有变化也不翻倍
+        pollWhenDue();
+        Assert.assertEquals(base, interval());
+    }
+
+    /**
+     * 轮询函数同步抛异常也要释放并发名额,记一次失败,间隔恢复基础值
+     */
+    @Test
+    public void synchronousFailureReleasesSlot() {
+        AtomicInteger calls = new AtomicInteger();
+        scheduler = newScheduler(Flux::empty, id -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("boom");
+        }, 1, Duration.ofSeconds(10));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        scheduler.bindTo(registry);
+
+        scheduler.requestNow(A);
+        scheduler.requestNow(A);
+        Assert.assertEquals(4, calls.get());
+        Assert.assertEquals(0, scheduler.getCoalesced());
+        Assert.assertEquals(4.0, registry.get("admin.polling.failures").functionCounter().count(), 0);
+        Assert.assertEquals(0.0, registry.get("admin.polling.in.flight").gauge().value(), 0);
+        Assert.assertEquals(Duration.ofSeconds(10), scheduler.currentInterval(A, InstancePollingScheduler.Kind.STATUS));
+    }
+
+    /**
+     * 取实例列表出错只跳过一次tick,后面的tick照常轮询
+     */
+    @Test
+    public void instancesErrorDoesNotStopTicker() throws Exception {
+        AtomicInteger listed = new AtomicInteger();
+        scheduler = newScheduler(() -> {
+            if (listed.incrementAndGet() == 1) {
+                throw new IllegalStateException("boom");
+            }
+            return listed.get() == 2 ? Flux.error(new IllegalStateException("boom")) : Flux.just(A);
+        }, id -> Mono.just("UP"), 16, Duration.ofSeconds(10));
+        scheduler.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getPolls() == 0) {
+            Assert.assertTrue("timed out", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(listed.get() >= 3);
+    }
+
+    private Mono<String> hold() {
+        MonoProcessor<String> processor = MonoProcessor.create();
+        pending.add(processor);
+        return processor;
+    }
+
+    private Duration interval() {
+        return scheduler.currentInterval(A, InstancePollingScheduler.Kind.STATUS);
+    }
+
+    private void pollWhenDue() throws InterruptedException {
+        long polls = scheduler.getPolls();
+        Thread.sleep(interval().toMillis() + 5);
+        scheduler.scheduleDue(Collections.singletonList(A));
+        Assert.assertTrue(scheduler.getPolls() > polls);
+    }
+
+    /**
+     * status和info用同一个轮询函数,按调用顺序记录到order
+     */
+    private InstancePollingScheduler newScheduler(Supplier<Flux<InstanceId>> instances,
+                                                  Function<InstanceId, Mono<String>> poll,
+                                                  int maxConcurrency, Duration interval) {
+        return new InstancePollingScheduler(instances,
+                id -> {
+                    order.add("STATUS " + id.getValue());
+                    return poll.apply(id);
+                },
+                id -> {
+                    order.add("INFO " + id.getValue());
+                    return poll.apply(id).cast(Object.class);
+                },
+                maxConcurrency, Duration.ofMillis(10), interval, interval.multipliedBy(4), interval, interval.multipliedBy(4));
+    }
+}
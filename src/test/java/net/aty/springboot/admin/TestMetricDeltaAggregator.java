@@ -0,0 +1,108 @@
+package net.aty.springboot.admin;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+public class TestMetricDeltaAggregator {
+
+    private static final String SERIES = "game.order.count{channel=game}:count";
+
+    @Test
+    public void silentInstanceIsExpiredAndSubtracted() {
+        MetricDeltaAggregator aggregator = new MetricDeltaAggregator(Duration.ofMinutes(1));
+        Assert.assertTrue(aggregator.ingest(batch("app:8080:aaaa", 1, 3.0)));
+        Assert.assertTrue(aggregator.ingest(batch("app:8080:bbbb", 1, 5.0)));
+        Assert.assertEquals(8.0, aggregator.totals().get(SERIES), 0);
+
+        long now = System.currentTimeMillis();
+        aggregator.expire(now + 30_000);
+        Assert.assertEquals(8.0, aggregator.totals().get(SERIES), 0);
+
+        aggregator.expire(now + 61_000);
+        Assert.assertEquals(0.0, aggregator.totals().get(SERIES), 0);
+        Map<String, Object> snapshot = aggregator.snapshot();
+        Assert.assertEquals(2L, snapshot.get("expiredInstances"));
+        Assert.assertTrue(((Map<?, ?>) snapshot.get("instances")).isEmpty());
+    }
+
+    @Test
+    public void activeInstanceIsKept() {
+        MetricDeltaAggregator aggregator = new MetricDeltaAggregator(Duration.ofMinutes(1));
+        aggregator.ingest(batch("app:8080:aaaa", 1, 3.0));
+        aggregator.ingest(batch("app:8081:cccc", 1, 4.0));
+
+        aggregator.expire(System.currentTimeMillis() + 1_000);
+        Assert.assertEquals(7.0, aggregator.totals().get(SERIES), 0);
+        // sequence去重仍然有效
+        Assert.assertFalse(aggregator.ingest(batch("app:8080:aaaa", 1, 3.0)));
+    }
+
+    @Test
+    public void expiredInstanceStartsOverWhenItPushesAgain() {
+        MetricDeltaAggregator aggregator = new MetricDeltaAggregator(Duration.ofMinutes(1));
+        aggregator.ingest(batch("app:8080:aaaa", 5, 3.0));
+        aggregator.expire(System.currentTimeMillis() + 61_000);
+
+        Assert.assertTrue(aggregator.ingest(batch("app:8080:aaaa", 1, 2.0)));
+        Assert.assertEquals(2.0, aggregator.totals().get(SERIES), 0);
+    }
+
+    /**
+     * 不完整的批次被拒绝,不占用sequence,修正后的重发会被接受
+     */
+    @Test
+    public void invalidBatchIsRejectedWithoutSideEffects() {
+        MetricDeltaAggregator aggregator = new MetricDeltaAggregator(Duration.ofMinutes(1));
+        MetricBatch mismatched = batch("app:8080:aaaa", 1, 3.0);
+        mismatched.setSeries(Arrays.asList(SERIES, "game.order.count{channel=store}:count"));
+        assertRejected(aggregator, mismatched);
+        Assert.assertTrue(aggregator.totals().isEmpty());
+        Assert.assertTrue(((Map<?, ?>) aggregator.snapshot().get("instances")).isEmpty());
+
+        assertRejected(aggregator, batch(null, 1, 3.0));
+        MetricBatch noDeltas = batch("app:8080:aaaa", 1, 3.0);
+        noDeltas.setDeltas(null);
+        assertRejected(aggregator, noDeltas);
+        MetricBatch noSeries = batch("app:8080:aaaa", 1, 3.0);
+        noSeries.setSeries(null);
+        assertRejected(aggregator, noSeries);
+        MetricBatch nullSeries = batch("app:8080:aaaa", 1, 3.0);
+        nullSeries.setSeries(Collections.singletonList(null));
+        assertRejected(aggregator, nullSeries);
+
+        Assert.assertTrue(aggregator.ingest(batch("app:8080:aaaa", 1, 3.0)));
+        Assert.assertEquals(3.0, aggregator.totals().get(SERIES), 0);
+        Assert.assertEquals(0L, aggregator.snapshot().get("duplicatedBatches"));
+    }
+
+    @Test
+    public void controllerAnswersBadRequest() {
+        MetricIngestController controller = new MetricIngestController(new MetricDeltaAggregator(Duration.ofMinutes(1)));
+        Assert.assertEquals(HttpStatus.BAD_REQUEST, controller.ingest(batch(null, 1, 3.0)).getStatusCode());
+        Assert.assertEquals(HttpStatus.ACCEPTED, controller.ingest(batch("app:8080:aaaa", 1, 3.0)).getStatusCode());
+    }
+
+    private static void assertRejected(MetricDeltaAggregator aggregator, MetricBatch batch) {
+        try {
+            aggregator.ingest(batch);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static MetricBatch batch(String instance, long sequence, double delta) {
+        MetricBatch batch = new MetricBatch();
+        batch.setInstance(instance);
+        batch.setSequence(sequence);
+        batch.setTimestamp(System.currentTimeMillis());
+        batch.setSeries(Arrays.asList(SERIES));
+        batch.setDeltas(new double[]{delta});
+        return batch;
+    }
+}
@@ -0,0 +1,83 @@
+package net.aty.springboot.admin;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestMetricPushClient {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final Counter orders = Counter.builder("game.order.count").register(registry);
+
+    private final List<MetricBatch> posted = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private MetricPushClient client;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        client.close();
+    }
+
+    /**
+     * admin server卡住时sample()立即返回,推送没结束之前不再发新的批次,结束后变化合并进下一个批次
+     */
+    @Test
+    public void slowServerDoesNotBlockSampling() throws Exception {
+        client = new MetricPushClient(registry, new RestTemplate() {
+            @Override
+            public <T> ResponseEntity<T> postForEntity(String url, Object request, Class<T> responseType,
+                                                       Object... uriVariables) {
+                posted.add((MetricBatch) request);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        }, new MetricPushProperties(), "app:8080:aaaa");
+
+        orders.increment();
+        long start = System.nanoTime();
+        client.sample();
+        waitFor(1);
+        orders.increment();
+        client.sample();
+        orders.increment();
+        client.sample();
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        Assert.assertEquals(1, posted.size());
+        Assert.assertArrayEquals(new double[]{1.0}, posted.get(0).getDeltas(), 0);
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (posted.size() < 2 && System.nanoTime() < deadline) {
+            client.sample();
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(2, posted.size());
+        Assert.assertEquals(2, posted.get(1).getSequence());
+        Assert.assertArrayEquals(new double[]{2.0}, posted.get(1).getDeltas(), 0);
+    }
+
+    private void waitFor(int batches) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (posted.size() < batches) {
+            Assert.assertTrue("timed out", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
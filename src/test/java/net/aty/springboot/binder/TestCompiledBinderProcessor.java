@@ -0,0 +1,39 @@
+package net.aty.springboot.binder;
+
+import net.aty.springboot.core.SelfPropertyBinder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestCompiledBinderProcessor {
+
+    @Test
+    public void capitalRunsAreOneWord() {
+        Assert.assertEquals("first-name", CompiledBinderProcessor.propertyName("FirstName"));
+        Assert.assertEquals("url", CompiledBinderProcessor.propertyName("URL"));
+        Assert.assertEquals("http-url", CompiledBinderProcessor.propertyName("HttpURL"));
+        Assert.assertEquals("http-url", CompiledBinderProcessor.propertyName("httpURL"));
+        Assert.assertEquals("url-path", CompiledBinderProcessor.propertyName("URLPath"));
+        Assert.assertEquals("ipv4-address", CompiledBinderProcessor.propertyName("Ipv4Address"));
+        Assert.assertEquals("id", CompiledBinderProcessor.propertyName("Id"));
+    }
+
+    @Test
+    public void nullConversionSkipsPrimitiveSetter() {
+        Map<String, Object> properties = new HashMap<>();
+        // 空字符串转成Integer是null,生成的binder不能拿它去调用setId(int)
+        properties.put("person.id", "");
+        properties.put("person.name", "aty");
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+
+        SelfPropertyBinder.Person person = CompiledBinders.bind(new CompiledBindSource(environment), "person",
+                SelfPropertyBinder.Person.class);
+        Assert.assertEquals(0, person.getId());
+        Assert.assertEquals("aty", person.getName());
+    }
+}
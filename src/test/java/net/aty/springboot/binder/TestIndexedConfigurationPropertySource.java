@@ -0,0 +1,195 @@
+package net.aty.springboot.binder;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.BindException;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.UnboundConfigurationPropertiesException;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 同一份属性分别用标准的Binder和IndexedConfigurationPropertySource绑定,结果必须一样
+ */
+public class TestIndexedConfigurationPropertySource {
+
+    private final Map<String, Object> properties = new LinkedHashMap<>();
+
+    @Test
+    public void nestedMaps() {
+        properties.put("aty.map.a.x", "1");
+        properties.put("aty.map.a.y", "2");
+        properties.put("aty.map[b].z", "3");
+        properties.put("aty.map[c][d]", "4");
+        properties.put("aty.map.e.f.g", "5");
+        properties.put("aty.map.camelKey.UPPER_KEY", "6");
+        ResolvableType inner = ResolvableType.forClassWithGenerics(Map.class, String.class, String.class);
+        Bindable<Map<String, Map<String, String>>> bindable = Bindable.of(
+                ResolvableType.forClassWithGenerics(Map.class, ResolvableType.forClass(String.class), inner));
+
+        Map<String, Map<String, String>> bound = assertSameBinding("aty.map", bindable);
+        Assert.assertEquals("1", bound.get("a").get("x"));
+        Assert.assertEquals("3", bound.get("b").get("z"));
+        Assert.assertEquals("4", bound.get("c").get("d"));
+        Assert.assertEquals("5", bound.get("e").get("f.g"));
+        // map的key保留原来的写法
+        Assert.assertEquals("6", bound.get("camelKey").get("UPPER_KEY"));
+    }
+
+    /**
+     * 下标不连续时标准Binder在第一个空位停下,索引后的属性源不能多绑也不能少绑
+     */
+    @Test
+    public void sparseIndexes() {
+        properties.put("aty.list[0]", "a");
+        properties.put("aty.list[1]", "b");
+        properties.put("aty.list[3]", "d");
+        properties.put("aty.list[10]", "k");
+        properties.put("aty.persons[0].name", "p0");
+        properties.put("aty.persons[2].name", "p2");
+
+        assertSameFailure("aty.list", Bindable.listOf(String.class));
+        assertSameFailure("aty.persons", Bindable.listOf(Person.class));
+
+        properties.remove("aty.list[3]");
+        properties.remove("aty.list[10]");
+        Assert.assertEquals(2, assertSameBinding("aty.list", Bindable.listOf(String.class)).size());
+    }
+
+    @Test
+    public void relaxedNames() {
+        properties.put("aty.person.first-name", "kebab");
+        properties.put("aty.person.lastName", "camel");
+        properties.put("aty.person.NICK_NAME", "upper");
+        properties.put("aty.person.home-city", "kebab-city");
+        properties.put("aty.person.homecity", "plain-city");
+        properties.put("aty.person.tags[0]", "t0");
+        properties.put("aty.person.tags[1]", "t1");
+
+        Person person = assertSameBinding("aty.person", Bindable.of(Person.class));
+        Assert.assertEquals("kebab", person.getFirstName());
+        Assert.assertEquals("camel", person.getLastName());
+        Assert.assertEquals("upper", person.getNickName());
+    }
+
+    private <T> T assertSameBinding(String name, Bindable<T> bindable) {
+        MapPropertySource source = new MapPropertySource("test", properties);
+        T expected = new Binder(ConfigurationPropertySources.from(source)).bind(name, bindable).orElse(null);
+        T actual = new Binder(IndexedConfigurationPropertySource.from(source)).bind(name, bindable).orElse(null);
+        Assert.assertNotNull(expected);
+        Assert.assertEquals(expected, actual);
+        return actual;
+    }
+
+    /**
+     * 下标跳过的元素两边都要报同样的未绑定属性
+     */
+    private <T> void assertSameFailure(String name, Bindable<T> bindable) {
+        MapPropertySource source = new MapPropertySource("test", properties);
+        Assert.assertEquals(bindFailure(new Binder(ConfigurationPropertySources.from(source)), name, bindable),
+                bindFailure(new Binder(IndexedConfigurationPropertySource.from(source)), name, bindable));
+    }
+
+    private static <T> String bindFailure(Binder binder, String name, Bindable<T> bindable) {
+        try {
+            binder.bind(name, bindable);
+        } catch (BindException e) {
+            Assert.assertTrue(e.getCause() instanceof UnboundConfigurationPropertiesException);
+            return e.getCause().getMessage();
+        }
+        Assert.fail("expected unbound elements under " + name);
+        return null;
+    }
+
+    public static class Person {
+
+        private String name;
+
+        private String firstName;
+
+        private String lastName;
+
+        private String nickName;
+
+        private String homeCity;
+
+        private List<String> tags;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public void setFirstName(String firstName) {
+            this.firstName = firstName;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+
+        public void setLastName(String lastName) {
+            this.lastName = lastName;
+        }
+
+        public String getNickName() {
+            return nickName;
+        }
+
+        public void setNickName(String nickName) {
+            this.nickName = nickName;
+        }
+
+        public String getHomeCity() {
+            return homeCity;
+        }
+
+        public void setHomeCity(String homeCity) {
+            this.homeCity = homeCity;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Person)) {
+                return false;
+            }
+            Person other = (Person) o;
+            return Objects.equals(name, other.name) && Objects.equals(firstName, other.firstName)
+                    && Objects.equals(lastName, other.lastName) && Objects.equals(nickName, other.nickName)
+                    && Objects.equals(homeCity, other.homeCity) && Objects.equals(tags, other.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, firstName, lastName, nickName, homeCity, tags);
+        }
+
+        @Override
+        public String toString() {
+            return "Person{" + name + ", " + firstName + ", " + lastName + ", " + nickName + ", " + homeCity
+                    + ", " + tags + "}";
+        }
+    }
+}
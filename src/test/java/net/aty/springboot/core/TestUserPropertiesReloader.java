@@ -0,0 +1,160 @@
+package net.aty.springboot.core;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TestUserPropertiesReloader {
+
+    private Path dir;
+
+    private Path file;
+
+    private StandardEnvironment environment;
+
+    private UserPropertiesReloader reloader;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("user-properties");
+        file = dir.resolve("user.properties");
+        write(0);
+        environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new ResourcePropertySource(new FileSystemResource(file.toFile())));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (reloader != null) {
+            reloader.destroy();
+        }
+        for (File child : dir.toFile().listFiles()) {
+            child.delete();
+        }
+        dir.toFile().delete();
+    }
+
+    /**
+     * 读线程一直读,主线程反复改文件再reload:读到的id和name必须来自同一次加载,每个读线程看到的id不会倒退
+     */
+    @Test
+    public void readWhileReloading() throws Exception {
+        reloader = newReloader(false);
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        LongAdder reads = new LongAdder();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread reader = new Thread(() -> {
+                int last = -1;
+                while (!stop.get()) {
+                    UserPropertiesSnapshot snapshot = reloader.current();
+                    if (!("aty-" + snapshot.getId()).equals(snapshot.getName())) {
+                        failure.compareAndSet(null, "torn snapshot " + snapshot);
+                    }
+                    if (snapshot.getId() < last) {
+                        failure.compareAndSet(null, "went back from " + last + " to " + snapshot.getId());
+                    }
+                    last = snapshot.getId();
+                    reads.increment();
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        for (int i = 1; i <= 500; i++) {
+            write(i);
+            Assert.assertEquals(i, reloader.reload().getId());
+        }
+        stop.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        Assert.assertNull(failure.get());
+        Assert.assertTrue(reads.sum() > 0);
+        Assert.assertEquals(500, reloader.current().getId());
+        Assert.assertEquals("aty-500", environment.getProperty("user.aty.name"));
+    }
+
+    @Test
+    public void reloadWhenFileChanges() throws Exception {
+        reloader = newReloader(true);
+        Assert.assertEquals(0, reloader.current().getId());
+
+        write(42);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reloader.current().getId() != 42 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals("aty-42", reloader.current().getName());
+    }
+
+    /**
+     * 启动时注入的单例也跟着更新,文件里删掉的属性恢复成默认值
+     */
+    @Test
+    public void reloadUpdatesInjectedBean() throws Exception {
+        UserProperties bean = new UserProperties();
+        bean.setId(0);
+        bean.setName("aty-0");
+        reloader = new UserPropertiesReloader(environment, new FileSystemResource(file.toFile()), "user.aty", false, bean);
+
+        write(7);
+        reloader.reload();
+        Assert.assertEquals(7, bean.getId());
+        Assert.assertEquals("aty-7", bean.getName());
+
+        Files.write(file, "user.aty.id=8\n".getBytes(StandardCharsets.ISO_8859_1));
+        reloader.reload();
+        Assert.assertEquals(8, bean.getId());
+        Assert.assertNull(bean.getName());
+    }
+
+    @Test
+    public void keepSnapshotWhenFileIsGone() throws Exception {
+        reloader = newReloader(false);
+        Files.delete(file);
+        try {
+            reloader.reload();
+            Assert.fail();
+        } catch (Exception e) {
+            Assert.assertEquals("aty-0", reloader.current().getName());
+        }
+    }
+
+    private UserPropertiesReloader newReloader(boolean watch) throws Exception {
+        UserProperties initial = new UserProperties();
+        initial.setId(0);
+        initial.setName("aty-0");
+        UserPropertiesReloader reloader = new UserPropertiesReloader(environment,
+                new FileSystemResource(file.toFile()), "user.aty", watch, initial);
+        reloader.afterPropertiesSet();
+        return reloader;
+    }
+
+    /**
+     * 先写临时文件再rename,读到的文件内容总是完整的
+     */
+    private void write(int id) throws Exception {
+        Path temp = dir.resolve("user.properties.tmp");
+        Files.write(temp, ("user.aty.id=" + id + "\nuser.aty.name=aty-" + id + "\n").getBytes(StandardCharsets.ISO_8859_1));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,236 @@
+package net.aty.springboot.core.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 测试用的进程内Redis替身:每个连接一个线程,支持PING AUTH SELECT GET SET(PX) DEL PUBLISH SUBSCRIBE,
+ * 记录收到的每条命令;getDelayMillis可以让GET变慢,用来制造并发未命中
+ */
+class RespStubServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+
+    private final Map<String, byte[]> data = new ConcurrentHashMap<>();
+
+    private final List<List<String>> commands = new CopyOnWriteArrayList<>();
+
+    private final Map<String, List<OutputStream>> subscribers = new ConcurrentHashMap<>();
+
+    private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+
+    volatile long getDelayMillis;
+
+    RespStubServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "resp-stub-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    Map<String, byte[]> getData() {
+        return data;
+    }
+
+    /**
+     * 收到的命令,命令名大写,不包括连接时的AUTH/SELECT和SUBSCRIBE
+     */
+    List<List<String>> commands(String name) {
+        List<List<String>> result = new ArrayList<>();
+        for (List<String> command : commands) {
+            if (command.get(0).equals(name)) {
+                result.add(command);
+            }
+        }
+        return result;
+    }
+
+    int subscriberCount(String channel) {
+        return subscribers.getOrDefault(channel, List.of()).size();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sockets.add(socket);
+                Thread thread = new Thread(() -> serve(socket), "resp-stub-connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        OutputStream out = null;
+        try {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                List<byte[]> command = readCommand(in);
+                String name = new String(command.get(0), StandardCharsets.UTF_8).toUpperCase();
+                List<String> text = new ArrayList<>();
+                text.add(name);
+                for (int i = 1; i < command.size(); i++) {
+                    text.add(new String(command.get(i), StandardCharsets.UTF_8));
+                }
+                if (!name.equals("AUTH") && !name.equals("SELECT") && !name.equals("SUBSCRIBE")) {
+                    commands.add(text);
+                }
+                synchronized (out) {
+                    handle(name, command, text, out);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // 客户端断开或服务关闭
+        } finally {
+            OutputStream closed = out;
+            subscribers.values().forEach(list -> list.remove(closed));
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 已经断开
+            }
+        }
+    }
+
+    private void handle(String name, List<byte[]> command, List<String> text, OutputStream out) throws IOException {
+        switch (name) {
+            case "PING":
+            case "AUTH":
+            case "SELECT":
+                simple(out, name.equals("PING") ? "PONG" : "OK");
+                break;
+            case "GET":
+                sleep(getDelayMillis);
+                bulk(out, data.get(text.get(1)));
+                break;
+            case "SET":
+                data.put(text.get(1), command.get(2));
+                simple(out, "OK");
+                break;
+            case "DEL": {
+                long removed = 0;
+                for (int i = 1; i < text.size(); i++) {
+                    removed += data.remove(text.get(i)) != null ? 1 : 0;
+                }
+                integer(out, removed);
+                break;
+            }
+            case "PUBLISH": {
+                List<OutputStream> targets = subscribers.getOrDefault(text.get(1), List.of());
+                for (OutputStream target : targets) {
+                    synchronized (target) {
+                        target.write(("*3\r\n").getBytes(StandardCharsets.US_ASCII));
+                        bulk(target, "message".getBytes(StandardCharsets.UTF_8));
+                        bulk(target, command.get(1));
+                        bulk(target, command.get(2));
+                        target.flush();
+                    }
+                }
+                integer(out, targets.size());
+                break;
+            }
+            case "SUBSCRIBE":
+                subscribers.computeIfAbsent(text.get(1), key -> new CopyOnWriteArrayList<>()).add(out);
+                out.write(("*3\r\n").getBytes(StandardCharsets.US_ASCII));
+                bulk(out, "subscribe".getBytes(StandardCharsets.UTF_8));
+                bulk(out, command.get(1));
+                integer(out, 1);
+                break;
+            default:
+                out.write(("-ERR unknown command '" + name + "'\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            throw new EOFException();
+        }
+        if (type != '*') {
+            throw new IOException("inline commands are not supported");
+        }
+        int count = Integer.parseInt(line(in));
+        List<byte[]> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("bulk string expected");
+            }
+            byte[] bytes = in.readNBytes(Integer.parseInt(line(in)));
+            line(in);
+            args.add(bytes);
+        }
+        return args;
+    }
+
+    private static String line(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c < 0) {
+                throw new EOFException();
+            }
+            line.append((char) c);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    private static void simple(OutputStream out, String value) throws IOException {
+        out.write(("+" + value + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void integer(OutputStream out, long value) throws IOException {
+        out.write((":" + value + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void bulk(OutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        out.write(("$" + value.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(value);
+        out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void sleep(long millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package net.aty.springboot.core.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestTinyLfuCache {
+
+    @Test
+    public void boundedSize() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100, 0, TimeUnit.SECONDS);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i);
+        }
+        Assert.assertEquals(100, cache.size());
+        Assert.assertEquals(9_900, cache.evictionCount());
+    }
+
+    /**
+     * 经常访问的key在一次大范围扫描之后仍然留在缓存里,LRU的话会被全部冲掉
+     */
+    @Test
+    public void frequentKeysSurviveScan() {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(100, 0, TimeUnit.SECONDS);
+        for (int round = 0; round < 20; round++) {
+            for (int key = 0; key < 50; key++) {
+                if (cache.get(key) == null) {
+                    cache.put(key, key);
+                }
+            }
+        }
+        for (int key = 1_000; key < 11_000; key++) {
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+        }
+        int retained = 0;
+        for (int key = 0; key < 50; key++) {
+            retained += cache.get(key) != null ? 1 : 0;
+        }
+        Assert.assertTrue("retained hot keys: " + retained, retained >= 45);
+        Assert.assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    public void expireAfterWrite() {
+        AtomicLong now = new AtomicLong();
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, TimeUnit.SECONDS.toNanos(5), now::get);
+        cache.put("a", "1");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(4));
+        Assert.assertEquals("1", cache.get("a"));
+        cache.put("b", "2");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals("2", cache.get("b"));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void invalidate() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, 0, TimeUnit.SECONDS);
+        cache.put("a", "1");
+        cache.put("a", "2");
+        Assert.assertEquals("2", cache.get("a"));
+        cache.invalidate("a");
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(0, cache.size());
+    }
+}
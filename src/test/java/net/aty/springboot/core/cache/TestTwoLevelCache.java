@@ -0,0 +1,269 @@
+package net.aty.springboot.core.cache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class TestTwoLevelCache {
+
+    private RespStubServer server;
+
+    private TwoLevelCacheProperties properties;
+
+    private final List<RespClient> clients = new ArrayList<>();
+
+    private final List<TwoLevelCache<String>> caches = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new RespStubServer();
+        properties = new TwoLevelCacheProperties();
+        properties.setInvalidationDelay(Duration.ofMillis(50));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (TwoLevelCache<String> cache : caches) {
+            cache.close();
+        }
+        for (RespClient client : clients) {
+            client.close();
+        }
+        server.close();
+    }
+
+    /**
+     * 未命中时加载并写入L2;另一个实例从L2读到,不再调用loader
+     */
+    @Test
+    public void readThrough() throws Exception {
+        TwoLevelCache<String> first = newCache();
+        AtomicInteger loads = new AtomicInteger();
+        Assert.assertEquals("aty", first.get("1", () -> "aty" + (loads.incrementAndGet() > 1 ? "-again" : "")));
+        Assert.assertEquals("aty", first.get("1", () -> "aty-again"));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, first.getLocalHits());
+        Assert.assertEquals(1, server.commands("GET").size());
+        Assert.assertArrayEquals("aty".getBytes(), server.getData().get("aty:cache:users:1"));
+
+        TwoLevelCache<String> second = newCache();
+        Assert.assertEquals("aty", second.get("1", () -> "from-source"));
+        Assert.assertEquals(1, second.getRemoteHits());
+        Assert.assertEquals(0, second.getMisses());
+    }
+
+    /**
+     * 同一个key同时未命中:只有一次L2读取和一次加载,其他线程拿到同一个结果
+     */
+    @Test
+    public void concurrentMissesLoadOnce() throws Exception {
+        TwoLevelCache<String> cache = newCache();
+        server.getDelayMillis = 200;
+        int threads = 16;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get("hot", () -> "value-" + loads.incrementAndGet());
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                Assert.assertEquals("value-1", result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, server.commands("GET").size());
+        Assert.assertEquals(threads - 1, cache.getJoins() + cache.getLocalHits());
+    }
+
+    /**
+     * 连续的失效合并成一条DEL和一条PUBLISH,另一个实例收到通知后丢掉L1里的旧值
+     */
+    @Test
+    public void invalidationsAreBatched() throws Exception {
+        TwoLevelCache<String> writer = newCache();
+        TwoLevelCache<String> reader = newCache();
+        waitFor(() -> server.subscriberCount("aty:cache:users:invalidate") == 2);
+        for (int i = 0; i < 10; i++) {
+            String key = "k" + i;
+            writer.get(key, () -> "old");
+            Assert.assertEquals("old", reader.get(key, () -> "unexpected"));
+        }
+
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            writer.invalidate("k" + i);
+            keys.add("aty:cache:users:k" + i);
+        }
+        waitFor(() -> server.commands("PUBLISH").size() == 1);
+        Assert.assertTrue(server.getData().isEmpty());
+        waitFor(() -> reader.get("k9", () -> "new").equals("new"));
+
+        Assert.assertEquals(1, server.commands("DEL").size());
+        Assert.assertEquals(keys, new HashSet<>(server.commands("DEL").get(0).subList(1, 11)));
+        Assert.assertEquals(1, writer.getInvalidationBatches());
+        for (int i = 0; i < 9; i++) {
+            Assert.assertEquals("new", reader.get("k" + i, () -> "new"));
+            Assert.assertEquals("new", writer.get("k" + i, () -> "unexpected"));
+        }
+    }
+
+    /**
+     * 加载过程中被失效:这次的结果照常返回,但不进L1,下一次重新加载
+     */
+    @Test
+    public void invalidatedWhileLoading() throws Exception {
+        TwoLevelCache<String> cache = newCache();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> result = executor.submit(() -> cache.get("1", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return "stale";
+            }));
+            loading.await();
+            cache.invalidate("1");
+            release.countDown();
+            Assert.assertEquals("stale", result.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals("fresh", cache.get("1", () -> {
+            loads.incrementAndGet();
+            return "fresh";
+        }));
+        Assert.assertEquals(2, loads.get());
+    }
+
+    /**
+     * Redis不可用时退化成只有L1
+     */
+    @Test
+    public void redisUnavailable() throws Exception {
+        TwoLevelCache<String> cache = newCache();
+        server.close();
+        long start = System.nanoTime();
+        Assert.assertEquals("v", cache.get("1", () -> "v"));
+        Assert.assertEquals("v", cache.get("1", () -> "unexpected"));
+        Assert.assertEquals("w", cache.get("2", () -> "w"));
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue("took " + millis + "ms", millis < 500);
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+    /**
+     * Redis接受连接但不回复时,只有第一次调用等满timeout,之后在退避期间直接退回到loader
+     */
+    @Test
+    public void unresponsiveRedisDegradesToLoader() throws Exception {
+        try (ServerSocket blackhole = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            RespClient client = new RespClient(InetAddress.getLoopbackAddress().getHostAddress(),
+                    blackhole.getLocalPort(), "secret", 1, Duration.ofMillis(200));
+            clients.add(client);
+            TwoLevelCache<String> cache = new TwoLevelCache<>("users", client, CacheCodec.STRING, properties);
+            caches.add(cache);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < 50; i++) {
+                String value = "v" + i;
+                Assert.assertEquals(value, cache.get(String.valueOf(i), () -> value));
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            // 每次都等timeout的话是50 * (GET + SET) * 200ms = 20s
+            Assert.assertTrue("took " + millis + "ms", millis < 1000);
+            Assert.assertEquals(50, cache.getMisses());
+        }
+    }
+
+    /**
+     * 所有缓存共用一个客户端,慢的GET之间不互相排队
+     */
+    @Test
+    public void slowCommandsRunOnSeparateConnections() throws Exception {
+        RespClient client = new RespClient(InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(),
+                "secret", 1, Duration.ofSeconds(2), 4);
+        clients.add(client);
+        server.getDelayMillis = 300;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            long start = System.nanoTime();
+            List<Future<byte[]>> gets = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                String key = "k" + i;
+                gets.add(executor.submit(() -> client.get(key)));
+            }
+            for (Future<byte[]> get : gets) {
+                Assert.assertNull(get.get(5, TimeUnit.SECONDS));
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            // 一条连接串行的话至少4 * 300ms
+            Assert.assertTrue("took " + millis + "ms", millis < 900);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 换行符会把失效通知里的key拆开,其他实例删错key
+     */
+    @Test
+    public void keyWithLineFeedIsRejected() throws Exception {
+        TwoLevelCache<String> cache = newCache();
+        try {
+            cache.get("1\n2", () -> "v");
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            cache.invalidateAll(List.of("1", "1\n2"));
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        Thread.sleep(200);
+        Assert.assertTrue(server.commands("PUBLISH").isEmpty());
+    }
+
+    private TwoLevelCache<String> newCache() {
+        RespClient client = new RespClient(InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(),
+                "secret", 1, Duration.ofSeconds(2));
+        clients.add(client);
+        TwoLevelCache<String> cache = new TwoLevelCache<>("users", client, CacheCodec.STRING, properties);
+        caches.add(cache);
+        return cache;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("timed out", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package net.aty.springboot.graph;
+
+import net.aty.springboot.core.DemoServiceA;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.annotation.ClassPathBeanDefinitionScanner;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Arrays;
+
+public class TestPrecomputedBeanGraphRegistrar {
+
+    @Test
+    public void classConditionsAreCheckedAgainstRuntimeClassLoader() {
+        PrecomputedBeanGraphRegistrar registrar = new PrecomputedBeanGraphRegistrar() {
+            @Override
+            protected void register(BeanDefinitionRegistry registry) {
+                // 生成的代码就是这个形式
+                if (present("net.aty.springboot.core.DemoServiceA")) {
+                    component(registry, "demoServiceA", DemoServiceA.class, DemoServiceA::new);
+                }
+            }
+        };
+        registrar.setEnvironment(new StandardEnvironment());
+        // 编译时在,运行时的ClassLoader里不在
+        registrar.setBeanClassLoader(new ClassLoader(null) {
+        });
+
+        DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+        registrar.registerBeanDefinitions(null, registry);
+        Assert.assertFalse(registry.containsBeanDefinition("demoServiceA"));
+
+        registrar.setBeanClassLoader(getClass().getClassLoader());
+        registrar.registerBeanDefinitions(null, registry);
+        Assert.assertTrue(registry.containsBeanDefinition("demoServiceA"));
+    }
+
+    @Test
+    public void registersSameBeansAsScanning() {
+        StandardEnvironment environment = new StandardEnvironment();
+        DefaultListableBeanFactory scanned = new DefaultListableBeanFactory();
+        ClassPathBeanDefinitionScanner scanner = new ClassPathBeanDefinitionScanner(scanned, true, environment);
+        scanner.setIncludeAnnotationConfig(false);
+        scanner.scan(PrecomputedBeanGraph.PACKAGES);
+
+        DefaultListableBeanFactory precomputed = new DefaultListableBeanFactory();
+        PrecomputedBeanGraph graph = new PrecomputedBeanGraph();
+        graph.setEnvironment(environment);
+        graph.registerBeanDefinitions(null, precomputed);
+
+        Assert.assertArrayEquals(componentNames(scanned), componentNames(precomputed));
+    }
+
+    /**
+     * 预先计算范围之外有组件的包都要在扫描列表里,父包在列表里时子包不再重复
+     */
+    @Test
+    public void scanPackagesCoverRemainingComponents() {
+        Assert.assertArrayEquals(new String[]{"net.aty.springboot.admin", "net.aty.springboot.export",
+                "net.aty.springboot.startup"}, PrecomputedBeanGraph.SCAN_PACKAGES);
+        Assert.assertArrayEquals(PrecomputedBeanGraph.SCAN_PACKAGES,
+                PrecomputedComponentScan.class.getAnnotation(ComponentScan.class).value());
+    }
+
+    /**
+     * AnnotatedBeanDefinitionReader会顺带注册注解处理器,应用里本来就有,不算组件
+     */
+    private static String[] componentNames(DefaultListableBeanFactory registry) {
+        return Arrays.stream(registry.getBeanDefinitionNames())
+                .filter(name -> !name.startsWith("org.springframework."))
+                .sorted()
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,71 @@
+package net.aty.springboot.jmh;
+
+import net.aty.springboot.graph.PrecomputedBeanGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.annotation.ClassPathBeanDefinitionScanner;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 注册core和actuator包的组件:运行时扫描classpath并判断条件,和编译期生成的PrecomputedBeanGraph比较
+ * <ul>
+ * <li>coldRegister:每次fork一个新的jvm只注册一次,包含类加载,对应启动时真正发生的那一次</li>
+ * <li>register:预热之后的稳定吞吐</li>
+ * </ul>
+ * 两种方式注册的bean相同由TestPrecomputedBeanGraphRegistrar检查;线程数由{@link JmhRunner}控制
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeanGraphBenchmark {
+
+    @Param({"scan", "precomputed"})
+    private String mode;
+
+    private StandardEnvironment environment;
+
+    @Setup
+    public void setup() {
+        environment = new StandardEnvironment();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(5)
+    public DefaultListableBeanFactory coldRegister() {
+        return register();
+    }
+
+    @Benchmark
+    public DefaultListableBeanFactory register() {
+        DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+        if ("precomputed".equals(mode)) {
+            PrecomputedBeanGraph graph = new PrecomputedBeanGraph();
+            graph.setEnvironment(environment);
+            graph.registerBeanDefinitions(null, registry);
+        } else {
+            ClassPathBeanDefinitionScanner scanner = new ClassPathBeanDefinitionScanner(registry, true, environment);
+            scanner.setIncludeAnnotationConfig(false);
+            scanner.scan(PrecomputedBeanGraph.PACKAGES);
+        }
+        return registry;
+    }
+}
@@ -0,0 +1,80 @@
+package net.aty.springboot.jmh;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import net.aty.springboot.actuator.CachedPrometheusScraper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1万个meter,每次scrape之前随机修改1%的meter,对比PrometheusMeterRegistry.scrape()(full)、
+ * CachedPrometheusScraper.scrape()(cached)和scrapeGzip()(cached-gzip);修改meter的开销三种方式相同
+ * <p>
+ * 两种方式的输出在setup里核对;线程数由{@link JmhRunner}控制
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachedPrometheusScraperBenchmark {
+
+    private static final int METERS = 10000;
+
+    @Param({"full", "cached", "cached-gzip"})
+    private String mode;
+
+    private PrometheusMeterRegistry registry;
+
+    private List<Counter> counters;
+
+    private CachedPrometheusScraper scraper;
+
+    @Setup
+    public void setup() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        counters = new ArrayList<>(METERS);
+        for (int i = 0; i < METERS; i++) {
+            counters.add(Counter.builder("game.order.bench" + i)
+                    .tag("channel", "c" + (i % 100))
+                    .register(registry));
+        }
+        scraper = new CachedPrometheusScraper(registry.getPrometheusRegistry());
+        if (!registry.scrape().equals(new String(scraper.scrape(), StandardCharsets.UTF_8))) {
+            throw new IllegalStateException("cached scrape differs from PrometheusMeterRegistry.scrape()");
+        }
+    }
+
+    @Benchmark
+    public Object scrape() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < METERS / 100; i++) {
+            counters.get(random.nextInt(METERS)).increment();
+        }
+        switch (mode) {
+            case "full":
+                return registry.scrape();
+            case "cached":
+                return scraper.scrape();
+            default:
+                return scraper.scrapeGzip();
+        }
+    }
+}
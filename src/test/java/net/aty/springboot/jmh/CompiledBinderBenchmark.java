@@ -0,0 +1,119 @@
+package net.aty.springboot.jmh;
+
+import net.aty.springboot.binder.CompiledBindSource;
+import net.aty.springboot.binder.CompiledBinders;
+import net.aty.springboot.core.SelfPropertyBinder.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 反射的Binder和编译期生成的binder绑定Person:
+ * <ul>
+ * <li>coldBindAll:每次fork一个新的jvm只跑一次,绑定全部5000个对象,包含类加载和JavaBean分析,对应启动场景</li>
+ * <li>bindOne:预热之后绑定单个对象的稳定吞吐</li>
+ * </ul>
+ * 线程数由{@link JmhRunner}控制
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledBinderBenchmark {
+
+    private static final int OBJECTS = 5000;
+
+    @Param({"reflective", "compiled"})
+    private String mode;
+
+    private StandardEnvironment environment;
+
+    private String[] prefixes;
+
+    private Binder binder;
+
+    private CompiledBindSource source;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> properties = new HashMap<>();
+        prefixes = new String[OBJECTS];
+        for (int i = 0; i < OBJECTS; i++) {
+            prefixes[i] = "aty.persons.p" + i;
+            properties.put(prefixes[i] + ".id", String.valueOf(i));
+            properties.put(prefixes[i] + ".name", "aty" + i);
+            properties.put(prefixes[i] + ".address.country", "cn");
+            properties.put(prefixes[i] + ".address.province", "sz" + (i % 30));
+        }
+        environment = new StandardEnvironment();
+        // 不用MapPropertySource:可枚举的属性源每次containsDescendantOf都要比较整个key集合,
+        // 那部分开销和binder无关,这里只比较绑定本身
+        environment.getPropertySources().addFirst(new PropertySource<Map<String, Object>>("persons", properties) {
+            @Override
+            public Object getProperty(String name) {
+                return source.get(name);
+            }
+        });
+        binder = Binder.get(environment);
+        source = new CompiledBindSource(environment);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(5)
+    public void coldBindAll(Blackhole blackhole) {
+        // 新建binder,第一次绑定的类加载和缓存都算在里面
+        Binder coldBinder = Binder.get(environment);
+        CompiledBindSource coldSource = new CompiledBindSource(environment);
+        for (String prefix : prefixes) {
+            blackhole.consume(bind(coldBinder, coldSource, prefix));
+        }
+    }
+
+    @Benchmark
+    public Person bindOne(Cursor cursor) {
+        return bind(binder, source, prefixes[cursor.next()]);
+    }
+
+    private Person bind(Binder binder, CompiledBindSource source, String prefix) {
+        return "compiled".equals(mode) ? CompiledBinders.bind(source, prefix, Person.class)
+                : binder.bind(prefix, Bindable.of(Person.class)).get();
+    }
+
+    /**
+     * 每个线程依次绑定不同的对象
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        int next() {
+            int current = index;
+            index = current + 1 == OBJECTS ? 0 : current + 1;
+            return current;
+        }
+    }
+}
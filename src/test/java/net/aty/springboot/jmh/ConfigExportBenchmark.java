@@ -0,0 +1,125 @@
+package net.aty.springboot.jmh;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.aty.springboot.core.SelfPropertyBinder.Address;
+import net.aty.springboot.core.SelfPropertyBinder.Person;
+import net.aty.springboot.export.ConfigExporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导出配置对象:每次new ObjectMapper().writeValueAsString、共享ObjectMapper的writeValueAsString、
+ * ConfigExporter直接写到输出流;分别导出10万个Person的列表和单个Person
+ * <p>
+ * 字符串先按UTF-8编码,和写到响应里的开销一样;每次导出分配的字节数用org.openjdk.jmh.Main的-prof gc查看。
+ * 线程数由{@link JmhRunner}控制
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigExportBenchmark {
+
+    private static final int PERSONS = 100_000;
+
+    @Param({"new-mapper", "shared-mapper", "exporter"})
+    private String mode;
+
+    private ObjectMapper shared;
+
+    private ConfigExporter exporter;
+
+    private List<Person> persons;
+
+    @Setup
+    public void setup() {
+        shared = new ObjectMapper();
+        exporter = new ConfigExporter(new ObjectMapper());
+        persons = new ArrayList<>(PERSONS);
+        for (int i = 0; i < PERSONS; i++) {
+            persons.add(person(i));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void exportList(Blackhole blackhole) throws IOException {
+        export(persons, true, blackhole);
+    }
+
+    @Benchmark
+    public void exportOne(Blackhole blackhole) throws IOException {
+        export(persons.get(0), false, blackhole);
+    }
+
+    private void export(Object value, boolean list, Blackhole blackhole) throws IOException {
+        switch (mode) {
+            case "new-mapper":
+                blackhole.consume(new ObjectMapper().writeValueAsString(value).getBytes(StandardCharsets.UTF_8));
+                break;
+            case "shared-mapper":
+                blackhole.consume(shared.writeValueAsString(value).getBytes(StandardCharsets.UTF_8));
+                break;
+            default:
+                OutputStream out = new BlackholeOutputStream(blackhole);
+                if (list) {
+                    exporter.writeArray(out, (List<?>) value);
+                } else {
+                    exporter.write(out, value);
+                }
+        }
+    }
+
+    private static Person person(int i) {
+        Address address = new Address();
+        address.setCountry("cn");
+        address.setProvince("province-" + (i % 34));
+        Person person = new Person();
+        person.setId(i);
+        person.setName("name-" + i);
+        person.setAddress(address);
+        return person;
+    }
+
+    /**
+     * 写进来的字节都交给Blackhole,代替响应的输出流
+     */
+    private static class BlackholeOutputStream extends OutputStream {
+
+        private final Blackhole blackhole;
+
+        BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+            blackhole.consume(len);
+        }
+    }
+}
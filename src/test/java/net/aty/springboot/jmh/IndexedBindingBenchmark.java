@@ -0,0 +1,123 @@
+package net.aty.springboot.jmh;
+
+import net.aty.springboot.binder.IndexedConfigurationPropertySource;
+import net.aty.springboot.core.SelfPropertyBinder.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带N个aty.person[i]的bind.properties,分别用Binder.get(environment)和IndexedConfigurationPropertySource
+ * 绑定成List&lt;Person&gt;;indexed包含从属性源建trie的时间
+ * <p>
+ * 原来的方式是O(N^2),只跑到5000;线程数由{@link JmhRunner}控制
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexedBindingBenchmark {
+
+    @Benchmark
+    public List<Person> indexed(IndexedSizes state) {
+        IndexedConfigurationPropertySource indexed = IndexedConfigurationPropertySource.from(state.propertySource);
+        return state.check(new Binder(indexed).bind("aty.person", Bindable.listOf(Person.class)).get());
+    }
+
+    @Benchmark
+    public List<Person> reflective(ReflectiveSizes state) {
+        return state.check(Binder.get(state.environment).bind("aty.person", Bindable.listOf(Person.class)).get());
+    }
+
+    @State(Scope.Benchmark)
+    public static class IndexedSizes extends Properties {
+
+        @Param({"1000", "2000", "5000", "50000"})
+        private int count;
+
+        @Override
+        int count() {
+            return count;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ReflectiveSizes extends Properties {
+
+        @Param({"1000", "2000", "5000"})
+        private int count;
+
+        @Override
+        int count() {
+            return count;
+        }
+    }
+
+    public abstract static class Properties {
+
+        private File file;
+
+        ResourcePropertySource propertySource;
+
+        StandardEnvironment environment;
+
+        abstract int count();
+
+        @Setup
+        public void setup() throws IOException {
+            int count = count();
+            file = File.createTempFile("bind", ".properties");
+            try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                for (int i = 0; i < count; i++) {
+                    writer.write("aty.person[" + i + "].id=" + i + "\n");
+                    writer.write("aty.person[" + i + "].name=aty" + i + "\n");
+                    writer.write("aty.person[" + i + "].address.country=cn\n");
+                    writer.write("aty.person[" + i + "].address.province=sz" + (i % 30) + "\n");
+                }
+            }
+            propertySource = new ResourcePropertySource(new FileSystemResource(file));
+            environment = new StandardEnvironment();
+            environment.getPropertySources().addLast(propertySource);
+        }
+
+        @TearDown
+        public void tearDown() {
+            file.delete();
+        }
+
+        List<Person> check(List<Person> persons) {
+            int count = count();
+            if (persons.size() != count) {
+                throw new IllegalStateException("expected " + count + " persons, but got " + persons.size());
+            }
+            Person last = persons.get(count - 1);
+            if (last.getId() != count - 1 || !("sz" + ((count - 1) % 30)).equals(last.getAddress().getProvince())) {
+                throw new IllegalStateException("unexpected last person " + last.getId());
+            }
+            return persons;
+        }
+    }
+}
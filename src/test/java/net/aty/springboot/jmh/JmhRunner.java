@@ -0,0 +1,37 @@
+package net.aty.springboot.jmh;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * 按不同线程数依次运行JMH基准测试,每个线程数输出一个json结果文件:{outputDir}/jmh-{threads}threads.json
+ * <p>
+ * 参数:[include正则] [线程数列表,逗号分隔] [输出目录],一般通过mvn -P jmh test运行;
+ * json文件可以直接用JMH Visualizer之类的工具对比不同提交之间的结果
+ */
+public class JmhRunner {
+
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 ? args[0] : "net.aty.springboot.*";
+        String threadList = args.length > 1 ? args[1] : "1," + Runtime.getRuntime().availableProcessors();
+        File outputDir = new File(args.length > 2 ? args[2] : "target/jmh");
+        outputDir.mkdirs();
+
+        for (String each : threadList.split(",")) {
+            int threads = Integer.parseInt(each.trim());
+            File result = new File(outputDir, "jmh-" + threads + "threads.json");
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(result.getPath())
+                    .build();
+            new Runner(options).run();
+            System.out.println("threads=" + threads + ", result=" + result.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package net.aty.springboot.jmh;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.aty.springboot.actuator.MeterHandles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比计数器每次上报都Counter.builder().register()和MeterHandles句柄写法,
+ * registry模拟Metrics.globalRegistry,是一个挂了SimpleMeterRegistry的CompositeMeterRegistry;
+ * gauge的对比在{@link MetricRegistrationBenchmark}里
+ * <p>
+ * 线程数由{@link JmhRunner}控制,所有线程共享同一个registry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeterHandlesBenchmark {
+
+    private CompositeMeterRegistry registry;
+
+    private Counter counter;
+
+    @Setup
+    public void setup() {
+        registry = new CompositeMeterRegistry();
+        registry.add(new SimpleMeterRegistry());
+        counter = MeterHandles.counter(registry, "game.order.report", "channel", "theme");
+    }
+
+    @Benchmark
+    public void counterBuilder() {
+        Counter.builder("game.order.report")
+                .tag("channel", "theme")
+                .register(registry)
+                .increment();
+    }
+
+    @Benchmark
+    public void counterHandle() {
+        counter.increment();
+    }
+}
@@ -0,0 +1,88 @@
+package net.aty.springboot.jmh;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import net.aty.springboot.actuator.GameOrderMetric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * 记录路径的对比:GameOrderMetric.setOrderCount(volatile double写)、DoubleAdder、
+ * AtomicLong保存double bit位的CAS累加、micrometer的Counter和Timer
+ * <p>
+ * 线程数由{@link JmhRunner}控制,所有线程共享同一个State,测的是竞争下的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricRecordingBenchmark {
+
+    private GameOrderMetric gameOrderMetric;
+
+    private DoubleAdder doubleAdder;
+
+    private AtomicLong doubleBits;
+
+    private Counter counter;
+
+    private Timer timer;
+
+    @Setup
+    public void setup() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        gameOrderMetric = new GameOrderMetric();
+        gameOrderMetric.bindTo(registry);
+        doubleAdder = new DoubleAdder();
+        doubleBits = new AtomicLong(Double.doubleToRawLongBits(0));
+        counter = Counter.builder("game.order.bench.counter").tag("channel", "store").register(registry);
+        timer = Timer.builder("game.order.bench.timer").tag("channel", "store").register(registry);
+    }
+
+    @Benchmark
+    public void volatileDoubleWrite() {
+        gameOrderMetric.setOrderCount(1.0);
+    }
+
+    @Benchmark
+    public void doubleAdder() {
+        doubleAdder.add(1.0);
+    }
+
+    @Benchmark
+    public long atomicLongEncodedDouble() {
+        long current;
+        long next;
+        do {
+            current = doubleBits.get();
+            next = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + 1.0);
+        } while (!doubleBits.compareAndSet(current, next));
+        return next;
+    }
+
+    @Benchmark
+    public void micrometerCounter() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public void micrometerTimer() {
+        timer.record(1, TimeUnit.MILLISECONDS);
+    }
+}
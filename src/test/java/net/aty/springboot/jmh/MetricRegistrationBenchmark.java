@@ -0,0 +1,74 @@
+package net.aty.springboot.jmh;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import net.aty.springboot.actuator.MeterHandles;
+import net.aty.springboot.actuator.OrderChannelHandle;
+import net.aty.springboot.actuator.OrderCounterEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上报路径的注册方式对比:
+ * <ul>
+ * <li>gaugeBuilderPerCall:MetricReportUtils和GameOrderService原来的写法,每次上报都Gauge.builder().register()</li>
+ * <li>gaugeHandle:MeterHandles解析一次得到句柄,上报时只写值</li>
+ * <li>orderEngineHandle:OrderCounterEngine预先注册的channel句柄</li>
+ * </ul>
+ * registry和Metrics.globalRegistry一样是挂了PrometheusMeterRegistry的CompositeMeterRegistry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricRegistrationBenchmark {
+
+    private CompositeMeterRegistry registry;
+
+    private MeterHandles.GaugeHandle gaugeHandle;
+
+    private OrderChannelHandle orderHandle;
+
+    @Setup
+    public void setup() {
+        registry = new CompositeMeterRegistry();
+        registry.add(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        gaugeHandle = MeterHandles.gauge(registry, "game.order.count.way3", "channel", "theme");
+
+        OrderCounterEngine engine = new OrderCounterEngine();
+        engine.bindTo(registry);
+        orderHandle = engine.register("game");
+    }
+
+    @Benchmark
+    public Gauge gaugeBuilderPerCall() {
+        return Gauge.builder("game.order.count.way2", Math::random)
+                .strongReference(true)
+                .tag("channel", "game")
+                .register(registry);
+    }
+
+    @Benchmark
+    public void gaugeHandle() {
+        gaugeHandle.set(1.0);
+    }
+
+    @Benchmark
+    public void orderEngineHandle() {
+        orderHandle.record();
+    }
+}
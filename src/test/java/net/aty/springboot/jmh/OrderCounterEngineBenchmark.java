@@ -0,0 +1,54 @@
+package net.aty.springboot.jmh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.aty.springboot.actuator.OrderChannelHandle;
+import net.aty.springboot.actuator.OrderCounterEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OrderCounterEngine的channel句柄并发记录订单的吞吐量,对比所有线程共用一个AtomicLong计数器
+ * <p>
+ * 线程数由{@link JmhRunner}控制,所有线程记录同一个channel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderCounterEngineBenchmark {
+
+    private OrderChannelHandle handle;
+
+    private AtomicLong atomic;
+
+    @Setup
+    public void setup() {
+        OrderCounterEngine engine = new OrderCounterEngine();
+        engine.bindTo(new SimpleMeterRegistry());
+        handle = engine.register("store");
+        atomic = new AtomicLong();
+    }
+
+    @Benchmark
+    public void engine() {
+        handle.record();
+    }
+
+    @Benchmark
+    public long atomicLong() {
+        return atomic.incrementAndGet();
+    }
+}
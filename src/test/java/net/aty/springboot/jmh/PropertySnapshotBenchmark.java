@@ -0,0 +1,103 @@
+package net.aty.springboot.jmh;
+
+import net.aty.springboot.snapshot.PropertySnapshotCompiler;
+import net.aty.springboot.snapshot.PropertySnapshotPropertySource;
+import net.aty.springboot.snapshot.SnapshotPropertySourceFactory;
+import org.apache.commons.logging.LogFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动时加载属性文件的耗时对比:每个fork是一个新的jvm,只加载一次,测加载属性源、枚举全部属性名
+ * (Binder对可枚举属性源会这样做)和读一个属性;两种方式共用的Spring类和日志在@Setup里初始化好
+ * <p>
+ * 文件包括classpath上的user.properties、bind.properties,和一个生成的20万个key的属性文件;
+ * classpath上的快照需要先mvn -P property-snapshot process-classes,否则snapshot会退回到文本解析。
+ * 线程数由{@link JmhRunner}控制
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class PropertySnapshotBenchmark {
+
+    private static final int GENERATED_KEYS = 200_000;
+
+    @Param({"classpath:user.properties", "classpath:bind.properties", "generated"})
+    private String file;
+
+    @Param({"text", "snapshot"})
+    private String mode;
+
+    private File generated;
+
+    private Resource resource;
+
+    @Setup
+    public void setup() throws Exception {
+        // 两种方式共用的类和日志先初始化好(PropertySource的构造函数里会创建logger),只比较解析文本和读取快照本身
+        LogFactory.getLog(PropertySnapshotBenchmark.class);
+        Class.forName(ResourcePropertySource.class.getName());
+        Class.forName(PropertySnapshotPropertySource.class.getName());
+        new ClassPathResource("application.properties").getInputStream().close();
+
+        if (file.startsWith("classpath:")) {
+            resource = new ClassPathResource(file.substring("classpath:".length()));
+            return;
+        }
+        generated = File.createTempFile("generated", ".properties");
+        try (BufferedWriter writer = Files.newBufferedWriter(generated.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < GENERATED_KEYS / 4; i++) {
+                writer.write("aty.person[" + i + "].id=" + i + "\n");
+                writer.write("aty.person[" + i + "].name=aty" + i + "\n");
+                writer.write("aty.person[" + i + "].address.country=cn\n");
+                writer.write("aty.person[" + i + "].address.province=sz" + (i % 30) + "\n");
+            }
+        }
+        if ("snapshot".equals(mode)) {
+            PropertySnapshotCompiler.compile(generated);
+        }
+        resource = new FileSystemResource(generated);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (generated != null) {
+            new File(generated.getPath() + PropertySnapshotCompiler.SUFFIX).delete();
+            generated.delete();
+        }
+    }
+
+    @Benchmark
+    public Object load(Blackhole blackhole) throws Exception {
+        EnumerablePropertySource<?> propertySource = "text".equals(mode) ? new ResourcePropertySource(resource)
+                : SnapshotPropertySourceFactory.load(resource);
+        String[] names = propertySource.getPropertyNames();
+        blackhole.consume(names);
+        return propertySource.getProperty(names[names.length - 1]);
+    }
+}
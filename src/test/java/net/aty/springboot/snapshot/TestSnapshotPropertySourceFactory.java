@@ -0,0 +1,92 @@
+package net.aty.springboot.snapshot;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class TestSnapshotPropertySourceFactory {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void upToDateSnapshotIsUsed() throws Exception {
+        File file = properties("aty.name=aty\n");
+        PropertySnapshotCompiler.compile(file);
+
+        PropertySource<?> source = SnapshotPropertySourceFactory.load(new FileSystemResource(file));
+        Assert.assertTrue(source instanceof PropertySnapshotPropertySource);
+        Assert.assertEquals("aty", source.getProperty("aty.name"));
+    }
+
+    @Test
+    public void sameLengthEditMakesSnapshotStale() throws Exception {
+        File file = properties("aty.name=aty\n");
+        PropertySnapshotCompiler.compile(file);
+        long modified = file.lastModified();
+        // 长度不变,只有校验和能发现;文件系统的时间精度可能不够,明确把修改时间往后挪
+        Files.write(file.toPath(), "aty.name=ytA\n".getBytes(StandardCharsets.ISO_8859_1));
+        Assert.assertTrue(file.setLastModified(modified + 2000));
+
+        PropertySource<?> source = SnapshotPropertySourceFactory.load(new FileSystemResource(file));
+        Assert.assertTrue(source instanceof ResourcePropertySource);
+        Assert.assertEquals("ytA", source.getProperty("aty.name"));
+    }
+
+    /**
+     * 内容没变只是修改时间变了(比如resources重新拷贝),CRC32一致照样用快照
+     */
+    @Test
+    public void touchedFileKeepsSnapshot() throws Exception {
+        File file = properties("aty.name=aty\n");
+        PropertySnapshotCompiler.compile(file);
+        Assert.assertTrue(file.setLastModified(file.lastModified() + 2000));
+
+        PropertySource<?> source = SnapshotPropertySourceFactory.load(new FileSystemResource(file));
+        Assert.assertTrue(source instanceof PropertySnapshotPropertySource);
+    }
+
+    /**
+     * 大小和修改时间都和快照记录的一致时不再读取属性文件计算CRC32
+     */
+    @Test
+    public void matchingLengthAndModifiedSkipChecksum() throws Exception {
+        File file = properties("aty.name=aty\n");
+        PropertySnapshotCompiler.compile(file);
+        long modified = file.lastModified();
+        Files.write(file.toPath(), "aty.name=ytA\n".getBytes(StandardCharsets.ISO_8859_1));
+        Assert.assertTrue(file.setLastModified(modified));
+
+        PropertySource<?> source = SnapshotPropertySourceFactory.load(new FileSystemResource(file));
+        Assert.assertTrue(source instanceof PropertySnapshotPropertySource);
+        Assert.assertEquals("aty", source.getProperty("aty.name"));
+    }
+
+    @Test
+    public void explicitEncodingBypassesSnapshot() throws Exception {
+        File file = folder.newFile("utf8.properties");
+        Files.write(file.toPath(), "aty.name=中文\n".getBytes(StandardCharsets.UTF_8));
+        PropertySnapshotCompiler.compile(file);
+
+        PropertySource<?> source = new SnapshotPropertySourceFactory().createPropertySource("utf8",
+                new EncodedResource(new FileSystemResource(file), StandardCharsets.UTF_8));
+        Assert.assertTrue(source instanceof ResourcePropertySource);
+        Assert.assertEquals("中文", source.getProperty("aty.name"));
+    }
+
+    private File properties(String content) throws IOException {
+        File file = folder.newFile("test.properties");
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.ISO_8859_1));
+        return file;
+    }
+}
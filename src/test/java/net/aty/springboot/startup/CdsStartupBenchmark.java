@@ -0,0 +1,112 @@
+package net.aty.springboot.startup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 冷启动时间:同一个cds目录下的瘦jar,交替用默认的JDK归档和训练生成的AppCDS归档各启动若干次,
+ * 读取"Started AtyApplication in x seconds (JVM running for y)"里jvm启动以来的时间,启动完成后结束进程
+ * <p>
+ * 先执行mvn -P cds-training package;参数是每种方式的启动次数(默认3)和cds目录(默认target/cds),
+ * 目录里还没有归档时先训练一次
+ * <p>
+ * 不用JMH:要测的是从jvm启动开始的时间,而且AppCDS只映射从jar加载的类;JMH的fork用的是带目录的测试classpath,
+ * 计时也只从benchmark方法开始,正好漏掉归档省下的那部分
+ */
+public class CdsStartupBenchmark {
+
+    private static final Pattern STARTED = Pattern.compile(
+            "Started AtyApplication in ([0-9.]+) seconds \\(JVM running for ([0-9.]+)\\)");
+
+    private static final String[] APP_ARGS = {"--server.port=0", "--spring.boot.admin.client.enabled=false"};
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        Path dir = Paths.get(args.length > 1 ? args[1] : "target/cds");
+        Path jar;
+        try {
+            jar = Files.list(dir).filter(path -> path.toString().endsWith("-cds.jar")).findFirst().orElse(null);
+        } catch (IOException e) {
+            jar = null;
+        }
+        if (jar == null) {
+            System.out.println("no cds jar in " + dir + ", run mvn -P cds-training package first");
+            System.exit(1);
+        }
+        Path archive = dir.resolve("aty.jsa");
+        if (!Files.exists(archive)) {
+            long start = System.nanoTime();
+            List<String> command = command("-XX:ArchiveClassesAtExit=" + archive, "-Xlog:cds=error", jar);
+            command.add("--aty.cds.training=true");
+            new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start().waitFor();
+            System.out.printf("training: %.1fs, archive %dMB%n", (System.nanoTime() - start) / 1e9,
+                    Files.size(archive) >> 20);
+        }
+
+        List<Double> baseline = new ArrayList<>();
+        List<Double> appCds = new ArrayList<>();
+        for (int run = 0; run < runs; run++) {
+            baseline.add(start("default CDS", command("-Xshare:auto", null, jar)));
+            appCds.add(start("AppCDS", command("-XX:SharedArchiveFile=" + archive, "-Xshare:auto", jar)));
+        }
+        double base = median(baseline);
+        double cds = median(appCds);
+        System.out.printf("median jvm time to started: default CDS %.2fs, AppCDS %.2fs (%.0f%% faster)%n",
+                base, cds, (base - cds) / base * 100);
+    }
+
+    private static List<String> command(String option1, String option2, Path jar) {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.add(option1);
+        if (option2 != null) {
+            command.add(option2);
+        }
+        command.add("-jar");
+        command.add(jar.toString());
+        command.addAll(Arrays.asList(APP_ARGS));
+        return command;
+    }
+
+    private static double start(String mode, List<String> command) throws Exception {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = STARTED.matcher(line);
+                if (matcher.find()) {
+                    double jvm = Double.parseDouble(matcher.group(2));
+                    System.out.printf("%-12s started in %ss, jvm running for %.2fs, wall %.2fs%n", mode,
+                            matcher.group(1), jvm, (System.nanoTime() - start) / 1e9);
+                    return jvm;
+                }
+            }
+            throw new IllegalStateException(mode + " exited before start, exit code " + process.waitFor());
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static double median(List<Double> values) {
+        List<Double> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,151 @@
+package net.aty.springboot.startup;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class TestParallelInitBeanPostProcessor {
+
+    @Test
+    public void keepDependencyOrderAndRunIndependentBeansConcurrently() {
+        try (AnnotationConfigApplicationContext context = context(true, Beans.class)) {
+            Slow a = context.getBean("a", Slow.class);
+            Slow b = context.getBean("b", Slow.class);
+            Slow c = context.getBean("c", Slow.class);
+            Slow d = context.getBean("d", Slow.class);
+
+            // b直接依赖a,c通过没有@ParallelInit的plain间接依赖a
+            Assert.assertTrue(b.start >= a.end);
+            Assert.assertTrue(c.start >= a.end);
+            // d不依赖任何bean,和a同时执行
+            Assert.assertTrue(d.start < a.end);
+            Assert.assertTrue(a.thread.startsWith("parallel-init-"));
+
+            List<ParallelInitBeanPostProcessor.Timing> timings =
+                    context.getBean(ParallelInitBeanPostProcessor.class).getTimings();
+            Assert.assertEquals(4, timings.size());
+            List<String> path = ParallelInitBeanPostProcessor.criticalPath(timings).stream()
+                    .map(ParallelInitBeanPostProcessor.Timing::getBeanName).collect(Collectors.toList());
+            Assert.assertEquals("a", path.get(0));
+            Assert.assertEquals(2, path.size());
+        }
+    }
+
+    @Test
+    public void initializeOnCreationWhenDisabled() {
+        try (AnnotationConfigApplicationContext context = context(false, Beans.class)) {
+            Assert.assertEquals("main", context.getBean("a", Slow.class).thread);
+            Assert.assertTrue(context.getBeansOfType(ParallelInitBeanPostProcessor.class).isEmpty());
+        }
+    }
+
+    @Test
+    public void failStartupWhenInitializationFails() {
+        try {
+            context(true, FailingBeans.class).close();
+            Assert.fail();
+        } catch (BeanCreationException e) {
+            Assert.assertEquals("failing", e.getBeanName());
+            Assert.assertEquals("boom", e.getCause().getMessage());
+        }
+    }
+
+    private static AnnotationConfigApplicationContext context(boolean enabled, Class<?> beans) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("aty.startup.parallel-init.enabled", String.valueOf(enabled));
+        properties.put("aty.startup.parallel-init.threads", "2");
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        context.register(ParallelInitConfiguration.class, beans);
+        context.refresh();
+        return context;
+    }
+
+    @Configuration
+    static class Beans {
+
+        @Bean
+        public Slow a() {
+            return new Slow(300);
+        }
+
+        @Bean
+        public Slow b(Slow a) {
+            return new Slow(50);
+        }
+
+        @Bean
+        public Plain plain(Slow a) {
+            return new Plain();
+        }
+
+        @Bean
+        public Slow c(Plain plain) {
+            return new Slow(50);
+        }
+
+        @Bean
+        public Slow d() {
+            return new Slow(300);
+        }
+    }
+
+    @Configuration
+    static class FailingBeans {
+
+        @Bean
+        public Failing failing() {
+            return new Failing();
+        }
+    }
+
+    @ParallelInit
+    static class Slow implements InitializingBean {
+
+        private final long sleepMillis;
+
+        private volatile long start;
+
+        private volatile long end;
+
+        private volatile String thread;
+
+        Slow(long sleepMillis) {
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        public void afterPropertiesSet() throws Exception {
+            start = System.nanoTime();
+            thread = Thread.currentThread().getName();
+            Thread.sleep(sleepMillis);
+            end = System.nanoTime();
+        }
+    }
+
+    static class Plain {
+
+        @Autowired
+        private Slow a;
+    }
+
+    @ParallelInit
+    static class Failing implements InitializingBean {
+
+        @Override
+        public void afterPropertiesSet() {
+            throw new IllegalStateException("boom");
+        }
+    }
+}
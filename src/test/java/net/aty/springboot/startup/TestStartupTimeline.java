@@ -0,0 +1,90 @@
+package net.aty.springboot.startup;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+public class TestStartupTimeline {
+
+    /**
+     * 组件上的条件照常由Spring判断,配置类解析阶段的耗时按条件报告分摊到判断过条件的类上
+     */
+    @Test
+    public void configurationTimeIsAttributedToConditionSources() {
+        StartupTimeline timeline;
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+                    Collections.singletonMap(StartupTimelineInitializer.ENABLED, "true")));
+            new StartupTimelineInitializer().initialize(context);
+            context.register(StartupTimelineConfiguration.class, Present.class, Missing.class);
+            context.refresh();
+
+            Assert.assertEquals(1, context.getBeansOfType(Present.class).size());
+            Assert.assertTrue(context.getBeansOfType(Missing.class).isEmpty());
+            timeline = context.getBean(StartupTimeline.BEAN_NAME, StartupTimeline.class);
+        }
+
+        Map<String, Long> conditions = timeline.getEntries().stream()
+                .filter(entry -> StartupTimeline.KIND_CONDITION.equals(entry.getKind()))
+                .collect(Collectors.toMap(StartupTimeline.Entry::getName, StartupTimeline.Entry::getTotalMicros));
+        Assert.assertTrue(conditions.toString(), conditions.containsKey("TestStartupTimeline.Present"));
+        Assert.assertTrue(conditions.toString(), conditions.containsKey("TestStartupTimeline.Missing"));
+        // Present的类和@Bean方法上一共两个条件,Missing一个
+        Assert.assertTrue(conditions.get("TestStartupTimeline.Present") >= conditions.get("TestStartupTimeline.Missing"));
+
+        long attributed = conditions.values().stream().mapToLong(Long::longValue).sum();
+        Assert.assertTrue(attributed <= Math.round(timeline.getConfigurationMillis() * 1000));
+        Map<String, Long> stacks = timeline.collapsedStacks();
+        Assert.assertTrue(stacks.toString(), stacks.containsKey("startup;configuration;condition:TestStartupTimeline.Present"));
+    }
+
+    @Test
+    public void timeIsSplitByConditionCount() throws Exception {
+        StartupTimeline timeline = new StartupTimeline();
+        timeline.configurationStarted();
+        Thread.sleep(20);
+        timeline.configurationFinished();
+        Map<String, Integer> counts = new TreeMap<>();
+        counts.put("A", 3);
+        counts.put("B", 1);
+        timeline.attributeConditions(counts);
+
+        Map<String, Long> conditions = timeline.getEntries().stream()
+                .collect(Collectors.toMap(StartupTimeline.Entry::getName, StartupTimeline.Entry::getTotalMicros));
+        long total = Math.round(timeline.getConfigurationMillis() * 1000);
+        Assert.assertTrue(conditions.get("B") > 0);
+        Assert.assertTrue(conditions.get("A") >= 3 * conditions.get("B"));
+        Assert.assertTrue(conditions.get("A") + conditions.get("B") <= total);
+        // 分摊出去的部分不再重复算在configuration自身上
+        Map<String, Long> stacks = timeline.collapsedStacks();
+        long sum = stacks.getOrDefault("startup;configuration", 0L)
+                + stacks.get("startup;configuration;condition:A") + stacks.get("startup;configuration;condition:B");
+        Assert.assertEquals(total, sum, 1);
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "java.lang.String")
+    static class Present {
+
+        @Bean
+        @ConditionalOnMissingClass("net.aty.no.SuchClass")
+        String presentName() {
+            return "present";
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "net.aty.no.SuchClass")
+    static class Missing {
+    }
+}